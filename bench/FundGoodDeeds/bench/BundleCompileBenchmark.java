@@ -0,0 +1,173 @@
+package FundGoodDeeds.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import FundGoodDeeds.model.Bundle;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.Need;
+import FundGoodDeeds.model.NeedComponent;
+import FundGoodDeeds.model.NeedsRepository;
+
+/**
+ * Compiled leaf vectors of nested bundles (see Bundle): query speed against the
+ * recursive walk they replaced, the cost of recompiling after an edit, and that an
+ * edit in one user's catalog does not make another user's bundles recompile.
+ *
+ *   mvn -Pbench test-compile exec:java -Dexec.mainClass=FundGoodDeeds.bench.BundleCompileBenchmark
+ *
+ * The catalog has 2,000 needs, 200 bundles of 10 needs and five more levels of 40
+ * bundles, each holding 5 bundles of the level below and one need.
+ */
+public class BundleCompileBenchmark {
+    private static final int NEEDS = 2000;
+    private static final int LEAF_BUNDLES = 200;
+    private static final int LEVELS = 5;
+    private static final int BUNDLES_PER_LEVEL = 40;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        List<String> rows = catalogRows();
+        NeedsRepository catalog = load(rows);
+        NeedsRepository otherUser = load(rows);
+        List<Bundle> top = topBundles(catalog);
+        List<Bundle> all = allBundles(catalog);
+        List<Bundle> otherAll = allBundles(otherUser);
+        String probe = "Need 7";
+
+        System.out.println("Catalog: " + NEEDS + " needs, " + all.size() + " bundles, "
+                + top.size() + " top-level bundles of depth " + (LEVELS + 1));
+
+        double[] sink = {0};
+        long recursiveTotal = best(() -> top.forEach(b -> sink[0] += walkTotal(b)), 5);
+        long compiledTotal = best(() -> top.forEach(b -> sink[0] += b.getTotal()), 5);
+        report("getTotal, all top bundles", recursiveTotal, compiledTotal);
+
+        long recursiveUnits = best(() -> top.forEach(b -> sink[0] += walkUnits(b, probe)), 5);
+        long compiledUnits = best(() -> top.forEach(b -> sink[0] += b.getImpliedUnits(probe)), 5);
+        report("getImpliedUnits, all top bundles", recursiveUnits, compiledUnits);
+
+        // Each edit bumps this catalog's epoch, so the next pass recompiles every bundle in it
+        long steady = best(() -> all.forEach(b -> sink[0] += b.getTotal()), 1);
+        NeedComponent extra = catalog.getNeedByName("Need 1999");
+        boolean[] added = {false};
+        long afterEdit = best(() -> {
+            if (added[0]) {
+                catalog.removeBundleComponentType("L0 Bundle 0", extra);
+            } else {
+                catalog.addBundleComponent("L0 Bundle 0", extra, 1);
+            }
+            added[0] = !added[0];
+            all.forEach(b -> sink[0] += b.getTotal());
+        }, 1);
+        System.out.printf("Recompile: getTotal over all %d bundles takes %.2f ms right after an edit, %.3f ms when compiled%n",
+                all.size(), afterEdit / 1e6, steady / 1e6);
+
+        // The other user's bundles have their own epoch and must stay compiled
+        long otherSteady = best(() -> otherAll.forEach(b -> sink[0] += b.getTotal()), 1);
+        long otherAfterEdit = best(() -> {
+            if (added[0]) {
+                catalog.removeBundleComponentType("L0 Bundle 0", extra);
+            } else {
+                catalog.addBundleComponent("L0 Bundle 0", extra, 1);
+            }
+            added[0] = !added[0];
+            otherAll.forEach(b -> sink[0] += b.getTotal());
+        }, 1);
+        System.out.printf("Isolation: after an edit in one catalog, the other catalog's pass takes %.3f ms (%.3f ms without the edit)%n",
+                otherAfterEdit / 1e6, otherSteady / 1e6);
+
+        System.out.println("(checksum " + (long) sink[0] + ")");
+    }
+
+    private static void report(String what, long recursive, long compiled) {
+        System.out.printf("%s: recursive walk %.3f ms, compiled %.3f ms (%.1fx)%n",
+                what, recursive / 1e6, compiled / 1e6, (double) recursive / compiled);
+    }
+
+    // Best of ROUNDS timed rounds (after as many untimed ones), each running the task reps times
+    private static long best(Runnable task, int reps) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 2 * ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < reps; i++) {
+                task.run();
+            }
+            long elapsed = (System.nanoTime() - start) / reps;
+            if (round >= ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+
+    // How getTotal worked before the leaf vectors: a walk over every nested component
+    private static double walkTotal(NeedComponent component) {
+        if (component instanceof Bundle bundle) {
+            double[] total = {0};
+            bundle.forEachComponent((part, count) -> total[0] += walkTotal(part) * count);
+            return total[0];
+        }
+        return component.getTotal();
+    }
+
+    private static int walkUnits(NeedComponent component, String needName) {
+        if (component instanceof Need) {
+            return component.getName().equalsIgnoreCase(needName) ? 1 : 0;
+        }
+        int[] units = {0};
+        ((Bundle) component).forEachComponent((part, count) -> units[0] += walkUnits(part, needName) * count);
+        return units[0];
+    }
+
+    private static NeedsRepository load(List<String> rows) {
+        NeedsRepository repository = new NeedsRepository(new MemoryStorage().with(Dataset.NEEDS, rows));
+        repository.loadNeeds();
+        return repository;
+    }
+
+    private static List<String> catalogRows() {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < NEEDS; i++) {
+            rows.add("n,Need " + i + "," + (i % 50 + 1) + ".0");
+        }
+        for (int j = 0; j < LEAF_BUNDLES; j++) {
+            StringBuilder row = new StringBuilder("b,L0 Bundle " + j);
+            for (int k = 0; k < 10; k++) {
+                row.append(",Need ").append((j * 10 + k) % (NEEDS - 1)).append(',').append(k % 3 + 1).append(".0");
+            }
+            rows.add(row.toString());
+        }
+        int below = LEAF_BUNDLES;
+        for (int level = 1; level <= LEVELS; level++) {
+            for (int j = 0; j < BUNDLES_PER_LEVEL; j++) {
+                StringBuilder row = new StringBuilder("b,L" + level + " Bundle " + j);
+                for (int k = 0; k < 5; k++) {
+                    row.append(",L").append(level - 1).append(" Bundle ").append((j * 5 + k) % below).append(",2.0");
+                }
+                row.append(",Need ").append(j).append(",1.0");
+                rows.add(row.toString());
+            }
+            below = BUNDLES_PER_LEVEL;
+        }
+        return rows;
+    }
+
+    private static List<Bundle> topBundles(NeedsRepository catalog) {
+        List<Bundle> top = new ArrayList<>();
+        for (int j = 0; j < BUNDLES_PER_LEVEL; j++) {
+            top.add((Bundle) catalog.getNeedByName("L" + LEVELS + " Bundle " + j));
+        }
+        return top;
+    }
+
+    private static List<Bundle> allBundles(NeedsRepository catalog) {
+        List<Bundle> bundles = new ArrayList<>();
+        for (NeedComponent component : catalog.getNeedsCatalog()) {
+            if (component instanceof Bundle bundle) {
+                bundles.add(bundle);
+            }
+        }
+        return bundles;
+    }
+}
@@ -0,0 +1,118 @@
+package FundGoodDeeds.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import FundGoodDeeds.model.CSVManager;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.User;
+
+/**
+ * Throughput of frequent small CSV saves: the old truncate-and-write (no fsync)
+ * against CSVManager's crash-safe path (temp file, fsync, atomic rename) from one
+ * thread, and from three threads saving needs, funding and ledger at once, which
+ * the group commit lets share directory syncs.
+ *
+ *   mvn -Pbench test-compile exec:java -Dexec.mainClass=FundGoodDeeds.bench.GroupCommitBenchmark
+ *
+ * Run from the project root. The files go to a scratch user directory under
+ * src/FundGoodDeeds/data/, which is deleted afterwards. Each save writes 50 rows.
+ */
+public class GroupCommitBenchmark {
+    private static final String SCRATCH_USER = "zz_bench_group_commit";
+    private static final int ROWS = 50;
+    private static final long MILLIS_PER_CASE = 3000;
+
+    public static void main(String[] args) throws Exception {
+        CSVManager storage = new CSVManager("log.csv");
+        Path scratch = storage.getDataPath().resolve(SCRATCH_USER);
+        deleteRecursively(scratch);
+        storage.createUser(SCRATCH_USER);
+        storage.setUser(new User(SCRATCH_USER, "", "", ""));
+        try {
+            List<String> rows = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                rows.add("2025,1," + (i % 28 + 1) + ",n,Need " + i + ",1.0");
+            }
+
+            Path plain = scratch.resolve("plain.csv");
+            // Warm up both paths before measuring
+            rate(1, t -> Files.write(plain, rows));
+            rate(1, t -> storage.replace(Dataset.LEDGER, rows));
+
+            double old = rate(1, t -> Files.write(plain, rows));
+            double single = rate(1, t -> storage.replace(Dataset.LEDGER, rows));
+            Dataset[] datasets = {Dataset.NEEDS, Dataset.FUNDING, Dataset.LEDGER};
+            double concurrent = rate(3, t -> storage.replace(datasets[t], rows));
+
+            System.out.printf("Saves of %d rows, %d s per case:%n", ROWS, MILLIS_PER_CASE / 1000);
+            System.out.printf("  old truncate-and-write, no fsync:            %6.0f saves/s%n", old);
+            System.out.printf("  crash-safe path, one thread:                 %6.0f saves/s%n", single);
+            System.out.printf("  crash-safe path, three repositories at once: %6.0f saves/s%n", concurrent);
+        } finally {
+            deleteRecursively(scratch);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Save {
+        void run(int thread) throws IOException;
+    }
+
+    // Saves per second over MILLIS_PER_CASE, summed over the threads
+    private static double rate(int threads, Save save) throws Exception {
+        long[] counts = new long[threads];
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline[0]) {
+                        save.run(thread);
+                        counts[thread]++;
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + MILLIS_PER_CASE * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
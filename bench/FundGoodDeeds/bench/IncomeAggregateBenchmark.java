@@ -0,0 +1,172 @@
+package FundGoodDeeds.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import FundGoodDeeds.model.CSVManager;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.FundingRepository;
+import FundGoodDeeds.model.FundingSource;
+import FundGoodDeeds.model.LedgerRepository;
+import FundGoodDeeds.model.NeedsRepository;
+import FundGoodDeeds.model.SqlStorageEngine;
+import FundGoodDeeds.model.User;
+
+/**
+ * Income for a day (findIncome) and for one source over a date range
+ * (getIncomeBetween) on the H2 engine: the in-memory aggregates LedgerRepository
+ * keeps, against the SQL a push-down to the database would run (sum of units per
+ * source over indexed columns, priced at the current amounts).
+ *
+ *   mvn -Pbench test-compile exec:java -Dexec.mainClass=FundGoodDeeds.bench.IncomeAggregateBenchmark
+ *
+ * The database goes to a temp directory, which is deleted afterwards. The ledger
+ * has 100,000 entries over five years, half of them INCOME from 50 sources.
+ */
+public class IncomeAggregateBenchmark {
+    private static final int ENTRIES = 100_000;
+    private static final int SOURCES = 50;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    private static final int DAYS = 5 * 365;
+    private static final int QUERIES = 2000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("fgd-income-bench");
+        String url = "jdbc:h2:file:" + directory.resolve("fundgooddeeds").toAbsolutePath();
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+        System.setProperty(SqlStorageEngine.URL_PROPERTY, url);
+        try (SqlStorageEngine storage = SqlStorageEngine.open("log.csv");
+             Connection connection = DriverManager.getConnection(url)) {
+            storage.setUser(new User("bench", "", "", ""));
+            fill(storage);
+
+            NeedsRepository needs = new NeedsRepository(storage);
+            FundingRepository funding = new FundingRepository(storage);
+            LedgerRepository ledger = new LedgerRepository(storage, needs, funding);
+            needs.loadNeeds();
+            funding.loadFunds();
+            long loadStart = System.nanoTime();
+            ledger.loadLog();
+            System.out.printf("Ledger of %d entries loaded (and its income aggregates built) in %.0f ms%n",
+                    ledger.getEntryCount(), (System.nanoTime() - loadStart) / 1e6);
+
+            Random random = new Random(42);
+            LocalDate[] days = new LocalDate[QUERIES];
+            String[] sources = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                days[i] = FIRST_DAY.plusDays(random.nextInt(DAYS));
+                sources[i] = "Source " + random.nextInt(SOURCES);
+            }
+
+            // The index a push-down of getIncomeBetween would add, so the SQL gets its best case
+            connection.createStatement().execute("CREATE INDEX IF NOT EXISTS log_income ON log (user_name, kind, name, entry_date)");
+            PreparedStatement perDay = connection.prepareStatement(
+                    "SELECT name, SUM(units) FROM log WHERE user_name = ? AND kind = 'i' AND entry_date = ? GROUP BY name");
+            PreparedStatement perRange = connection.prepareStatement(
+                    "SELECT SUM(units) FROM log WHERE user_name = ? AND kind = 'i' AND name = ? AND entry_date BETWEEN ? AND ?");
+            perDay.setString(1, "bench");
+            perRange.setString(1, "bench");
+
+            double[] sink = {0};
+            long memoryDay = best(() -> {
+                for (LocalDate day : days) {
+                    sink[0] += ledger.findIncome(day);
+                }
+            });
+            long sqlDay = best(() -> {
+                for (LocalDate day : days) {
+                    perDay.setObject(2, day);
+                    try (ResultSet result = perDay.executeQuery()) {
+                        while (result.next()) {
+                            FundingSource source = funding.getFundingSourceByName(result.getString(1));
+                            sink[0] += source == null ? 0 : result.getDouble(2) * source.getAmount();
+                        }
+                    }
+                    sink[0] += funding.getScheduledIncome(day, day);
+                }
+            });
+            report("Income for one day (findIncome)", memoryDay, sqlDay);
+
+            long memoryRange = best(() -> {
+                for (int i = 0; i < QUERIES; i++) {
+                    sink[0] += ledger.getIncomeBetween(sources[i], days[i], days[i].plusDays(90));
+                }
+            });
+            long sqlRange = best(() -> {
+                for (int i = 0; i < QUERIES; i++) {
+                    perRange.setString(2, sources[i]);
+                    perRange.setObject(3, days[i]);
+                    perRange.setObject(4, days[i].plusDays(90));
+                    try (ResultSet result = perRange.executeQuery()) {
+                        result.next();
+                        sink[0] += result.getDouble(1) * funding.getFundingSourceByName(sources[i]).getAmount()
+                                + funding.getScheduledIncome(sources[i], days[i], days[i].plusDays(90));
+                    }
+                }
+            });
+            report("Income from one source over 90 days (getIncomeBetween)", memoryRange, sqlRange);
+
+            System.out.println("(checksum " + (long) sink[0] + ")");
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static void fill(SqlStorageEngine storage) throws Exception {
+        List<String> funding = new ArrayList<>();
+        for (int s = 0; s < SOURCES; s++) {
+            funding.add("i,Source " + s + "," + (s + 1) * 10.0);
+        }
+        storage.replace(Dataset.FUNDING, funding);
+        storage.replace(Dataset.NEEDS, List.of("n,Food,5.0", "n,Rent,800.0"));
+
+        Random random = new Random(7);
+        List<String> ledger = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            LocalDate day = FIRST_DAY.plusDays((long) i * DAYS / ENTRIES);
+            String date = String.format("%d,%02d,%02d", day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+            ledger.add(i % 2 == 0
+                    ? date + ",i,Source " + random.nextInt(SOURCES) + "," + (1 + random.nextInt(3)) + ".0"
+                    : date + ",n,Food," + (1 + random.nextInt(4)) + ".0");
+        }
+        storage.replace(Dataset.LEDGER, ledger);
+    }
+
+    private static void report(String what, long memory, long sql) {
+        System.out.printf("%s, %d queries: in memory %.2f ms (%.2f us each), SQL %.2f ms (%.2f us each)%n",
+                what, QUERIES, memory / 1e6, memory / 1e3 / QUERIES, sql / 1e6, sql / 1e3 / QUERIES);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    // Best of ROUNDS timed rounds, after as many untimed ones
+    private static long best(Task task) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 2 * ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.run();
+            if (round >= ROUNDS) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,56 @@
+package FundGoodDeeds.bench;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.StorageEngine;
+import FundGoodDeeds.model.User;
+
+/**
+ * A StorageEngine that keeps its rows in memory, so a benchmark measures the
+ * repositories and not the disk.
+ */
+class MemoryStorage implements StorageEngine {
+    private final Map<Dataset, List<String>> rows = new EnumMap<>(Dataset.class);
+
+    MemoryStorage with(Dataset dataset, List<String> data) {
+        rows.put(dataset, new ArrayList<>(data));
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public List<String> load(Dataset dataset) {
+        return new ArrayList<>(rows.getOrDefault(dataset, List.of()));
+    }
+
+    @Override
+    public void replace(Dataset dataset, List<String> data) {
+        rows.put(dataset, new ArrayList<>(data));
+    }
+
+    @Override
+    public void append(Dataset dataset, List<String> data) {
+        rows.computeIfAbsent(dataset, d -> new ArrayList<>()).addAll(data);
+    }
+
+    @Override
+    public String locationOf(Dataset dataset) {
+        return dataset.name().toLowerCase() + " (memory)";
+    }
+
+    @Override
+    public void setUser(User user) {
+    }
+
+    @Override
+    public void createUser(String userName) {
+    }
+}
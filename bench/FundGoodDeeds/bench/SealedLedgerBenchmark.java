@@ -0,0 +1,141 @@
+package FundGoodDeeds.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import FundGoodDeeds.model.CSVManager;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.FundingRepository;
+import FundGoodDeeds.model.LedgerEntity;
+import FundGoodDeeds.model.LedgerRepository;
+import FundGoodDeeds.model.NeedsRepository;
+import FundGoodDeeds.model.User;
+
+/**
+ * Sealed (.csvz) ledgers against plain CSV: size, full load time and a one-month
+ * readRange, and whether the range returns exactly that month's rows.
+ *
+ *   mvn -Pbench test-compile exec:java -Dexec.mainClass=FundGoodDeeds.bench.SealedLedgerBenchmark
+ *
+ * The ledger covers five years at 60 entries a day and is written by
+ * LedgerRepository.saveLogEntries, so the rows are in the format the app saves
+ * (2025,01,31,...). It is measured again with the dates unpadded (2025,1,31,...),
+ * as in a hand-edited ledger. The files go to a temp directory, deleted afterwards.
+ */
+public class SealedLedgerBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final int YEARS = 5;
+    private static final int ENTRIES_PER_DAY = 60;
+    private static final int ROUNDS = 5;
+    // The month read by the range case: [from, to)
+    private static final LocalDate MONTH = LocalDate.of(2022, 9, 1);
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("fgd-sealed-bench");
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+        try {
+            CSVManager storage = new CSVManager("log.csv");
+            storage.createUser("bench");
+            storage.setUser(new User("bench", "", "", ""));
+
+            List<String> padded = savedLedger();
+            List<String> unpadded = new ArrayList<>();
+            for (String row : padded) {
+                unpadded.add(row.replaceFirst("^(\\d+),0?(\\d+),0?(\\d+),", "$1,$2,$3,"));
+            }
+            System.out.println("Ledger: " + padded.size() + " rows over " + YEARS + " years; month read: "
+                    + MONTH.getYear() + "-" + MONTH.getMonthValue());
+            measure("As saved (zero-padded dates)", storage, directory.resolve("bench"), padded,
+                    String.format("%d,%02d", MONTH.getYear(), MONTH.getMonthValue()),
+                    String.format("%d,%02d", MONTH.plusMonths(1).getYear(), MONTH.plusMonths(1).getMonthValue()));
+            measure("Hand-edited (unpadded dates)", storage, directory.resolve("bench"), unpadded,
+                    MONTH.getYear() + "," + MONTH.getMonthValue(),
+                    MONTH.plusMonths(1).getYear() + "," + MONTH.plusMonths(1).getMonthValue());
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static void measure(String what, CSVManager storage, Path userDirectory, List<String> rows, String from, String to) throws Exception {
+        storage.replace(Dataset.LEDGER, rows);
+        long csvBytes = Files.size(userDirectory.resolve("log.csv"));
+        long csvLoad = best(() -> storage.readData("log.csv"));
+        long csvRange = best(() -> storage.readRange("log.csv", from, to));
+        List<String> expected = storage.readRange("log.csv", from, to);
+
+        storage.seal("log.csv");
+        long sealedBytes = Files.size(userDirectory.resolve("log.csvz"));
+        long sealedLoad = best(() -> storage.readData("log.csv"));
+        long sealedRange = best(() -> storage.readRange("log.csv", from, to));
+        List<String> sealedMonth = storage.readRange("log.csv", from, to);
+
+        System.out.println(what + ":");
+        System.out.printf("  size:        CSV %.2f MB, sealed %.2f MB (%.1f%% of the CSV)%n",
+                csvBytes / 1e6, sealedBytes / 1e6, 100.0 * sealedBytes / csvBytes);
+        System.out.printf("  full load:   CSV %.1f ms, sealed %.1f ms%n", csvLoad / 1e6, sealedLoad / 1e6);
+        System.out.printf("  month range: CSV %.2f ms, sealed %.2f ms; %d rows, %s%n", csvRange / 1e6, sealedRange / 1e6,
+                sealedMonth.size(), sealedMonth.equals(expected) && expected.size() == monthRows(rows) ? "exactly the month" : "WRONG ROWS");
+    }
+
+    // Rows dated in MONTH, by their parsed date
+    private static long monthRows(List<String> rows) {
+        return rows.stream().filter(row -> {
+            String[] fields = row.split(",");
+            return Integer.parseInt(fields[0]) == MONTH.getYear() && Integer.parseInt(fields[1]) == MONTH.getMonthValue();
+        }).count();
+    }
+
+    // The rows LedgerRepository saves for a generated ledger
+    private static List<String> savedLedger() throws Exception {
+        MemoryStorage memory = new MemoryStorage()
+                .with(Dataset.NEEDS, List.of("n,Food,5.0", "n,Rent,800.0", "n,Bus Pass,2.5", "n,Electric Bill,60.0"))
+                .with(Dataset.FUNDING, List.of("i,Paycheck,1800.0", "i,Scholarship,500.0"));
+        NeedsRepository needs = new NeedsRepository(memory);
+        FundingRepository funding = new FundingRepository(memory);
+        LedgerRepository ledger = new LedgerRepository(memory, needs, funding);
+        needs.loadNeeds();
+        funding.loadFunds();
+
+        String[] needNames = {"Food", "Rent", "Bus Pass", "Electric Bill"};
+        String[] sources = {"Paycheck", "Scholarship"};
+        LocalDate end = FIRST_DAY.plusYears(YEARS);
+        for (LocalDate day = FIRST_DAY; day.isBefore(end); day = day.plusDays(1)) {
+            ledger.addEntry(new LedgerEntity(day, LedgerEntity.EntryType.FUND, 150.0));
+            ledger.addEntry(new LedgerEntity(day, LedgerEntity.EntryType.GOAL, 2000.0));
+            for (int i = 2; i < ENTRIES_PER_DAY; i++) {
+                ledger.addEntry(i % 5 == 0
+                        ? new LedgerEntity(day, LedgerEntity.EntryType.INCOME, sources[i % 2], 1.0, 0.0)
+                        : new LedgerEntity(day, LedgerEntity.EntryType.NEED, needNames[i % 4], 1.0 + i % 3, 0.0));
+            }
+        }
+        ledger.saveLogEntries();
+        return memory.load(Dataset.LEDGER);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    // Best of ROUNDS timed rounds, after as many untimed ones
+    private static long best(Task task) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 2 * ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.run();
+            if (round >= ROUNDS) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,32 @@
+@echo off
+rem Runs FundGoodDeeds from the shaded jar (mvn package).
+rem
+rem   bin\fundgooddeeds.cmd [--fast] [swing]
+rem
+rem --fast starts from the class-data-sharing archive made by the training run
+rem (mvn -Pcds verify). See bin/fundgooddeeds.sh.
+setlocal
+
+rem The data directory is relative to the project root
+cd /d "%~dp0.."
+
+set ARCHIVE=target\fundgooddeeds.jsa
+set JAR=
+for %%f in (target\fundgooddeeds-app-*-shaded.jar) do set JAR=%%f
+if "%JAR%"=="" (
+    echo No shaded jar in target\; build it with: mvn package 1>&2
+    exit /b 1
+)
+
+set CDS_OPTS=
+set APP_ARGS=%*
+if /i "%~1"=="--fast" (
+    if not exist "%ARCHIVE%" (
+        echo No %ARCHIVE%; make it with: mvn -Pcds verify 1>&2
+        exit /b 1
+    )
+    set CDS_OPTS=-XX:SharedArchiveFile=%ARCHIVE%
+    set APP_ARGS=%2 %3 %4
+)
+
+java %CDS_OPTS% %JAVA_OPTS% -jar "%JAR%" %APP_ARGS%
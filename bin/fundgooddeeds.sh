@@ -0,0 +1,31 @@
+#!/bin/sh
+# Runs FundGoodDeeds from the shaded jar (mvn package).
+#
+#   bin/fundgooddeeds.sh [--fast] [swing]
+#
+# --fast starts from the class-data-sharing archive made by the training run
+# (mvn -Pcds verify), so the classes loaded before the login window come
+# ready-parsed from the archive. If the jar was rebuilt since, the JVM prints a
+# CDS warning and starts normally; run the training again.
+
+# The data directory is relative to the project root
+cd "$(dirname "$0")/.." || exit 1
+
+ARCHIVE=target/fundgooddeeds.jsa
+JAR=$(ls target/fundgooddeeds-app-*-shaded.jar 2>/dev/null | head -n 1)
+if [ -z "$JAR" ]; then
+    echo "No shaded jar in target/; build it with: mvn package" >&2
+    exit 1
+fi
+
+CDS_OPTS=""
+if [ "$1" = "--fast" ]; then
+    shift
+    if [ ! -f "$ARCHIVE" ]; then
+        echo "No $ARCHIVE; make it with: mvn -Pcds verify" >&2
+        exit 1
+    fi
+    CDS_OPTS="-XX:SharedArchiveFile=$ARCHIVE"
+fi
+
+exec java $CDS_OPTS $JAVA_OPTS -jar "$JAR" "$@"
@@ -0,0 +1,40 @@
+#!/bin/sh
+# Measures time to the login window of the Swing app, with and without the
+# class-data-sharing archive (see doc/SETUP.md). Needs a display (or xvfb-run),
+# the shaded jar and target/fundgooddeeds.jsa.
+#
+#   bin/startup-benchmark.sh [runs]        (default 5 runs of each)
+#
+# Each run starts the app with -Dfundgooddeeds.startupProbe=true, which prints
+# the time from process start to the login window opening and exits. One
+# untimed run of each goes first, so both are measured with a warm file cache.
+
+RUNS=${1:-5}
+LAUNCHER="$(dirname "$0")/fundgooddeeds.sh"
+
+probe() {
+    JAVA_OPTS="-Dfundgooddeeds.startupProbe=true $JAVA_OPTS" "$LAUNCHER" "$@" swing \
+        | sed -n 's/^Startup: login window shown \([0-9]*\) ms.*/\1/p'
+}
+
+measure() {
+    label=$1
+    shift
+    probe "$@" > /dev/null
+    times=""
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        times="$times $(probe "$@")"
+        i=$((i + 1))
+    done
+    echo "$times" | tr ' ' '\n' | grep . | sort -n | awk -v label="$label" '
+        { t[NR] = $1; sum += $1 }
+        END {
+            if (NR == 0) { print label ": no measurement (see the output above)"; exit 1 }
+            median = (NR % 2) ? t[(NR + 1) / 2] : (t[NR / 2] + t[NR / 2 + 1]) / 2
+            printf "%-12s median %d ms, mean %d ms, min %d ms, max %d ms (%d runs)\n", label, median, sum / NR, t[1], t[NR], NR
+        }'
+}
+
+measure "default" || exit 1
+measure "fast (CDS)" --fast
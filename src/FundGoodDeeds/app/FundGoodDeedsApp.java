@@ -1,8 +1,17 @@
 package FundGoodDeeds.app;
 
+import java.awt.HeadlessException;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.swing.SwingUtilities;
+
+import com.password4j.Password;
 
 import FundGoodDeeds.controller.*;
 import FundGoodDeeds.model.*;
@@ -10,50 +19,95 @@ import FundGoodDeeds.view.*;
 
 public class FundGoodDeedsApp {
 
-    private static MasterController startup() throws FileNotFoundException
-    {
-        // -----------------------------
-        // 1) MODEL
-        // -----------------------------
-        CSVManager csvManager = new CSVManager("log.csv");
+    private static final long WRITE_BEHIND_DELAY_MILLIS = 250;
+
+    // -Dfundgooddeeds.startupProbe=true: print the time to the login window, then exit (see bin/startup-benchmark.sh)
+    public static final String STARTUP_PROBE_PROPERTY = "fundgooddeeds.startupProbe";
 
-        NeedsRepository needsRepo = new NeedsRepository(csvManager);
-        FundingRepository fundingRepo = new FundingRepository(csvManager);
-        LedgerRepository ledgerRepo = new LedgerRepository(csvManager, needsRepo, fundingRepo);
+    // One per process; every login gets its own session from it
+    private static SessionManager sessions;
 
+    private static MasterController startup() throws IOException
+    {
         // -----------------------------
-        // 2) CONTROLLERS
+        // 1) USER PERSISTENCE
         // -----------------------------
-        NeedsController needsCtrl = new NeedsController(needsRepo);
-        LedgerController ledgerCtrl = new LedgerController(ledgerRepo, needsRepo);
-        FundingController fundingCtrl = new FundingController(fundingRepo);
-        
+        // CSV files unless -Dfundgooddeeds.storage names another engine
+        if (sessions == null)
+        {
+            sessions = new SessionManager("log.csv", WRITE_BEHIND_DELAY_MILLIS);
+        }
+
         // -----------------------------
-        // 2) USER PERSISTENCE
+        // 2) MODEL + CONTROLLERS
         // -----------------------------
-        
-        UserStore users = new UserStore(csvManager);
-
-        MasterController master = new MasterController(
-                needsCtrl,
-                ledgerCtrl,
-                fundingCtrl,
-                users
-        );
-
-        return master;
+        // Until someone logs in, the controllers work on the shared data directory
+        return new MasterController(sessions, sessions.openShared());
     }
 
     private static void showGUIApp(MasterController master)
     {
          SwingUIView ui = new SwingUIView(master);
-         master.registerObservers(ui);
          master.registerGUI(ui);
-         master.loadAll();
+         master.loadIfNeeded();
+         master.watchDataFiles();
          ui.start();
     }
 
-    public static void restartGUI() throws FileNotFoundException
+    /*
+     * The class-data-sharing training run (see doc/SETUP.md): "java
+     * -XX:ArchiveClassesAtExit=... -jar <shaded jar> train". Goes through what a Swing
+     * start loads - the login window, Nimbus, password4j, the main window and its
+     * panels, the data - without showing anything, then exits so the JVM writes the
+     * archive of every class loaded on the way.
+     */
+    private static void train() throws IOException
+    {
+        MasterController master = startup();
+        try
+        {
+            SwingUtilities.invokeAndWait(() -> {
+                new UserFrame(master, () -> {}).dispose();
+                new SwingUIView(master).dispose();
+            });
+        }
+        catch (InterruptedException | InvocationTargetException e)
+        {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof HeadlessException)
+            {
+                System.err.println("Error: The training run needs a display (on a server, run it under xvfb-run).");
+            }
+            else
+            {
+                System.err.println("Error: The training run failed: " + cause);
+            }
+            System.exit(1);
+        }
+        // Logins check bcrypt hashes; hashing once loads the same classes
+        Password.hash("training run").withBcrypt();
+        master.loadIfNeeded();
+        master.endSession();
+        System.out.println("Training run done.");
+        System.exit(0);
+    }
+
+    // Prints how long after the process started the login window appeared, and exits
+    private static void probeStartup(UserFrame loginUi)
+    {
+        loginUi.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                Instant started = ProcessHandle.current().info().startInstant()
+                        .orElse(Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime()));
+                System.out.println("Startup: login window shown " + Duration.between(started, Instant.now()).toMillis()
+                        + " ms after the process started");
+                System.exit(0);
+            }
+        });
+    }
+
+    public static void restartGUI() throws IOException
     {
         MasterController master = startup();
         UserFrame loginUi = new UserFrame(master,() -> {
@@ -63,10 +117,15 @@ public class FundGoodDeedsApp {
         
     }
 
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) throws IOException {
 
         System.out.println("Starting FundGoodDeeds...\n");
 
+        if (args.length > 0 && args[0].equalsIgnoreCase("train")) {
+            train();
+            return;
+        }
+
         MasterController master = startup();
 
         // -----------------------------
@@ -78,6 +137,9 @@ public class FundGoodDeedsApp {
                 UserFrame loginUi = new UserFrame(master,() -> {
                    showGUIApp(master);    
                 });
+                if (Boolean.getBoolean(STARTUP_PROBE_PROPERTY)) {
+                    probeStartup(loginUi);
+                }
                 loginUi.start();
                 
                 
@@ -85,11 +147,10 @@ public class FundGoodDeedsApp {
         } else {
 
             ConsoleView ui = new ConsoleView(master);
-            master.registerObservers(ui);
             
-            master.loadAll();
+            master.loadIfNeeded();
             ui.startup();
-            master.saveAll();
+            master.endSession();
         }
     }
 }
\ No newline at end of file
@@ -1,10 +1,11 @@
 package FundGoodDeeds.controller;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Observer;
 
 import FundGoodDeeds.model.FundingRepository;
 import FundGoodDeeds.model.FundingSource;
+import FundGoodDeeds.model.RecurrenceRule;
 import FundGoodDeeds.model.User;
 
 public class FundingController {
@@ -15,13 +16,6 @@ public class FundingController {
         this.fundingRepository = fundingRepository;
     }
 
-    //Allow the View to register as an Observer
-    public void addObserver(Observer o) {
-        if (fundingRepository != null) {
-            this.fundingRepository.addObserver(o);
-        }
-    }
-
     public void setUser(User user)
     {
         this.fundingRepository.setUser(user);
@@ -70,6 +64,27 @@ public class FundingController {
         fundingRepository.removeFundingSource(fundingSourceName);
     }
 
+    /**
+     * Makes a funding source pay out its amount on a schedule, without INCOME entries.
+     * @param fundingSourceName The funding source to schedule.
+     * @param frequencyCode d, w, m or y.
+     * @param interval Pay every interval days/weeks/months/years.
+     * @param start The first payout date.
+     * @param end The last possible payout date, or null for no end.
+     */
+    public void setRecurrence(String fundingSourceName, String frequencyCode, int interval, LocalDate start, LocalDate end) {
+        if (fundingRepository.getFundingSourceByName(fundingSourceName) == null) {
+            throw new IllegalArgumentException("Funding source not found: " + fundingSourceName);
+        }
+        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.fromCode(frequencyCode);
+        fundingRepository.setRecurrence(fundingSourceName, new RecurrenceRule(frequency, interval, start, end));
+    }
+
+    //Stops scheduled payouts for a funding source
+    public void clearRecurrence(String fundingSourceName) {
+        fundingRepository.setRecurrence(fundingSourceName, null);
+    }
+
     //Retrieves the entire catalog of funding sources
     public List<FundingSource> getAll() {
         return fundingRepository.getFundingSources();
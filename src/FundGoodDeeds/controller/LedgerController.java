@@ -3,7 +3,6 @@ package FundGoodDeeds.controller;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observer;
 
 import FundGoodDeeds.model.*;
 import FundGoodDeeds.model.AbstractLedgerEntry.EntryType;
@@ -28,13 +27,6 @@ public class LedgerController {
         
     }
 
-    //Allow the View to register as an Observer
-    public void addObserver(Observer o) {
-        if (ledgerRepository != null) {
-            this.ledgerRepository.addObserver(o);
-        }
-    }
-
     //Triggers the model to load ledger data.
     // ***FUTURE FEATURE MARKED FOR REFACTORING***
     // public void loadData() {
@@ -269,7 +261,12 @@ public class LedgerController {
         double unitCost = originalNeed.getTotal();
         double totalCost = unitCost * unitsToFulfill;
 
-        // 1. Reduce the units in the bundle
+        // 1. Reduce the units in the bundle (its private copy, if it came from the shared template)
+        String bundleName = bundle.getName();
+        bundle = needsRepository.getBundleForEdit(bundleName);
+        if (bundle == null) {
+            throw new IllegalArgumentException("Bundle not found in catalog: " + bundleName);
+        }
         int unitsRemoved = bundle.removeComponentUnits(needName, unitsToFulfill);
         
         if (unitsRemoved != unitsToFulfill) {
@@ -329,6 +326,29 @@ public class LedgerController {
         return ledgerRepository.calculateIncomeReceived(date);
     }
 
+    /**
+     * Retrieves the total income ever received from one funding source.
+     * @param sourceName The funding source name.
+     * @return The lifetime income for that source.
+     */
+    public double getLifetimeIncome(String sourceName) {
+        return ledgerRepository.getLifetimeIncome(sourceName);
+    }
+
+    /**
+     * Retrieves the income received from one funding source between two dates (inclusive).
+     * @param sourceName The funding source name.
+     * @param from The first date to include.
+     * @param to The last date to include.
+     * @return The income for that source in the range.
+     */
+    public double getIncomeBetween(String sourceName, LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Both dates are required for an income range.");
+        }
+        return ledgerRepository.getIncomeBetween(sourceName, from, to);
+    }
+
     /**
      * Deletes a specific log entry by its index in the repository's logEntries list.
      * Implements logic for Program Operations #11 and #12.
@@ -1,21 +1,31 @@
 package FundGoodDeeds.controller;
 
 import java.awt.desktop.UserSessionEvent;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observer;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import FundGoodDeeds.app.FundGoodDeedsApp;
 import FundGoodDeeds.model.CSVManager;
+import FundGoodDeeds.model.DataDirectoryWatcher;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.DatasetChange;
 import FundGoodDeeds.model.Day;
+import FundGoodDeeds.model.EventBus;
 import FundGoodDeeds.model.FundingRepository;
 import FundGoodDeeds.model.LedgerEntity;
 import FundGoodDeeds.model.LedgerRepository;
+import FundGoodDeeds.model.ModelEvent;
 import FundGoodDeeds.model.NeedsRepository;
+import FundGoodDeeds.model.StorageEngine;
 import FundGoodDeeds.model.User;
 import FundGoodDeeds.model.UserStore;
 
@@ -29,21 +39,38 @@ public class MasterController {
     // private final LedgerRepository ledgerRepository;
     // private final FundingRepository fundingRepository;
 
-    private final NeedsController needsController;
-    private final LedgerController ledgerController;
-    private final FundingController fundingController;
+    private final SessionManager sessions;
     private final UserStore users;
+    // The session this window works on; replaced by the user's own session on login
+    private UserSession session;
+    private NeedsController needsController;
+    private LedgerController ledgerController;
+    private FundingController fundingController;
     private LocalDate selectedDate = LocalDate.now();
+    private volatile SaveReport lastSaveReport;
+    private DataDirectoryWatcher watcher;
 
     private JFrame GUI;
-    private final List<Observer> views = new ArrayList<>();
+    // Views listening through this controller; they follow it to the session it is bound to
+    private final List<EventBus.Listener> listeners = new ArrayList<>();
 
     //Dependency Injection via constructor
-    public MasterController(NeedsController needsController, LedgerController ledgerController, FundingController fundingController,UserStore users) {
-        this.needsController = needsController;
-        this.ledgerController = ledgerController;
-        this.fundingController = fundingController;
-        this.users = users;
+    public MasterController(SessionManager sessions, UserSession session) {
+        this.sessions = sessions;
+        this.users = sessions.getUsers();
+        bind(session);
+    }
+
+    //Points this controller (and so the View) at a session's controllers
+    private void bind(UserSession session) {
+        for (EventBus.Listener listener : listeners) {
+            this.session.getEvents().unsubscribe(listener);
+            session.getEvents().subscribe(listener);
+        }
+        this.session = session;
+        this.needsController = session.getNeedsController();
+        this.ledgerController = session.getLedgerController();
+        this.fundingController = session.getFundingController();
     }
 
     //Allow the GUI to be registered in the view list
@@ -52,33 +79,194 @@ public class MasterController {
         GUI = gui;
     }
 
-    //Allow the View/App to register as an Observer
-    public void registerObservers(Observer o) {
-        this.needsController.addObserver(o);
-        this.ledgerController.addObserver(o);
-        this.fundingController.addObserver(o);
-        this.views.add(o);
+    //Allow the View/App to listen for changes to the session's data and the selected date
+    public void addListener(EventBus.Listener listener) {
+        session.getEvents().subscribe(listener);
+        this.listeners.add(listener);
     }
 
     //Loading all data View's startup() function
     public void loadAll() {
-        needsController.loadData();
-        fundingController.loadData();
-        ledgerController.loadData();
+        session.load();
+
+        System.out.println("CSV reloaded (" + session.getLastLoadTimes() + ")");
+    }
+
+    /**
+     * Loads the session's data if this is its first use. A session kept in the
+     * SessionManager's pool is already loaded and only picks up files changed on
+     * disk since it was last used.
+     */
+    public void loadIfNeeded() {
+        if (session.ensureLoaded()) {
+            System.out.println("CSV loaded (" + session.getLastLoadTimes() + ")");
+            sessions.evictIdle(); //The pool just grew by this session's data
+        } else {
+            reloadChanged(false);
+            session.publishReloaded(); //Views added since the session was loaded have not seen its data
+        }
+    }
+
+    //Counters of the session pool this controller logs in through
+    public SessionManager.PoolStats getPoolStats() {
+        return sessions.getPoolStats();
+    }
+
+    /**
+     * Reloads only what changed on disk since it was last loaded or saved. Unchanged
+     * files are skipped, rows appended to the ledger are added without re-reading
+     * the rest, and any other change reloads just that repository.
+     * @param discardUnsaved true for an explicit reload, which also resets repositories
+     *        with unsaved edits (as loadAll does); false for the file watcher, which
+     *        never overwrites unsaved edits.
+     * @return A one-line summary, e.g. "needs.csv unchanged, funding.csv unchanged, log.csv +3 rows"
+     */
+    public String reloadChanged(boolean discardUnsaved) {
+        NeedsRepository needs = needsController.getNeedsRepository();
+        FundingRepository funding = fundingController.getFundingRepository();
+        LedgerRepository ledger = ledgerController.getLedgerRepository();
+        StorageEngine storage = ledger.manager;
+        StringJoiner summary = new StringJoiner(", ");
+
+        boolean needsReloaded = reloadIfChanged(summary, storage, Dataset.NEEDS, needs.isDirty(), discardUnsaved, needsController::loadData);
+        reloadIfChanged(summary, storage, Dataset.FUNDING, funding.isDirty(), discardUnsaved, fundingController::loadData);
+
+        String ledgerName = storage.locationOf(Dataset.LEDGER);
+        DatasetChange change = storage.changeSince(Dataset.LEDGER);
+        boolean keepEdits = ledger.isDirty() && !discardUnsaved;
+        if (needsReloaded && !keepEdits) {
+            //NEED rows are priced from the catalog when read, so re-read them against the new one
+            ledgerController.loadData();
+            summary.add(ledgerName + " reloaded");
+        } else if (change.kind() == DatasetChange.Kind.APPENDED && !(ledger.isDirty() && discardUnsaved)) {
+            int added = ledger.applyAppendedRows(change.appendedRows());
+            summary.add(ledgerName + " +" + added + " rows");
+        } else if (change.kind() != DatasetChange.Kind.UNCHANGED || (ledger.isDirty() && discardUnsaved)) {
+            summary.add(reload(ledgerName, keepEdits, ledgerController::loadData));
+        } else {
+            summary.add(ledgerName + " unchanged");
+        }
 
-        System.out.println("CSV reloaded");
+        System.out.println("Reload: " + summary);
+        return summary.toString();
     }
 
-    //Saving all data the View's saveAll() function
-    public void saveAll() {
+    // Reloads one repository if its file changed (or it has edits to discard); true if it was reloaded
+    private boolean reloadIfChanged(StringJoiner summary, StorageEngine storage, Dataset dataset, boolean dirty, boolean discardUnsaved, Runnable load) {
+        String name = storage.locationOf(dataset);
+        boolean changed = storage.changeSince(dataset).kind() != DatasetChange.Kind.UNCHANGED;
+        if (!changed && !(dirty && discardUnsaved)) {
+            summary.add(name + " unchanged");
+            return false;
+        }
+        String outcome = reload(name, dirty && !discardUnsaved, load);
+        summary.add(outcome);
+        return outcome.endsWith("reloaded");
+    }
+
+    private String reload(String name, boolean keepEdits, Runnable load) {
+        if (keepEdits) {
+            System.err.println("Warning: " + name + " changed on disk, but there are unsaved edits; keeping them. Saving will overwrite the file.");
+            return name + " changed on disk (kept unsaved edits)";
+        }
+        load.run();
+        return name + " reloaded";
+    }
+
+    /**
+     * Starts applying outside changes to the data files automatically, through
+     * reloadChanged(false) on the Swing EDT. Only the CSV engine keeps its data in
+     * watchable files; with other engines this does nothing.
+     */
+    public void watchDataFiles() {
+        if (!(ledgerController.getLedgerRepository().manager instanceof CSVManager csv)) {
+            return;
+        }
+        try {
+            this.watcher = new DataDirectoryWatcher(csv.getDataPath(), () -> SwingUtilities.invokeLater(() -> reloadChanged(false)));
+        } catch (IOException e) {
+            System.err.println("Warning: Cannot watch the data directory; use Reload to pick up outside changes. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves every repository with unsaved changes; files whose data has not changed
+     * since the last load or save are skipped entirely.
+     * @return Which files were written and how long each took.
+     */
+    public SaveReport saveAll() {
+        SaveReport report = new SaveReport();
         try {
-            needsController.saveNeeds();
-            ledgerController.saveLog();
-            fundingController.saveData();
+            LedgerRepository ledger = ledgerController.getLedgerRepository();
+            StorageEngine storage = ledger.manager;
+            saveIfDirty(report, storage.locationOf(Dataset.NEEDS), needsController.getNeedsRepository().isDirty(), needsController::saveNeeds);
+            saveIfDirty(report, storage.locationOf(Dataset.LEDGER), ledger.isDirty(), ledgerController::saveLog);
+            saveIfDirty(report, storage.locationOf(Dataset.FUNDING), fundingController.getFundingRepository().isDirty(), fundingController::saveData);
         } catch (RuntimeException e) {
             //Re-throw with a more general message to the View/App
             throw new RuntimeException("One or more data save operations failed: " + e.getMessage(), e);
         }
+        this.lastSaveReport = report;
+        System.out.println("Save: " + report);
+        return report;
+    }
+
+    private void saveIfDirty(SaveReport report, String file, boolean dirty, Runnable save) {
+        if (!dirty) {
+            report.skipped(file);
+            return;
+        }
+        long start = System.nanoTime();
+        save.run();
+        report.written(file, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Like saveAll(), but hands the dirty files to the write-behind service and returns
+     * at once, so the Swing EDT never waits on the disk. Each file's data is captured
+     * before this returns.
+     * @return Completes with the report once every queued file is on disk, or
+     *         exceptionally if any write failed (those repositories stay dirty).
+     */
+    public CompletableFuture<SaveReport> saveAllAsync() {
+        NeedsRepository needs = needsController.getNeedsRepository();
+        LedgerRepository ledger = ledgerController.getLedgerRepository();
+        FundingRepository funding = fundingController.getFundingRepository();
+
+        List<String> files = List.of(ledger.manager.locationOf(Dataset.NEEDS),
+                ledger.manager.locationOf(Dataset.LEDGER), ledger.manager.locationOf(Dataset.FUNDING));
+        List<CompletableFuture<Long>> timings = List.of(
+                queueIfDirty(needs.isDirty(), needs::saveNeedsCatalogAsync),
+                queueIfDirty(ledger.isDirty(), ledger::saveLogEntriesAsync),
+                queueIfDirty(funding.isDirty(), funding::saveFundsCatalogAsync));
+
+        return CompletableFuture.allOf(timings.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            SaveReport report = new SaveReport();
+            for (int i = 0; i < files.size(); i++) {
+                Long millis = timings.get(i).join();
+                if (millis == null) {
+                    report.skipped(files.get(i));
+                } else {
+                    report.written(files.get(i), millis);
+                }
+            }
+            this.lastSaveReport = report;
+            return report;
+        });
+    }
+
+    //Completes with the milliseconds from queueing to on-disk, or null if the file was clean
+    private CompletableFuture<Long> queueIfDirty(boolean dirty, Supplier<CompletableFuture<Void>> save) {
+        if (!dirty) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return save.get().thenApply(done -> (System.nanoTime() - start) / 1_000_000);
+    }
+
+    //The outcome of the most recent saveAll(), or null if nothing has been saved yet
+    public SaveReport getLastSaveReport() {
+        return lastSaveReport;
     }
 
     //Accessors for sub-controllers (to be used by View)
@@ -100,13 +288,12 @@ public class MasterController {
 
     public void setSelectedDate(LocalDate date) {
         this.selectedDate = date;
-        notifyViews();
+        session.getEvents().publish(new ModelEvent.DateSelected(date));
     }
 
     public void resetSelectedDateToToday() {
         LocalDate today = LocalDate.now();
         setSelectedDate(today);
-        notifyViews();
     }
     
     public Day getDaySummary(LocalDate date) {
@@ -146,22 +333,67 @@ public class MasterController {
 
     }
 
+    /**
+     * Logs the user in and switches this controller to their own session, closing the
+     * shared one. Listeners added before the login move to the user's session.
+     * @return false if the user name or password is wrong, or their data could not be opened.
+     */
     public boolean loginSuccessful(String userName, String password)
     {
-        if(users.logIn(userName, password))
+        try
         {
-            User currentUser = users.getUser(userName);
-            fundingController.setUser(currentUser);
-            needsController.setUser(currentUser);
-            ledgerController.setUser(currentUser);
+            UserSession userSession = sessions.logIn(userName, password);
+            if (userSession == null)
+            {
+                return false;
+            }
+            UserSession previous = this.session;
+            bind(userSession);
+            sessions.close(previous);
             return true;
         }
-        return false;
+        catch (IOException e)
+        {
+            System.err.println("Error: Could not open the data of " + userName + ": " + e.getMessage());
+            return false;
+        }
     }
 
-    public void restart(String choice)
+    //The logged-in user, or null before login (and in the console app)
+    public User getCurrentUser() {
+        return session.getUser();
+    }
+
+    /**
+     * Saves unsaved changes, stops watching the data files and closes the session.
+     * This controller must not be used afterwards.
+     */
+    public void endSession()
     {
         this.saveAll();
+        if (watcher != null)
+        {
+            try
+            {
+                watcher.close();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error: " + e.getMessage());
+            }
+        }
+        //A pooled session outlives this window; do not leave its views listening
+        for (EventBus.Listener listener : listeners)
+        {
+            session.getEvents().unsubscribe(listener);
+        }
+        listeners.clear();
+        sessions.close(session);
+    }
+
+    public void restart(String choice)
+    {
+        endSession();
         try
         {
             GUI.dispose();
@@ -206,11 +438,4 @@ public class MasterController {
         
         return netCosts > threshold;
     }
-
-    private void notifyViews() {
-        for (Observer view : views) {
-            // Note: The null arguments are standard for the java.util.Observer pattern
-            view.update(null, null); 
-        }
-    }
 }
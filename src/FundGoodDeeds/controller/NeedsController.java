@@ -1,10 +1,15 @@
 package FundGoodDeeds.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.Observer;
+import java.util.stream.Stream;
 
 import FundGoodDeeds.model.Bundle;
+import FundGoodDeeds.model.CatalogImportResult;
 import FundGoodDeeds.model.LedgerRepository;
 import FundGoodDeeds.model.Need;
 import FundGoodDeeds.model.NeedComponent;
@@ -19,13 +24,6 @@ public class NeedsController {
 		this.needsRepository = needsRepository;
 	}
 
-    //Allow the View to register as an Observer
-    public void addObserver(Observer o) {
-        if (needsRepository != null) {
-            this.needsRepository.addObserver(o);
-        }
-    }
-
 	//Triggers the model to load all need and bundle data.
 	//Note to self:
 	//     -  This is for sequence diagram #1
@@ -77,6 +75,29 @@ public class NeedsController {
         needsRepository.appendNeed(newBundle);
     }
 
+    /**
+     * Bulk-imports a catalog file in the needs.csv format without loading it into memory.
+     * Listeners get one Reloaded event when the import finishes.
+     * @param path Path to the file to import.
+     * @param progress Receives the number of rows read after each batch; may be null.
+     * @return Counts of what was added, skipped and rejected.
+     */
+    public CatalogImportResult importCatalogFile(String path, NeedsRepository.ImportProgress progress) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Import file path cannot be empty.");
+        }
+        try (Stream<String> rows = Files.lines(Path.of(path.trim()))) {
+            return needsRepository.importCatalog(rows, progress);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Import failed: " + e.getMessage(), e);
+        }
+    }
+
+    //Bulk-imports rows in the needs.csv format supplied by the caller, e.g. from another system
+    public CatalogImportResult importCatalog(Stream<String> rows, NeedsRepository.ImportProgress progress) {
+        return needsRepository.importCatalog(rows, progress);
+    }
+
     //--- Display Methods for ConsoleView ---
     //Retrieves the entire catalog of Needs and Bundles.
     public List<NeedComponent> getNeedsCatalog() {
@@ -95,6 +116,11 @@ public class NeedsController {
         return needsRepository.getNeedByName(name);
     }
 
+    //Type-ahead lookup for partial or misspelled Need/Bundle names
+    public List<NeedComponent> searchNeeds(String query, int limit) {
+        return needsRepository.searchCatalog(query, limit);
+    }
+
     public NeedsRepository getNeedsRepository() {
         return this.needsRepository;
     }
@@ -124,19 +150,21 @@ public class NeedsController {
      * @param quantity The number of units to add.
      */
     public void addComponentToBundle(String bundleName, String componentName, int quantity) {
-        NeedComponent bundleComponent = needsRepository.getNeedByName(bundleName);
-        if (!(bundleComponent instanceof Bundle)) {
+        NeedComponent componentToAdd = needsRepository.getNeedByName(componentName);
+        if (!(needsRepository.getNeedByName(bundleName) instanceof Bundle)) {
             throw new IllegalArgumentException("Bundle not found: " + bundleName);
         }
-        
-        NeedComponent componentToAdd = needsRepository.getNeedByName(componentName);
         if (componentToAdd == null) {
             throw new IllegalArgumentException("Component Need or Bundle not found in catalog: " + componentName);
         }
 
-        Bundle bundle = (Bundle) bundleComponent;
+        // A private copy if the bundle came from the shared template
+        Bundle bundle = needsRepository.getBundleForEdit(bundleName);
+        if (componentToAdd.equals(bundle) || (componentToAdd instanceof Bundle inner && inner.containsComponent(bundle))) {
+            throw new IllegalArgumentException("Adding '" + componentName + "' to '" + bundleName + "' would make the bundle contain itself.");
+        }
         bundle.addComponentUnits(componentToAdd, quantity); 
-        needsRepository.updateBundle(bundle); // Notify observers
+        needsRepository.updateBundle(bundle); // Publishes BundleChanged
     }
 
     /**
@@ -147,19 +175,18 @@ public class NeedsController {
      */
     public int removeComponentFromBundle(String bundleName, String componentName, int quantity) {
     // public void removeComponentFromBundle(String bundleName, String componentName, int quantity) {
-        NeedComponent bundleComponent = needsRepository.getNeedByName(bundleName);
-        if (!(bundleComponent instanceof Bundle)) {
+        Bundle bundle = needsRepository.getBundleForEdit(bundleName);
+        if (bundle == null) {
             throw new IllegalArgumentException("Bundle not found: " + bundleName);
         }
         
-        Bundle bundle = (Bundle) bundleComponent;
         int unitsRemoved = bundle.removeComponentUnits(componentName, quantity); 
         
         if (unitsRemoved == 0 && bundle.getComponentCount(componentName) > 0) {
             throw new IllegalArgumentException("Could not remove " + quantity + " units of " + componentName + ". Not enough units.");
         }
 
-        needsRepository.updateBundle(bundle); // Notify observers
+        needsRepository.updateBundle(bundle); // Publishes BundleChanged
         return unitsRemoved;
     }
 
@@ -171,16 +198,15 @@ public class NeedsController {
      * @param newQuantity The new total quantity for the component.
      */
     public void updateBundleComponentUnits(String bundleName, String componentName, int newQuantity) {
-        NeedComponent bundleComponent = needsRepository.getNeedByName(bundleName);
-        if (!(bundleComponent instanceof Bundle)) {
+        Bundle bundle = needsRepository.getBundleForEdit(bundleName);
+        if (bundle == null) {
             throw new IllegalArgumentException("Bundle not found: " + bundleName);
         }
 
-        Bundle bundle = (Bundle) bundleComponent;
         if (!bundle.updateComponentUnits(componentName, newQuantity)) {
             throw new IllegalArgumentException("Component not found in bundle: " + componentName);
         }
         
-        needsRepository.updateBundle(bundle); // Notify observers
+        needsRepository.updateBundle(bundle); // Publishes BundleChanged
     }
 }
@@ -0,0 +1,54 @@
+package FundGoodDeeds.controller;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * What one MasterController.saveAll() call did: for each CSV file, whether it was
+ * rewritten or skipped because nothing had changed, and how long the write took.
+ */
+public class SaveReport {
+    public record FileResult(String file, boolean written, long millis) {}
+
+    private final List<FileResult> files = new ArrayList<>();
+    private final LocalDateTime savedAt = LocalDateTime.now();
+
+    void written(String file, long millis) {
+        files.add(new FileResult(file, true, millis));
+    }
+
+    void skipped(String file) {
+        files.add(new FileResult(file, false, 0));
+    }
+
+    public List<FileResult> getFiles() {
+        return List.copyOf(files);
+    }
+
+    public LocalDateTime getSavedAt() {
+        return savedAt;
+    }
+
+    // true if at least one file had changes and was rewritten
+    public boolean anyWritten() {
+        return files.stream().anyMatch(FileResult::written);
+    }
+
+    public long getTotalMillis() {
+        return files.stream().mapToLong(FileResult::millis).sum();
+    }
+
+    /**
+     * One-line summary, e.g. "needs.csv saved (4 ms), log.csv unchanged, funding.csv unchanged"
+     */
+    @Override
+    public String toString() {
+        StringJoiner summary = new StringJoiner(", ");
+        for (FileResult file : files) {
+            summary.add(file.written() ? file.file() + " saved (" + file.millis() + " ms)" : file.file() + " unchanged");
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,313 @@
+package FundGoodDeeds.controller;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import FundGoodDeeds.model.CatalogTemplate;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.StorageEngine;
+import FundGoodDeeds.model.StorageEngines;
+import FundGoodDeeds.model.User;
+import FundGoodDeeds.model.UserStore;
+
+/**
+ * Opens and closes UserSessions for one process. The user list is the only state
+ * sessions share; each session gets a storage engine of its own, so any number of
+ * users can be logged in at once without their data crossing over.
+ *
+ * Logging in as a user who already has a session returns that session, so two
+ * windows of the same user never hold two diverging copies of the same files.
+ *
+ * Sessions are pooled by user name. A session whose last login closed it stays
+ * loaded, so the user's next login is a hit and skips the load. Idle sessions are
+ * evicted least recently used first, after saving any unsaved changes, whenever the
+ * pool's approximate heap footprint (see UserSession.approximateBytes) is over the
+ * budget. Sessions in use are never evicted, so the budget can be exceeded while
+ * they need it. The budget is set with -Dfundgooddeeds.sessions.budgetMB (default 256).
+ *
+ * The shared needs catalog is loaded once as a CatalogTemplate. Users' catalogs are
+ * loaded over it, so entries a user has not changed are held once for all users.
+ */
+public class SessionManager {
+    public static final String BUDGET_PROPERTY = "fundgooddeeds.sessions.budgetMB";
+    private static final long DEFAULT_BUDGET_MB = 256;
+
+    private final String ledgerName;
+    private final long writeBehindDelayMillis;
+    private final long budgetBytes;
+    private final UserStore users;
+    private final CatalogTemplate template;
+
+    // Pooled sessions by lower-case user name (user names are case-insensitive), least recently used first; guarded by this
+    private final Map<String, UserSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    // Keys of sessions taken out of the pool that are still being saved and closed; guarded by this
+    private final Set<String> evicting = new HashSet<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Pool counters at one moment.
+     * @param hits Logins that found their session in the pool.
+     * @param misses Logins that had to open a session.
+     * @param evictions Idle sessions closed to stay within the budget.
+     * @param resident Sessions in the pool, in use or idle.
+     * @param inUse Sessions with at least one login.
+     * @param residentBytes Approximate heap held by the pooled sessions.
+     * @param budgetBytes The memory budget.
+     */
+    public record PoolStats(long hits, long misses, long evictions, int resident, int inUse, long residentBytes, long budgetBytes) {
+        @Override
+        public String toString() {
+            return String.format("%d sessions (%d in use), ~%d of %d KiB; %d hits, %d misses, %d evictions",
+                    resident, inUse, residentBytes / 1024, budgetBytes / 1024, hits, misses, evictions);
+        }
+    }
+
+    /**
+     * @param ledgerName The ledger file/table every session uses (e.g. "log.csv").
+     * @param writeBehindDelayMillis How long CSV saves may wait on a session's background writer.
+     * @throws IOException If the configured storage engine could not be opened for the user list.
+     */
+    public SessionManager(String ledgerName, long writeBehindDelayMillis) throws IOException
+    {
+        this(ledgerName, writeBehindDelayMillis, Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET_MB) * 1024 * 1024);
+    }
+
+    /**
+     * @param budgetBytes The approximate heap idle sessions may keep; 0 closes each session when its last login ends.
+     */
+    public SessionManager(String ledgerName, long writeBehindDelayMillis, long budgetBytes) throws IOException
+    {
+        this.ledgerName = ledgerName;
+        this.writeBehindDelayMillis = writeBehindDelayMillis;
+        this.budgetBytes = budgetBytes;
+        StorageEngine shared = StorageEngines.fromConfig(ledgerName);
+        this.users = new UserStore(shared);
+        this.template = CatalogTemplate.of(shared.load(Dataset.NEEDS));
+        System.out.println("Sessions: sharing " + template.size() + " catalog entries between users");
+    }
+
+    public UserStore getUsers()
+    {
+        return users;
+    }
+
+    // A session on the shared data directory: the console app, and the Swing app before login
+    public UserSession openShared() throws IOException
+    {
+        // Not loaded over the template: this is the data the template was made from
+        return UserSession.open(null, ledgerName, writeBehindDelayMillis, null);
+    }
+
+    /**
+     * Checks the password and returns the user's session from the pool, opening it if
+     * needed. The session's data is loaded on first use (UserSession.ensureLoaded).
+     * @return The session, or null if the user name or password is wrong.
+     * @throws IOException If the user's storage could not be opened.
+     */
+    public UserSession logIn(String userName, String password) throws IOException
+    {
+        // Checked outside the lock: bcrypt is slow on purpose and must not hold up other logins
+        if (!users.logIn(userName, password))
+        {
+            return null;
+        }
+        User user = users.getUser(userName);
+        String key = keyOf(user);
+        UserSession session;
+        synchronized (this)
+        {
+            session = pooled(key);
+            if (session != null)
+            {
+                hits++;
+                session.openCount++;
+            }
+        }
+        if (session == null)
+        {
+            // Opened outside the lock, so other users' logins and closes do not wait on this user's storage
+            UserSession opened = UserSession.open(user, ledgerName, writeBehindDelayMillis, template);
+            try
+            {
+                synchronized (this)
+                {
+                    session = pooled(key);
+                    if (session == null)
+                    {
+                        misses++;
+                        session = opened;
+                        sessions.put(key, session);
+                        opened = null;
+                    }
+                    else
+                    {
+                        // Another login of the same user opened it first; use theirs
+                        hits++;
+                    }
+                    session.openCount++;
+                }
+            }
+            finally
+            {
+                if (opened != null)
+                {
+                    opened.close();
+                }
+            }
+        }
+        evictIdle();
+        return session;
+    }
+
+    // The pooled session for the key, or null; waits out an eviction of it so its files are saved before they are opened again
+    private UserSession pooled(String key) throws IOException
+    {
+        while (evicting.contains(key))
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while " + key + "'s session was being evicted");
+            }
+        }
+        return sessions.get(key);
+    }
+
+    /**
+     * Gives up one login's use of the session. A user's session then stays in the pool
+     * until it is evicted; the shared session is closed at once. Save unsaved edits
+     * first (MasterController.endSession does); eviction only saves as a last resort.
+     */
+    public void close(UserSession session)
+    {
+        if (session.getUser() == null)
+        {
+            session.close();
+            return;
+        }
+        synchronized (this)
+        {
+            session.openCount--;
+        }
+        evictIdle();
+    }
+
+    /**
+     * Evicts idle sessions, least recently used first, until the pool is within the
+     * budget. Runs on every login and close; call it after loading data outside those.
+     * A session being evicted is out of the pool; a login of its user waits until it
+     * is saved and closed, or put back if the save failed.
+     * @return How many sessions were evicted.
+     */
+    public int evictIdle()
+    {
+        // Victims are picked under the lock and taken out of the pool; saving and closing them happens outside it
+        List<UserSession> victims = new ArrayList<>();
+        synchronized (this)
+        {
+            long residentBytes = residentBytes();
+            Iterator<UserSession> eldestFirst = new ArrayList<>(sessions.values()).iterator();
+            while (residentBytes > budgetBytes && eldestFirst.hasNext())
+            {
+                UserSession session = eldestFirst.next();
+                if (session.openCount > 0)
+                {
+                    continue;
+                }
+                String key = keyOf(session.getUser());
+                sessions.remove(key);
+                evicting.add(key);
+                victims.add(session);
+                residentBytes -= session.approximateBytes();
+            }
+        }
+
+        int evicted = 0;
+        for (UserSession session : victims)
+        {
+            long bytes = session.approximateBytes();
+            boolean saved = true;
+            try
+            {
+                session.saveDirty();
+            }
+            catch (RuntimeException e)
+            {
+                // Keep it rather than lose the edits; it is tried again on a later eviction
+                System.err.println("Error: Could not save " + session.describe() + " before evicting it: " + e.getMessage());
+                saved = false;
+            }
+            if (saved)
+            {
+                session.close();
+            }
+            synchronized (this)
+            {
+                String key = keyOf(session.getUser());
+                evicting.remove(key);
+                if (saved)
+                {
+                    evictions++;
+                }
+                else
+                {
+                    sessions.put(key, session);
+                }
+                notifyAll();
+            }
+            if (saved)
+            {
+                evicted++;
+                System.out.println("Sessions: evicted " + session.describe() + " (~" + bytes / 1024 + " KiB)");
+            }
+        }
+        return evicted;
+    }
+
+    private static String keyOf(User user)
+    {
+        return user.getUsername().toLowerCase();
+    }
+
+    private long residentBytes()
+    {
+        long total = 0;
+        for (UserSession session : sessions.values())
+        {
+            total += session.approximateBytes();
+        }
+        return total;
+    }
+
+    // How many users are logged in (sessions with at least one login)
+    public synchronized int openSessions()
+    {
+        int inUse = 0;
+        for (UserSession session : sessions.values())
+        {
+            if (session.openCount > 0)
+            {
+                inUse++;
+            }
+        }
+        return inUse;
+    }
+
+    public synchronized PoolStats getPoolStats()
+    {
+        return new PoolStats(hits, misses, evictions, sessions.size(), openSessions(), residentBytes(), budgetBytes);
+    }
+}
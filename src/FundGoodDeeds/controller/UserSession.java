@@ -0,0 +1,302 @@
+package FundGoodDeeds.controller;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import FundGoodDeeds.model.CSVManager;
+import FundGoodDeeds.model.CatalogTemplate;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.EventBus;
+import FundGoodDeeds.model.FundingRepository;
+import FundGoodDeeds.model.LedgerRepository;
+import FundGoodDeeds.model.LedgerRepository.ParsedLog;
+import FundGoodDeeds.model.ModelEvent;
+import FundGoodDeeds.model.NeedsRepository;
+import FundGoodDeeds.model.PersistenceService;
+import FundGoodDeeds.model.StorageEngine;
+import FundGoodDeeds.model.StorageEngines;
+import FundGoodDeeds.model.User;
+
+/**
+ * Everything one user works with: their own StorageEngine, pointed at their data
+ * once when the session opens, and their own repositories and controllers on top
+ * of it. Nothing here is shared with another session, so a login never re-points
+ * somebody else's repositories. Sessions are opened by SessionManager.
+ */
+public class UserSession {
+    // Approximate heap per loaded item, measured (JDK 21) on a 100k-entry ledger and a 20k-item catalog
+    private static final long LEDGER_ENTRY_BYTES = 80;
+    private static final long CATALOG_ITEM_BYTES = 900;
+    private static final long FUNDING_SOURCE_BYTES = 150;
+    // The engine, writer and controllers of a session, loaded or not
+    private static final long SESSION_BYTES = 16 * 1024;
+
+    // Runs the independent load phases; daemon threads, so an unfinished load never keeps the app alive
+    private static final ExecutorService LOADERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "session-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final User user;
+    private final StorageEngine storage;
+    private final PersistenceService persistence;
+    // The repositories of this session publish their changes here
+    private final EventBus events = new EventBus();
+
+    private final NeedsController needsController;
+    private final LedgerController ledgerController;
+    private final FundingController fundingController;
+
+    // Guarded by the SessionManager: logins sharing this session that have not closed it yet
+    int openCount;
+    // Volatile so the SessionManager can size the session without waiting for a load to finish
+    private volatile boolean loaded;
+    private LoadTimes lastLoadTimes;
+
+    /**
+     * How long each phase of the last load took. The catalog, funding and ledger-read
+     * phases run at the same time, so total is about the slowest of them plus pricing.
+     * @param needsMillis Loading the needs catalog.
+     * @param fundingMillis Loading the funding sources.
+     * @param ledgerReadMillis Reading and parsing the ledger rows.
+     * @param pricingMillis Pricing the ledger rows from both catalogs and indexing them.
+     * @param totalMillis The whole load, until the views were told.
+     */
+    public record LoadTimes(long needsMillis, long fundingMillis, long ledgerReadMillis, long pricingMillis, long totalMillis) {
+        @Override
+        public String toString() {
+            return String.format("needs %d ms, funding %d ms, ledger read %d ms, pricing %d ms; %d ms total",
+                    needsMillis, fundingMillis, ledgerReadMillis, pricingMillis, totalMillis);
+        }
+    }
+
+    /**
+     * @param user The user whose data to open, or null for the shared data directory.
+     * @param ledgerName The ledger file/table to use (e.g. "log.csv").
+     * @param writeBehindDelayMillis How long CSV saves may wait on the background writer.
+     * @param template The shared catalog the user's needs are loaded over, or null.
+     */
+    static UserSession open(User user, String ledgerName, long writeBehindDelayMillis, CatalogTemplate template) throws IOException
+    {
+        StorageEngine storage = StorageEngines.fromConfig(ledgerName);
+        if (user != null)
+        {
+            storage.setUser(user);
+        }
+        PersistenceService persistence = null;
+        if (storage instanceof CSVManager csvManager)
+        {
+            // Saves from the GUI are written on a background thread, at most this many ms later
+            persistence = new PersistenceService(csvManager, writeBehindDelayMillis);
+            csvManager.setWriteBehind(persistence);
+        }
+        return new UserSession(user, storage, persistence, template);
+    }
+
+    private UserSession(User user, StorageEngine storage, PersistenceService persistence, CatalogTemplate template)
+    {
+        this.user = user;
+        this.storage = storage;
+        this.persistence = persistence;
+
+        NeedsRepository needsRepo = new NeedsRepository(storage, events);
+        needsRepo.setTemplate(template);
+        FundingRepository fundingRepo = new FundingRepository(storage, events);
+        LedgerRepository ledgerRepo = new LedgerRepository(storage, needsRepo, fundingRepo, events);
+
+        this.needsController = new NeedsController(needsRepo);
+        this.ledgerController = new LedgerController(ledgerRepo, needsRepo);
+        this.fundingController = new FundingController(fundingRepo);
+    }
+
+    //The logged-in user, or null for the shared session
+    public User getUser() {
+        return user;
+    }
+
+    public StorageEngine getStorage() {
+        return storage;
+    }
+
+    //The background writer for CSV saves, or null if the engine writes directly
+    public PersistenceService getPersistence() {
+        return persistence;
+    }
+
+    //Where this session's repositories publish their changes
+    public EventBus getEvents() {
+        return events;
+    }
+
+    public NeedsController getNeedsController() {
+        return needsController;
+    }
+
+    public LedgerController getLedgerController() {
+        return ledgerController;
+    }
+
+    public FundingController getFundingController() {
+        return fundingController;
+    }
+
+    /**
+     * Loads the repositories on first use; later calls do nothing.
+     * @return true if this call loaded them.
+     */
+    public synchronized boolean ensureLoaded()
+    {
+        if (loaded)
+        {
+            return false;
+        }
+        load();
+        return true;
+    }
+
+    /**
+     * (Re)loads every repository from storage, discarding unsaved edits.
+     *
+     * The needs catalog and the funding sources do not depend on each other, and the
+     * ledger rows can be read and parsed without either, so those three run at once
+     * on loader threads. Only pricing the ledger rows waits for both catalogs. The
+     * Reloaded events are published afterwards, on this thread, in the order needs,
+     * funding, ledger. Each phase is timed (see getLastLoadTimes).
+     * @throws RuntimeException If a phase failed; the session then counts as not loaded.
+     */
+    public synchronized void load()
+    {
+        long start = System.nanoTime();
+        NeedsRepository needs = needsController.getNeedsRepository();
+        FundingRepository funding = fundingController.getFundingRepository();
+        LedgerRepository ledger = ledgerController.getLedgerRepository();
+
+        loaded = false;
+        long[] needsNanos = new long[1];
+        long[] fundingNanos = new long[1];
+        long[] ledgerReadNanos = new long[1];
+        CompletableFuture<Void> needsLoad = CompletableFuture.runAsync(() -> needsNanos[0] = timed(needs::loadNeedsQuietly), LOADERS);
+        CompletableFuture<Void> fundingLoad = CompletableFuture.runAsync(() -> fundingNanos[0] = timed(funding::loadFundsQuietly), LOADERS);
+        CompletableFuture<ParsedLog> ledgerRead = CompletableFuture.supplyAsync(() -> {
+            long phaseStart = System.nanoTime();
+            ParsedLog log = ledger.readLog();
+            ledgerReadNanos[0] = System.nanoTime() - phaseStart;
+            return log;
+        }, LOADERS);
+        try
+        {
+            // Wait for all three even if one fails, so none is still writing a repository when this returns
+            CompletableFuture.allOf(needsLoad, fundingLoad, ledgerRead).join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+
+        long pricingNanos = timed(() -> ledger.loadLogQuietly(ledgerRead.join()));
+
+        publishReloaded();
+        lastLoadTimes = new LoadTimes(millis(needsNanos[0]), millis(fundingNanos[0]), millis(ledgerReadNanos[0]),
+                millis(pricingNanos), millis(System.nanoTime() - start));
+        loaded = true;
+    }
+
+    /**
+     * Tells the listeners every dataset was (re)loaded, so views subscribed after the
+     * load (e.g. to a session kept in the pool) show the current data.
+     */
+    public void publishReloaded()
+    {
+        events.publish(new ModelEvent.Reloaded(Dataset.NEEDS));
+        events.publish(new ModelEvent.Reloaded(Dataset.FUNDING));
+        events.publish(new ModelEvent.Reloaded(Dataset.LEDGER));
+    }
+
+    private static long timed(Runnable phase)
+    {
+        long start = System.nanoTime();
+        phase.run();
+        return System.nanoTime() - start;
+    }
+
+    private static long millis(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    // Phase times of the last load, or null if the session was never loaded
+    public synchronized LoadTimes getLastLoadTimes()
+    {
+        return lastLoadTimes;
+    }
+
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    // Rough heap held by the session, for the SessionManager's memory budget (shared template entries are not counted)
+    public long approximateBytes()
+    {
+        if (!isLoaded())
+        {
+            return SESSION_BYTES;
+        }
+        return SESSION_BYTES
+                + ledgerController.getLedgerRepository().getEntryCount() * LEDGER_ENTRY_BYTES
+                + needsController.getNeedsRepository().getPrivateEntryCount() * CATALOG_ITEM_BYTES
+                + fundingController.getFundingRepository().getFundingSources().size() * FUNDING_SOURCE_BYTES;
+    }
+
+    /**
+     * Saves whichever repositories have unsaved changes.
+     * @throws RuntimeException If a save failed; that repository stays dirty.
+     */
+    void saveDirty()
+    {
+        if (needsController.getNeedsRepository().isDirty())
+        {
+            needsController.saveNeeds();
+        }
+        if (ledgerController.getLedgerRepository().isDirty())
+        {
+            ledgerController.saveLog();
+        }
+        if (fundingController.getFundingRepository().isDirty())
+        {
+            fundingController.saveData();
+        }
+    }
+
+    // Writes out queued saves and releases the storage; unsaved repository edits are not saved here
+    void close()
+    {
+        if (persistence != null)
+        {
+            persistence.shutdown();
+        }
+        try
+        {
+            storage.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error: Could not close the storage for " + describe() + ": " + e.getMessage());
+        }
+    }
+
+    // For messages: the user name, or "the shared data"
+    String describe()
+    {
+        return user != null ? user.getUsername() : "the shared data";
+    }
+}
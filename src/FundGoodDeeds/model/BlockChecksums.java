@@ -0,0 +1,186 @@
+package FundGoodDeeds.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C checksums of a CSV file in blocks of about 16 KiB, kept next to it as
+ * name.csv.crc. Blocks always end on a row boundary, so a damaged block costs
+ * only the rows inside it.
+ *
+ * Sidecar layout (text):
+ *   crc32c,2,<data file mtime in ms>,<data file size>,<data file key>
+ *   <block length>,<crc hex>          (one line per block, in file order)
+ *
+ * The checksums are trusted only while the data file is still the same file (its
+ * file key, i.e. device and inode, where the platform has one) with the recorded
+ * modification time. Every save renames a new file into place, and the time alone
+ * can repeat for saves a few milliseconds apart, so without the key a load racing
+ * a save could check the new rows against the old checksums. A file edited by
+ * another program gets new checksums on its next load instead of being reported
+ * as damaged; bit rot and truncation by anything that keeps the time are caught.
+ *
+ * CRC32C is computed by the JDK's intrinsic (hardware CRC instructions), so
+ * verifying a 3 MB ledger takes well under a millisecond.
+ */
+final class BlockChecksums {
+    static final String EXTENSION = ".crc";
+
+    private static final String HEADER = "crc32c";
+    private static final int VERSION = 2;
+    private static final int BLOCK_BYTES = 16 * 1024;
+
+    private final long modifiedMillis;
+    private final long size;
+    private final String fileKey;
+    private final int[] lengths;
+    private final int[] crcs;
+
+    private BlockChecksums(long modifiedMillis, long size, String fileKey, int[] lengths, int[] crcs) {
+        this.modifiedMillis = modifiedMillis;
+        this.size = size;
+        this.fileKey = fileKey;
+        this.lengths = lengths;
+        this.crcs = crcs;
+    }
+
+    // A bad block: content[start, end) should have had the recorded checksum (end < start + length if truncated)
+    record Damage(int block, int start, int end) {}
+
+    static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Splits the content into blocks and checksums each one.
+     * @param attributes The data file's attributes, read with the content.
+     */
+    static BlockChecksums compute(byte[] content, BasicFileAttributes attributes) {
+        List<int[]> blocks = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        int start = 0;
+        while (start < content.length) {
+            int end = Math.min(start + BLOCK_BYTES, content.length);
+            // Extend to the end of the row so no row straddles two blocks
+            while (end < content.length && content[end - 1] != '\n') {
+                end++;
+            }
+            crc.reset();
+            crc.update(content, start, end - start);
+            blocks.add(new int[] {end - start, (int) crc.getValue()});
+            start = end;
+        }
+        int[] lengths = new int[blocks.size()];
+        int[] crcs = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            lengths[i] = blocks.get(i)[0];
+            crcs[i] = blocks.get(i)[1];
+        }
+        return new BlockChecksums(attributes.lastModifiedTime().toMillis(), content.length, keyOf(attributes), lengths, crcs);
+    }
+
+    /**
+     * @return The checksums, or null if the sidecar is missing or unreadable.
+     */
+    static BlockChecksums read(Path file) {
+        Path sidecar = sidecarOf(file);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(sidecar, StandardCharsets.US_ASCII);
+            String[] header = lines.get(0).split(",");
+            if (!header[0].equals(HEADER) || Integer.parseInt(header[1]) != VERSION) {
+                return null;
+            }
+            int count = lines.size() - 1;
+            int[] lengths = new int[count];
+            int[] crcs = new int[count];
+            for (int i = 0; i < count; i++) {
+                String[] fields = lines.get(i + 1).split(",");
+                lengths[i] = Integer.parseInt(fields[0]);
+                crcs[i] = Integer.parseUnsignedInt(fields[1], 16);
+            }
+            return new BlockChecksums(Long.parseLong(header[2]), Long.parseLong(header[3]), header[4], lengths, crcs);
+        } catch (IOException | RuntimeException e) {
+            // A damaged sidecar only costs verification; the data file is read as usual
+            return null;
+        }
+    }
+
+    /**
+     * Writes the sidecar for the given data file. Not forced to disk: after a crash a
+     * stale or missing sidecar only means the next load re-computes it.
+     */
+    void write(Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append(HEADER).append(',').append(VERSION).append(',').append(modifiedMillis).append(',').append(size).append(',').append(fileKey).append('\n');
+        for (int i = 0; i < lengths.length; i++) {
+            text.append(lengths[i]).append(',').append(Integer.toHexString(crcs[i])).append('\n');
+        }
+        Path sidecar = sidecarOf(file);
+        Path temp = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, text, StandardCharsets.US_ASCII);
+            try {
+                Files.move(temp, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // true if the checksums were taken of the file as it is now (same file, same modification time)
+    boolean describes(BasicFileAttributes attributes) {
+        return this.modifiedMillis == attributes.lastModifiedTime().toMillis() && this.fileKey.equals(keyOf(attributes));
+    }
+
+    // e.g. "dev=803ino=1234"; "-" where the platform has no file keys (Windows), leaving only the time
+    private static String keyOf(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "-" : key.toString().replaceAll("[^A-Za-z0-9=]", "");
+    }
+
+    /**
+     * Checks every block of the content. Bytes past the last block (rows appended
+     * since) are not covered and never reported.
+     * @return The damaged blocks; empty if all match.
+     */
+    List<Damage> verify(byte[] content) {
+        List<Damage> damaged = new ArrayList<>();
+        CRC32C crc = new CRC32C();
+        int start = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            int end = start + lengths[i];
+            if (end > content.length) {
+                // Truncated: this block is short and any later ones are gone
+                if (start < content.length) {
+                    damaged.add(new Damage(i, start, content.length));
+                }
+                break;
+            }
+            crc.reset();
+            crc.update(content, start, lengths[i]);
+            if ((int) crc.getValue() != crcs[i]) {
+                damaged.add(new Damage(i, start, end));
+            }
+            start = end;
+        }
+        return damaged;
+    }
+
+    // Bytes the checksums cover; shorter content means the file was truncated
+    long coveredSize() {
+        return size;
+    }
+}
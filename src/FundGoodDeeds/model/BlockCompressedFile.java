@@ -0,0 +1,337 @@
+package FundGoodDeeds.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.CRC32C;
+import java.util.zip.Inflater;
+
+/**
+ * The .csvz format CSVManager uses for sealed (read-only) files: the rows are cut into
+ * blocks of about 64 KiB, and each block is deflated on its own, so any block can be
+ * inflated without the ones before it.
+ *
+ * Layout:
+ *   "FGDZ" version
+ *   block 0 ... block n-1                 (deflated, rows separated by '\n')
+ *   block index                           (per block: offset, compressed and raw length,
+ *                                          row count, smallest and largest sort key, CRC32C of the rows)
+ *   index offset (long), block count (int), "FGDZ"
+ *
+ * A block that fails to inflate or to match its CRC is reported to the caller, which
+ * quarantines it; the other blocks still load.
+ *
+ * The smallest/largest sort key of each block let readRange skip every block that
+ * cannot hold a row in the range. Rows are ordered by sortKey, which compares a
+ * leading year,month,day as a date whether or not it is zero-padded (the app writes
+ * 2025,01,31, a hand-edited ledger may have 2025,1,31), so a date range is a row
+ * range and an archived year reads only that year's blocks.
+ *
+ * Only this one version of the format is read; a file with another version (or
+ * without the "FGDZ" header) is rejected with an IOException.
+ *
+ * Measured with SealedLedgerBenchmark on a generated 5-year ledger (see doc/SETUP.md).
+ */
+final class BlockCompressedFile {
+    static final String EXTENSION = ".csvz";
+
+    private static final byte[] MAGIC = "FGDZ".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES + 4;
+
+    private BlockCompressedFile() {
+    }
+
+    // One entry of the block index
+    private record Block(long offset, int compressedLength, int rawLength, int rows, String minKey, String maxKey, int crc) {}
+
+    /**
+     * The row as compared for block bounds and ranges: unchanged, except that a leading
+     * year,month[,day] has its month and day zero-padded, e.g. "2025,3,7,n,Food,1.0" ->
+     * "2025,03,07,n,Food,1.0". Range bounds go through it too, so "2025,3" works as well.
+     */
+    static String sortKey(String row) {
+        int yearEnd = numberEnd(row, 0);
+        if (yearEnd == 0 || yearEnd == row.length() || row.charAt(yearEnd) != ',') {
+            return row;
+        }
+        int monthEnd = numberEnd(row, yearEnd + 1);
+        if (monthEnd == yearEnd + 1 || (monthEnd < row.length() && row.charAt(monthEnd) != ',')) {
+            return row;
+        }
+        boolean padMonth = monthEnd - yearEnd == 2;
+        boolean padDay = false;
+        if (monthEnd < row.length()) {
+            int dayEnd = numberEnd(row, monthEnd + 1);
+            padDay = dayEnd - monthEnd == 2 && (dayEnd == row.length() || row.charAt(dayEnd) == ',');
+        }
+        if (!padMonth && !padDay) {
+            return row; // Already padded, as the app writes it: no copy
+        }
+        StringBuilder key = new StringBuilder(row.length() + 2).append(row, 0, yearEnd + 1);
+        if (padMonth) {
+            key.append('0');
+        }
+        if (padDay) {
+            key.append(row, yearEnd + 1, monthEnd + 1).append('0').append(row, monthEnd + 1, row.length());
+        } else {
+            key.append(row, yearEnd + 1, row.length());
+        }
+        return key.toString();
+    }
+
+    // The index just past the digits starting at from
+    private static int numberEnd(String row, int from) {
+        int end = from;
+        while (end < row.length() && row.charAt(end) >= '0' && row.charAt(end) <= '9') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Compresses the rows into the file, replacing it. Callers make this durable (see CSVManager.seal).
+     * @param file The .csvz file to write.
+     * @param rows The rows, in order.
+     */
+    static void write(Path file, List<String> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1).put(MAGIC).put((byte) VERSION).flip();
+            writeFully(channel, header);
+
+            List<Block> blocks = new ArrayList<>();
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_BYTES + 1024);
+                int blockRows = 0;
+                String minKey = null;
+                String maxKey = null;
+                for (String row : rows) {
+                    raw.write(row.getBytes(StandardCharsets.UTF_8));
+                    raw.write('\n');
+                    blockRows++;
+                    String key = sortKey(row);
+                    if (minKey == null || key.compareTo(minKey) < 0) {
+                        minKey = key;
+                    }
+                    if (maxKey == null || key.compareTo(maxKey) > 0) {
+                        maxKey = key;
+                    }
+                    if (raw.size() >= BLOCK_BYTES) {
+                        blocks.add(writeBlock(channel, deflater, raw, blockRows, minKey, maxKey));
+                        raw.reset();
+                        blockRows = 0;
+                        minKey = null;
+                        maxKey = null;
+                    }
+                }
+                if (blockRows > 0) {
+                    blocks.add(writeBlock(channel, deflater, raw, blockRows, minKey, maxKey));
+                }
+            } finally {
+                deflater.end();
+            }
+
+            long indexOffset = channel.position();
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(index);
+            for (Block block : blocks) {
+                out.writeLong(block.offset);
+                out.writeInt(block.compressedLength);
+                out.writeInt(block.rawLength);
+                out.writeInt(block.rows);
+                out.writeUTF(block.minKey);
+                out.writeUTF(block.maxKey);
+                out.writeInt(block.crc);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(blocks.size());
+            out.write(MAGIC);
+            writeFully(channel, ByteBuffer.wrap(index.toByteArray()));
+            channel.force(true);
+        }
+    }
+
+    private static Block writeBlock(FileChannel channel, Deflater deflater, ByteArrayOutputStream raw, int rows, String minKey, String maxKey) throws IOException {
+        byte[] input = raw.toByteArray();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+        byte[] buffer = new byte[16 * 1024];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        long offset = channel.position();
+        writeFully(channel, ByteBuffer.wrap(compressed.toByteArray()));
+        CRC32C crc = new CRC32C();
+        crc.update(input);
+        return new Block(offset, compressed.size(), input.length, rows, minKey, maxKey, (int) crc.getValue());
+    }
+
+    /**
+     * @param file A .csvz file.
+     * @param damaged Receives the stored bytes of each damaged block by block number; their rows are skipped.
+     * @return Every row of the intact blocks, in order.
+     */
+    static List<String> readAll(Path file, Map<Integer, byte[]> damaged) throws IOException {
+        return readRange(file, null, null, damaged);
+    }
+
+    /**
+     * Reads the rows r with from <= r < to (compared by sortKey, so by date for ledger rows),
+     * inflating only the blocks that can hold such rows. Rows come back in file order.
+     * @param file A .csvz file.
+     * @param from The smallest row to return, or null for no lower bound.
+     * @param to The first row not to return, or null for no upper bound.
+     * @param damaged Receives the stored bytes of each damaged block by block number; their rows are skipped.
+     * @throws IOException If the file cannot be read at all (e.g. its block index is damaged).
+     */
+    static List<String> readRange(Path file, String from, String to, Map<Integer, byte[]> damaged) throws IOException {
+        List<String> rows = new ArrayList<>();
+        String fromKey = from == null ? null : sortKey(from);
+        String toKey = to == null ? null : sortKey(to);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            checkHeader(channel, file);
+            Inflater inflater = new Inflater(true);
+            CRC32C crc = new CRC32C();
+            try {
+                List<Block> blocks = readIndex(channel, file);
+                for (int number = 0; number < blocks.size(); number++) {
+                    Block block = blocks.get(number);
+                    if ((fromKey != null && block.maxKey.compareTo(fromKey) < 0) || (toKey != null && block.minKey.compareTo(toKey) >= 0)) {
+                        continue;
+                    }
+                    byte[] raw;
+                    try {
+                        raw = inflate(channel, inflater, block, file);
+                        crc.reset();
+                        crc.update(raw);
+                        if ((int) crc.getValue() != block.crc) {
+                            throw new IOException(file.getFileName() + " has a block with a bad checksum at offset " + block.offset);
+                        }
+                    } catch (IOException e) {
+                        damaged.put(number, readAvailable(channel, block.offset, block.compressedLength));
+                        continue;
+                    }
+                    String text = new String(raw, StandardCharsets.UTF_8);
+                    int start = 0;
+                    for (int end = text.indexOf('\n'); end >= 0; start = end + 1, end = text.indexOf('\n', start)) {
+                        String row = text.substring(start, end);
+                        if (inRange(row, fromKey, toKey)) {
+                            rows.add(row);
+                        }
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+        return rows;
+    }
+
+    // true if fromKey <= sortKey(row) < toKey; null bounds are open
+    static boolean inRange(String row, String fromKey, String toKey) {
+        if (fromKey == null && toKey == null) {
+            return true;
+        }
+        String key = sortKey(row);
+        return (fromKey == null || key.compareTo(fromKey) >= 0) && (toKey == null || key.compareTo(toKey) < 0);
+    }
+
+    // The "FGDZ" header and the one version this class writes
+    private static void checkHeader(FileChannel channel, Path file) throws IOException {
+        if (channel.size() < MAGIC.length + 1 + TRAILER_BYTES) {
+            throw new IOException(file.getFileName() + " is not a compressed CSV file");
+        }
+        ByteBuffer header = readFully(channel, 0, MAGIC.length + 1);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(file.getFileName() + " is not a compressed CSV file");
+        }
+        int version = header.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException(file.getFileName() + " has format version " + version + "; only version " + VERSION + " can be read");
+        }
+    }
+
+    private static List<Block> readIndex(FileChannel channel, Path file) throws IOException {
+        long size = channel.size();
+        ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+        long indexOffset = trailer.getLong();
+        int blockCount = trailer.getInt();
+        byte[] magic = new byte[MAGIC.length];
+        trailer.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || indexOffset < 0 || indexOffset > size - TRAILER_BYTES) {
+            throw new IOException(file.getFileName() + " is damaged or not a compressed CSV file");
+        }
+
+        ByteBuffer index = readFully(channel, indexOffset, (int) (size - TRAILER_BYTES - indexOffset));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(new Block(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readUTF(), in.readUTF(), in.readInt()));
+        }
+        return blocks;
+    }
+
+    private static byte[] inflate(FileChannel channel, Inflater inflater, Block block, Path file) throws IOException {
+        byte[] compressed = readFully(channel, block.offset, block.compressedLength).array();
+        byte[] raw = new byte[block.rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                throw new IOException(file.getFileName() + " has a truncated block at offset " + block.offset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(file.getFileName() + " has a damaged block at offset " + block.offset, e);
+        }
+        return raw;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // As much of the range as the file still has (a truncated file has less)
+    private static byte[] readAvailable(FileChannel channel, long position, int length) throws IOException {
+        long available = Math.max(0, Math.min(length, channel.size() - position));
+        return readFully(channel, position, (int) available).array();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -1,12 +1,36 @@
 package FundGoodDeeds.model;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class Bundle implements NeedComponent {
     public String name;	 
-    public Map<NeedComponent, Integer> componentCounts;
+    // Direct components in insertion order, indexed by symbol id with primitive counts
+    private final ComponentTable componentCounts = new ComponentTable();
+    // Assigned by the NeedsRepository; the table resolves component names to ids
+    private int id = SymbolTable.NONE;
+    private SymbolTable symbols;
+
+    /*
+     * Compiled leaf vector: every basic Need reachable from this bundle (through any
+     * level of nesting) paired with the number of units the bundle implies for it.
+     * Example: Complete Lifestyle Bundle -> [Monthly Rent x1, Grocery Budget x5, Water Bill x2, ...]
+     *
+     * Because a change to an inner bundle also changes every bundle that contains it,
+     * the bundles of one catalog share a structural epoch (handed out by its
+     * NeedsRepository in bind). Any structural edit bumps the epoch, and each bundle
+     * of that catalog recompiles lazily the next time it is queried. Other users'
+     * catalogs, and the shared template, keep their compiled vectors.
+     *
+     * Bundles of a CatalogTemplate are read by many users' threads at once, so the
+     * compiled vector is published as one immutable object.
+     */
+    // The bundle's own counter until it joins a catalog
+    private AtomicInteger structureEpoch = new AtomicInteger();
+    private volatile Compiled compiled = new Compiled(-1, new Need[0], new int[0], new int[0]);
+
+    private record Compiled(int epoch, Need[] leafNeeds, int[] leafIds, int[] leafUnits) {}
     /**
 	 * Theoretically, a Bundle can look like this:
 	 * 
@@ -18,15 +42,20 @@ public class Bundle implements NeedComponent {
     */
     public Bundle(String name) {
         this.name = name;
-		// initialize with an empty list NeedComponents, then use add() for each Need in the bundle
-        this.componentCounts = new LinkedHashMap<>();
+		// starts with no NeedComponents, then use add() for each Need in the bundle
     }
 
-    // Constructor with predefined Needs for the bundle
-    // Changed to accept a Map for component and their integer counts
+    /**
+     * Constructor with predefined Needs for the bundle and their integer counts.
+     * The components must already be in the needs catalog (e.g. looked up with
+     * NeedsRepository.getNeedByName), since the bundle holds them by symbol id.
+     * @throws IllegalArgumentException If a component is not in the catalog.
+     */
     public Bundle(String name, Map<NeedComponent, Integer> componentsWithCounts) {
         this.name = name;
-        this.componentCounts = new LinkedHashMap<>(componentsWithCounts);
+        for (Map.Entry<NeedComponent, Integer> entry : componentsWithCounts.entrySet()) {
+            componentCounts.add(entry.getKey(), entry.getValue());
+        }
     }
     
     // Adds component to the bundle with a specific integer quantity
@@ -34,32 +63,75 @@ public class Bundle implements NeedComponent {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Bundle component quantity must be positive.");
         }
-        componentCounts.put(component, componentCounts.getOrDefault(component, 0) + quantity);
+        componentCounts.add(component, quantity);
+        structureChanged();
     }
     
     // Removes component from the bundle and updates count
     public void remove(NeedComponent component) {
-        componentCounts.remove(component); // Removes the component entirely
+        int slot = componentCounts.find(component.getId());
+        if (slot >= 0) {
+            componentCounts.remove(slot); // Removes the component entirely
+            structureChanged();
+        }
     }
     
     
+    /**
+     * Callback for walking a bundle's direct components without copying them.
+     * Counts are passed as primitive ints.
+     */
+    @FunctionalInterface
+    public interface ComponentVisitor {
+        void visit(NeedComponent component, int count);
+    }
+
+    /**
+     * Visits each direct component and its count in insertion order.
+     * Unlike getComponentsAndCounts(), nothing is copied and callers cannot change
+     * the bundle through the visitor.
+     * @param visitor Called once per component.
+     */
+    public void forEachComponent(ComponentVisitor visitor) {
+        for (int slot = 0; slot < componentCounts.end(); slot++) {
+            NeedComponent component = componentCounts.componentAt(slot);
+            if (component != null) {
+                visitor.visit(component, componentCounts.countAt(slot));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given Need or Bundle is a direct component of this bundle.
+     * @param component The component to look for.
+     * @return true if the bundle holds it, false otherwise.
+     */
+    public boolean hasComponent(NeedComponent component) {
+        int slot = componentCounts.find(component.getId());
+        return slot >= 0 && componentCounts.componentAt(slot).equals(component);
+    }
+
+    // Copies the components and counts; prefer forEachComponent() for read-only loops
     public Map<NeedComponent, Integer> getComponentsAndCounts() {
-        // return componentCounts;
         //Use a new LinkedHashMap to return a copy
-        return new LinkedHashMap<>(this.componentCounts);
+        Map<NeedComponent, Integer> copy = new LinkedHashMap<>();
+        forEachComponent(copy::put);
+        return copy;
     }
     public List<NeedComponent> getComponents() {
         // Returns a list of unique components, not reflecting quantities
-        return new ArrayList<>(componentCounts.keySet());
+        List<NeedComponent> components = new ArrayList<>(componentCounts.size());
+        forEachComponent((component, count) -> components.add(component));
+        return components;
     }
     /**
      * Returns a list of all need names in this bundle with their counts
      * Example: ["Bus Pass (2)", "Monthly Rent (1)", "PB&J (2)"]
      */
     public List<String> resolveAllNames() {
-        return componentCounts.entrySet().stream()
-                .map(entry -> entry.getKey().getName() + " (" + entry.getValue() + ")")
-                .collect(Collectors.toList());
+        List<String> names = new ArrayList<>(componentCounts.size());
+        forEachComponent((component, count) -> names.add(component.getName() + " (" + count + ")"));
+        return names;
     }
     
     
@@ -71,6 +143,28 @@ public class Bundle implements NeedComponent {
     public void setName(String name) {
         this.name = name;
     }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    // Called once by the NeedsRepository when the bundle joins the catalog
+    void bind(int id, SymbolTable symbols, AtomicInteger catalogEpoch) {
+        this.id = id;
+        this.symbols = symbols;
+        this.structureEpoch = catalogEpoch;
+        // Compiled against the old counter, whose values mean nothing to the new one
+        this.compiled = new Compiled(-1, new Need[0], new int[0], new int[0]);
+    }
+
+    // Resolves a component name to its symbol id without allocating; names only mean something once the bundle is in a catalog
+    private int idOf(String componentName) {
+        if (symbols == null) {
+            throw new IllegalStateException("Bundle '" + name + "' must be in the needs catalog before its components can be looked up by name.");
+        }
+        return symbols.idOf(componentName);
+    }
     
     /*
 	 * This specific method gets the total cost of all Needs in the Bundle.
@@ -82,9 +176,146 @@ public class Bundle implements NeedComponent {
 	 */
     @Override
     public double getTotal() {
-        return componentCounts.entrySet().stream()
-                .mapToDouble(entry -> entry.getKey().getTotal() * entry.getValue())
-                .sum();
+        Compiled leaves = compileIfStale();
+        double total = 0.0;
+        for (int i = 0; i < leaves.leafNeeds.length; i++) {
+            total += leaves.leafNeeds[i].getTotal() * leaves.leafUnits[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns how many units of a basic Need this bundle implies, counting every
+     * level of nesting. Example: Complete Lifestyle Bundle implies 5 Grocery Budget
+     * (4 directly plus 1 through Living Essentials).
+     * @param needName The name of the basic Need (case-insensitive).
+     * @return The total implied units, or 0 if the bundle does not reach that Need.
+     * @throws IllegalStateException If the bundle is not in a needs catalog.
+     */
+    public int getImpliedUnits(String needName) {
+        int needId = idOf(needName);
+        if (needId == SymbolTable.NONE) {
+            return 0;
+        }
+        Compiled leaves = compileIfStale();
+        for (int i = 0; i < leaves.leafIds.length; i++) {
+            if (leaves.leafIds[i] == needId) {
+                return leaves.leafUnits[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether the given component appears anywhere inside this bundle,
+     * including inside nested bundles. Used to refuse edits that would create a cycle.
+     * @param target The Need or Bundle to look for.
+     * @return true if the bundle reaches the target, false otherwise.
+     */
+    public boolean containsComponent(NeedComponent target) {
+        for (int slot = 0; slot < componentCounts.end(); slot++) {
+            NeedComponent component = componentCounts.componentAt(slot);
+            if (component == null) {
+                continue;
+            }
+            if (component.equals(target)) {
+                return true;
+            }
+            if (component instanceof Bundle inner && inner.containsComponent(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of distinct basic Needs reachable from this bundle.
+     */
+    public int getLeafCount() {
+        return compileIfStale().leafNeeds.length;
+    }
+
+    // Marks every compiled bundle of this catalog as stale after a structural edit
+    private void structureChanged() {
+        structureEpoch.incrementAndGet();
+    }
+
+    private Compiled compileIfStale() {
+        Compiled current = compiled;
+        if (current.epoch != structureEpoch.get()) {
+            current = compile();
+        }
+        return current;
+    }
+
+    /*
+     * Flattens the component tree into the parallel leafNeeds/leafUnits arrays.
+     * Need objects are tracked by identity so each catalog Need gets exactly one slot.
+     */
+    private Compiled compile() {
+        // Read first: an edit made while flattening leaves the result stale, never wrongly current
+        int epoch = structureEpoch.get();
+        Map<Need, Integer> slots = new IdentityHashMap<>();
+        List<Need> needs = new ArrayList<>();
+        List<Integer> units = new ArrayList<>();
+        flatten(this, 1, slots, needs, units);
+
+        Need[] leafNeeds = needs.toArray(new Need[0]);
+        int[] leafIds = new int[leafNeeds.length];
+        int[] leafUnits = new int[leafNeeds.length];
+        for (int i = 0; i < leafNeeds.length; i++) {
+            leafIds[i] = leafNeeds[i].getId();
+            leafUnits[i] = units.get(i);
+        }
+        Compiled result = new Compiled(epoch, leafNeeds, leafIds, leafUnits);
+        compiled = result;
+        return result;
+    }
+
+    /**
+     * Swaps a component for another instance with the same id (a user's private copy
+     * of a shared catalog entry), keeping its position and count.
+     * @return true if the bundle held the component.
+     */
+    boolean replaceComponent(NeedComponent copy) {
+        int slot = componentCounts.find(copy.getId());
+        if (slot < 0) {
+            return false;
+        }
+        componentCounts.replace(slot, copy);
+        structureChanged();
+        return true;
+    }
+
+    // Empties the bundle, so it can be filled again from a CSV row
+    void clearComponents() {
+        componentCounts.clear();
+        structureChanged();
+    }
+
+    // true if the component with this symbol id is a direct component
+    boolean holds(int id) {
+        return componentCounts.find(id) >= 0;
+    }
+
+    private static void flatten(Bundle bundle, int multiplier, Map<Need, Integer> slots, List<Need> needs, List<Integer> units) {
+        ComponentTable table = bundle.componentCounts;
+        for (int i = 0; i < table.end(); i++) {
+            NeedComponent component = table.componentAt(i);
+            int quantity = multiplier * table.countAt(i);
+            if (component instanceof Need need) {
+                Integer slot = slots.get(need);
+                if (slot == null) {
+                    slots.put(need, needs.size());
+                    needs.add(need);
+                    units.add(quantity);
+                } else {
+                    units.set(slot, units.get(slot) + quantity);
+                }
+            } else if (component instanceof Bundle inner) {
+                flatten(inner, quantity, slots, needs, units);
+            }
+        }
     }
 
 	// ***FUTURE REFACTORING*** 
@@ -98,31 +329,19 @@ public class Bundle implements NeedComponent {
      * @param componentName The name of the component to decrease.
      * @param quantity The amount to decrease by.
      * @return The number of units successfully removed (max is current count, min is 0).
+     * @throws IllegalStateException If the bundle is not in a needs catalog.
      */
     public int removeComponentUnits(String componentName, int quantity) {
         if (quantity <= 0) {
             return 0;
         }
         
-        NeedComponent componentToUpdate = componentCounts.keySet().stream()
-                .filter(nc -> nc.getName().equalsIgnoreCase(componentName))
-                .findFirst()
-                .orElse(null);
-
-        if (componentToUpdate == null) {
+        int slot = componentCounts.find(idOf(componentName));
+        if (slot < 0) {
             return 0; // Component not found
         }
 
-        // int currentCount = componentCounts.get(componentToUpdate);
-
-        // Integer currentQuantityObject = componentCounts.get(componentToUpdate);
-        Integer currentQuantityObject = componentCounts.getOrDefault(componentToUpdate, 0); 
-        
-        if (currentQuantityObject == null) {
-            return 0; // Should not happen if the key was found, but defends against NPE
-        }
-
-        int currentCount = currentQuantityObject.intValue();
+        int currentCount = componentCounts.countAt(slot);
         
         // Only remove up to the available quantity
         int unitsToRemove = Math.min(quantity, currentCount);
@@ -130,11 +349,12 @@ public class Bundle implements NeedComponent {
 
         if (newCount <= 0) {
             // If count is zero or less, remove the component entirely
-            componentCounts.remove(componentToUpdate);
+            componentCounts.remove(slot);
         } else {
             // Otherwise, update the count
-            componentCounts.put(componentToUpdate, newCount);
+            componentCounts.setCount(slot, newCount);
         }
+        structureChanged();
         
         return unitsToRemove;
     }
@@ -150,20 +370,11 @@ public class Bundle implements NeedComponent {
             throw new IllegalArgumentException("Quantity to add must be positive.");
         }
         
-        // Find the component that matches by name (case-insensitive)
-        // We must ensure the component in the map is the one from the NeedsCatalog
-        NeedComponent existingComponent = componentCounts.keySet().stream()
-            .filter(nc -> nc.getName().equalsIgnoreCase(component.getName()))
-            .findFirst()
-            .orElse(null);
-
-        // If existing component found, use it, otherwise use the passed component
-        NeedComponent key = (existingComponent != null) ? existingComponent : component;
-
-        int currentCount = componentCounts.getOrDefault(key, 0);
-        int newCount = currentCount + quantity;
-        
-        componentCounts.put(key, newCount);
+        // The table matches by symbol id, so an existing entry keeps the component
+        // instance from the NeedsCatalog and only its count grows; a component that
+        // is not in the catalog has no id and is rejected
+        componentCounts.add(component, quantity);
+        structureChanged();
     }
 
     /**
@@ -173,35 +384,30 @@ public class Bundle implements NeedComponent {
      * @param componentName The name of the component to update.
      * @param newQuantity The new total quantity of the component.
      * @return true if the component was found and updated/removed, false otherwise.
+     * @throws IllegalStateException If the bundle is not in a needs catalog.
      */
     public boolean updateComponentUnits(String componentName, int newQuantity) {
-        NeedComponent componentToUpdate = componentCounts.keySet().stream()
-            .filter(nc -> nc.getName().equalsIgnoreCase(componentName))
-            .findFirst()
-            .orElse(null);
-
-        if (componentToUpdate == null) {
+        int slot = componentCounts.find(idOf(componentName));
+        if (slot < 0) {
             return false; // Component not found
         }
 
         if (newQuantity <= 0) {
             // If count is zero or less, remove the component entirely
-            componentCounts.remove(componentToUpdate);
+            componentCounts.remove(slot);
         } else {
             // Otherwise, update the count
-            componentCounts.put(componentToUpdate, newQuantity);
+            componentCounts.setCount(slot, newQuantity);
         }
+        structureChanged();
         
         return true;
     }
 
-    // Helper to get the count of a component (for view/controller logic)
+    // Helper to get the count of a component (for view/controller logic); the bundle must be in a needs catalog
     public int getComponentCount(String componentName) {
-        return componentCounts.keySet().stream()
-            .filter(nc -> nc.getName().equalsIgnoreCase(componentName))
-            .map(componentCounts::get)
-            .findFirst()
-            .orElse(0);
+        int slot = componentCounts.find(idOf(componentName));
+        return slot < 0 ? 0 : componentCounts.countAt(slot);
     }
     
     @Override
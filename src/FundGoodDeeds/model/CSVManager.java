@@ -1,21 +1,57 @@
 package FundGoodDeeds.model;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class CSVManager 
+/**
+ * The default StorageEngine: one CSV file per dataset under src/FundGoodDeeds/data/,
+ * with each user's needs, funding and ledger files in a directory named after them.
+ */
+public class CSVManager implements StorageEngine
 {
+    // Overrides the data directory, e.g. -Dfundgooddeeds.storage.dir=/tmp/fgd-test
+    public static final String DIRECTORY_PROPERTY = "fundgooddeeds.storage.dir";
+
     // starting from "src/"
-    private final String absoluteDataPath = "src/FundGoodDeeds/data/";
+    private final String absoluteDataPath = System.getProperty(DIRECTORY_PROPERTY, "src/FundGoodDeeds/data/");
     public String ledgerCSV;
     private Path userPath;
+
+    // Where damaged blocks are kept, inside the directory of the damaged file
+    private static final String QUARANTINE_DIRECTORY = "quarantine";
+    // How often a read starts over because a save replaced the file meanwhile, before giving up
+    private static final int READ_ATTEMPTS = 3;
+
+    // Saves waiting for the next group commit, by target file
+    private final Map<Path, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private final Object commitLock = new Object();
+    // What was last read from or written to each file, to tell outside changes apart (see changeSince)
+    private final Map<Path, FileFingerprint> fingerprints = new ConcurrentHashMap<>();
+    // Optional background writer for saves that should not block the caller
+    private PersistenceService writeBehind;
     
     public CSVManager(String ledgerCSVFile) throws FileNotFoundException
     {
@@ -27,51 +63,495 @@ public class CSVManager
         this.ledgerCSV = ledgerCSVFile;
     }
 
-    public List<String> readData(String csvPath)
+    @Override
+    public String getName()
     {
+        return StorageEngines.DEFAULT_ENGINE;
+    }
 
-        // List to keep all the csv data
+    @Override
+    public List<String> load(Dataset dataset)
+    {
+        return readFile(pathOf(dataset));
+    }
 
-        List<String> dataList = new ArrayList<>();
+    @Override
+    public void replace(Dataset dataset, List<String> rows) throws IOException
+    {
+        write(pathOf(dataset), rows);
+    }
 
-        // Header in case it is needed for future implementations
+    @Override
+    public CompletableFuture<Void> replaceLater(Dataset dataset, List<String> rows)
+    {
+        return writeLater(pathOf(dataset), rows);
+    }
 
-        String header;
+    /**
+     * Appends the rows to the dataset's file and forces them to disk. Saves of the file
+     * still waiting in the write-behind service are written first, so they cannot
+     * overwrite the appended rows afterwards.
+     */
+    @Override
+    public void append(Dataset dataset, List<String> rows) throws IOException
+    {
+        Path target = pathOf(dataset);
+        if (this.writeBehind != null)
+        {
+            this.writeBehind.flush().join();
+        }
+        if (!Files.exists(target) && Files.exists(sealedOf(target)))
+        {
+            throw new IOException(fileOf(dataset) + " is sealed; replace it instead of appending");
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (String row : rows)
+        {
+            content.append(row).append('\n');
+        }
+
+        synchronized (commitLock)
+        {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                // A hand-edited file may lack the final newline; don't glue the first row onto its last line
+                if (channel.size() > 0)
+                {
+                    ByteBuffer last = ByteBuffer.allocate(1);
+                    channel.read(last, channel.size() - 1);
+                    if (last.get(0) != '\n')
+                    {
+                        content.insert(0, '\n');
+                    }
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+                long position = channel.size();
+                while (bytes.hasRemaining())
+                {
+                    position += channel.write(bytes, position);
+                }
+                channel.force(true);
+            }
+            // Re-read rather than extend: appends are rare (a new user) and files small
+            readFile(target);
+        }
+    }
+
+    /**
+     * Seals a CSV file: its rows are compressed into name.csvz (see BlockCompressedFile)
+     * and the plain file is removed. Reads of the file keep working unchanged; a later
+     * save writes a plain file again and drops the sealed copy.
+     * Meant for files that no longer change, such as an archived ledger.
+     * @param csvPath The file name, relative to the data (or user) directory.
+     * @throws IOException If the file could not be sealed; the plain file is then left in place.
+     */
+    public void seal(String csvPath) throws IOException
+    {
+        Path target = resolve(csvPath);
+        if (this.writeBehind != null)
+        {
+            this.writeBehind.flush().join();
+        }
 
-        Path pathPrefix;
+        synchronized (commitLock)
+        {
+            if (!Files.exists(target))
+            {
+                throw new IOException(csvPath + " does not exist or is already sealed");
+            }
+            List<String> rows = readFile(target);
+            Path sealed = sealedOf(target);
+            Path directory = target.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, sealed.getFileName().toString(), ".tmp");
+            try
+            {
+                BlockCompressedFile.write(temp, rows);
+                moveIntoPlace(temp, sealed);
+            }
+            finally
+            {
+                Files.deleteIfExists(temp);
+            }
+            Files.delete(target);
+            Files.deleteIfExists(BlockChecksums.sidecarOf(target));
+            fingerprints.remove(target);
+            syncDirectory(directory);
+        }
+    }
 
-        if(userPath != null)
+    /**
+     * Reads the rows r with from <= r < to. A leading year,month,day is compared as a date,
+     * padded or not (see BlockCompressedFile.sortKey), so e.g. from "2024,03" (or "2024,3")
+     * to "2024,04" is March 2024. For a sealed file only the blocks that can hold such rows
+     * are decompressed.
+     * @param csvPath The file name, relative to the data (or user) directory.
+     * @param from The smallest row to return, or null for no lower bound.
+     * @param to The first row not to return, or null for no upper bound.
+     */
+    public List<String> readRange(String csvPath, String from, String to) throws IOException
+    {
+        Path target = resolve(csvPath);
+        if (!Files.exists(target) && Files.exists(sealedOf(target)))
+        {
+            Map<Integer, byte[]> damaged = new LinkedHashMap<>();
+            List<String> rows = BlockCompressedFile.readRange(sealedOf(target), from, to, damaged);
+            quarantine(sealedOf(target), damaged);
+            return rows;
+        }
+        String fromKey = from == null ? null : BlockCompressedFile.sortKey(from);
+        String toKey = to == null ? null : BlockCompressedFile.sortKey(to);
+        List<String> rows = new ArrayList<>();
+        for (String row : readFile(target))
         {
-            pathPrefix = this.userPath;
+            if (BlockCompressedFile.inRange(row, fromKey, toKey))
+            {
+                rows.add(row);
+            }
         }
-        else
+        return rows;
+    }
+
+    // true if the file exists only in sealed (compressed) form
+    public boolean isSealed(String csvPath)
+    {
+        Path target = resolve(csvPath);
+        return !Files.exists(target) && Files.exists(sealedOf(target));
+    }
+
+    /**
+     * Compares the dataset's file with what was last read or written. If rows were only
+     * appended, just the new bytes are read and returned; the caller is expected to add
+     * them, and later calls compare against the grown file.
+     */
+    @Override
+    public DatasetChange changeSince(Dataset dataset)
+    {
+        Path file = pathOf(dataset);
+        FileFingerprint known = fingerprints.get(file);
+        if (!Files.exists(file))
         {
-            pathPrefix = Path.of(this.absoluteDataPath);
+            return known == null ? DatasetChange.UNCHANGED : DatasetChange.REPLACED;
         }
-        try(BufferedReader reader = Files.newBufferedReader(pathPrefix.resolve(csvPath)))
+        if (known == null)
         {
+            return DatasetChange.REPLACED;
+        }
 
-            // Skips the header
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            FileTime modified = Files.getLastModifiedTime(file);
+            long size = channel.size();
+            if (known.sameStat(size, modified))
+            {
+                return DatasetChange.UNCHANGED;
+            }
 
-            // header = reader.readLine();
+            if (size > known.size() && size - known.size() <= Integer.MAX_VALUE)
+            {
+                // Grown: an append if the bytes just before the old end are still the same
+                byte[] window = readBytes(channel, known.size() - known.tailLength(), known.tailLength());
+                if (known.isPrefixOf(window))
+                {
+                    byte[] added = readBytes(channel, known.size(), (int) (size - known.size()));
+                    // A row still being written is left for the next check
+                    int complete = added.length;
+                    while (complete > 0 && added[complete - 1] != '\n')
+                    {
+                        complete--;
+                    }
+                    if (complete == 0)
+                    {
+                        return DatasetChange.UNCHANGED;
+                    }
+                    added = Arrays.copyOf(added, complete);
+                    fingerprints.put(file, known.appended(added, modified));
+                    List<String> rows = new ArrayList<>();
+                    addRows(rows, added, 0, added.length);
+                    return DatasetChange.appended(rows);
+                }
+                return DatasetChange.REPLACED;
+            }
+
+            if (size == known.size())
+            {
+                // Only touched (e.g. saved unchanged by an editor)?
+                byte[] content = readBytes(channel, 0, (int) size);
+                if (known.sameContent(content))
+                {
+                    fingerprints.put(file, FileFingerprint.of(content, modified));
+                    return DatasetChange.UNCHANGED;
+                }
+            }
+            return DatasetChange.REPLACED;
+        }
+        catch (IOException e)
+        {
+            return DatasetChange.REPLACED;
+        }
+    }
+
+    private static byte[] readBytes(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("File shrank while being read");
+            }
+        }
+        return buffer.array();
+    }
+
+    //Trim each line and only add it if it is not empty.
+    //This helps resolve the issue of not being able to switch between the
+    //ConsoleView (CLI) and SwingUIView (GUI) when starting/running the application.
+    private static void addRows(List<String> rows, byte[] content, int from, int to)
+    {
+        String text = new String(content, from, to - from, StandardCharsets.UTF_8);
+        for (String line : text.split("\n"))
+        {
+            if (!line.trim().isEmpty())
+            {
+                rows.add(line.trim());
+            }
+        }
+    }
+
+    /*
+     * Checks the content just read against the file's block checksums. Damaged blocks
+     * are left out of the returned content; they and the whole original file are copied
+     * to quarantine/. The file itself is not changed: it is only replaced when the user
+     * next saves, and until then every load reports the damage again.
+     * Files without (current) checksums get them now.
+     * Returns the content that is safe to parse (content itself if nothing was damaged),
+     * or null for a mismatch while retry is set.
+     */
+    private byte[] verifyChecksums(Path file, byte[] content, BasicFileAttributes attributes, boolean retry)
+    {
+        BlockChecksums checksums = BlockChecksums.read(file);
+        if (checksums == null || !checksums.describes(attributes))
+        {
+            // New, from before checksums, or edited by another program: check it from now on
+            writeChecksums(file, content, attributes);
+            return content;
+        }
+
+        List<BlockChecksums.Damage> damaged = checksums.verify(content);
+        if (damaged.isEmpty())
+        {
+            return content;
+        }
+        if (retry)
+        {
+            return null;
+        }
+
+        ByteArrayOutputStream intact = new ByteArrayOutputStream(content.length);
+        Map<Integer, byte[]> blocks = new LinkedHashMap<>();
+        int next = 0;
+        for (BlockChecksums.Damage damage : damaged)
+        {
+            intact.write(content, next, damage.start() - next);
+            blocks.put(damage.block(), Arrays.copyOfRange(content, damage.start(), damage.end()));
+            next = damage.end();
+        }
+        intact.write(content, next, content.length - next);
+        quarantine(file, blocks);
+        if (content.length < checksums.coveredSize())
+        {
+            System.err.println("Warning: " + file.getFileName() + " is truncated; its last " + (checksums.coveredSize() - content.length) + " bytes are missing.");
+        }
+        return intact.toByteArray();
+    }
+
+    // Both attributes describe the same file, unchanged (no save renamed a new one into place in between)
+    private static boolean sameFile(BasicFileAttributes before, BasicFileAttributes after)
+    {
+        return before.lastModifiedTime().equals(after.lastModifiedTime()) && before.size() == after.size()
+                && Objects.equals(before.fileKey(), after.fileKey());
+    }
+
+    // Reads a sealed file; damaged blocks are quarantined and skipped, the file is left as it is
+    private List<String> readSealed(Path sealed) throws IOException
+    {
+        Map<Integer, byte[]> damaged = new LinkedHashMap<>();
+        List<String> rows = BlockCompressedFile.readAll(sealed, damaged);
+        quarantine(sealed, damaged);
+        return rows;
+    }
+
+    /*
+     * Keeps the damaged blocks (by block number) in quarantine/ next to the file, with a copy
+     * of the whole file as it was, for inspection or recovery by hand. Nothing is deleted:
+     * the damaged file stays in place until a save replaces it.
+     */
+    private static void quarantine(Path file, Map<Integer, byte[]> damaged)
+    {
+        if (damaged.isEmpty())
+        {
+            return;
+        }
+        Path directory = file.toAbsolutePath().getParent().resolve(QUARANTINE_DIRECTORY);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path original = directory.resolve(file.getFileName() + "." + stamp + ".original");
+        try
+        {
+            Files.createDirectories(directory);
+            Files.copy(file, original, StandardCopyOption.REPLACE_EXISTING);
+            for (Map.Entry<Integer, byte[]> block : damaged.entrySet())
+            {
+                Path copy = directory.resolve(file.getFileName() + "." + stamp + ".block" + block.getKey());
+                Files.write(copy, block.getValue());
+                System.err.println("Warning: " + file.getFileName() + " block " + block.getKey() + " is damaged; its rows were skipped and kept in " + copy);
+            }
+            System.err.println("Warning: " + file.getFileName() + " was left as it is (copy in " + original + "); saving will replace it without the skipped rows.");
+        }
+        catch (IOException e)
+        {
+            System.err.println("Warning: " + file.getFileName() + " blocks " + damaged.keySet() + " are damaged; their rows were skipped (could not keep a copy: " + e.getMessage() + ")");
+        }
+    }
+
+    // A missing sidecar only means less checking, never a failed load or save
+    private static void writeChecksums(Path file, byte[] content, BasicFileAttributes attributes)
+    {
+        try
+        {
+            BlockChecksums.compute(content, attributes).write(file);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Warning: Could not write checksums for " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    // log.csv -> log.csvz
+    private static Path sealedOf(Path file)
+    {
+        String name = file.getFileName().toString().replaceFirst("\\.csv$", "");
+        return file.resolveSibling(name + BlockCompressedFile.EXTENSION);
+    }
+
+    @Override
+    public String locationOf(Dataset dataset)
+    {
+        return fileOf(dataset);
+    }
+
+    @Override
+    public void setUser(User user)
+    {
+        setUserPath(user);
+    }
+
+    // A new user's directory with an empty file for each per-user dataset
+    @Override
+    public void createUser(String userName) throws IOException
+    {
+        Path userDir = Files.createDirectory(getDataPath().resolve(userName));
+        for (Dataset dataset : Dataset.values())
+        {
+            if (dataset.isPerUser())
+            {
+                Files.createFile(userDir.resolve(fileOf(dataset)));
+            }
+        }
+    }
+
+    private String fileOf(Dataset dataset)
+    {
+        return switch (dataset)
+        {
+            case NEEDS -> "needs.csv";
+            case FUNDING -> "funding.csv";
+            case LEDGER -> this.ledgerCSV;
+            case USERS -> "users.csv";
+        };
+    }
+
+    // users.csv is shared, so it never moves into a user's directory
+    private Path pathOf(Dataset dataset)
+    {
+        return dataset.isPerUser() ? resolve(fileOf(dataset)) : getDataPath().resolve(fileOf(dataset));
+    }
+
+    public List<String> readData(String csvPath)
+    {
+        return readFile(resolve(csvPath));
+    }
+
+    private List<String> readFile(Path file)
+    {
+
+        // List to keep all the csv data
 
-            while(reader.ready())
-            {
-                String line = reader.readLine();
-                // dataList.add(line);
-                
-                //Trim the line and only add it if it is not empty.
-                //This if statement helps resolves the issue of not being
-                //able to switch between the ConsoleView (CLI) and SwingUIView
-                //(GUI) when starting/running the application.
-                if (line != null && !line.trim().isEmpty()) {
-                    dataList.add(line.trim());
+        List<String> dataList = new ArrayList<>();
+
+        // A dataset that was never saved has no file yet; a sealed one has only its .csvz
+        if (!Files.exists(file))
+        {
+            fingerprints.remove(file);
+            Path sealed = sealedOf(file);
+            if (Files.exists(sealed))
+            {
+                try
+                {
+                    return readSealed(sealed);
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+            return dataList;
+        }
+
+        // Header in case it is needed for future implementations
+
+        String header;
+
+        try
+        {
+            // Read as bytes so changeSince() can later tell what changed on disk
+            byte[] content = null;
+            // A mismatch is checked once more, in case a save was just writing the checksums
+            boolean checksumRetry = true;
+            for (int attempt = 0; content == null; attempt++)
+            {
+                if (attempt == READ_ATTEMPTS)
+                {
+                    fingerprints.remove(file);
+                    throw new IOException(file.getFileName() + " kept changing while being read");
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                byte[] read = Files.readAllBytes(file);
+                if (!sameFile(attributes, Files.readAttributes(file, BasicFileAttributes.class)))
+                {
+                    continue; // Replaced by a save while being read; the attributes must match the bytes
+                }
+                content = verifyChecksums(file, read, attributes, checksumRetry);
+                if (content == null)
+                {
+                    checksumRetry = false;
+                }
+                else if (content == read)
+                {
+                    fingerprints.put(file, FileFingerprint.of(read, attributes.lastModifiedTime()));
+                }
+                else
+                {
+                    // Damaged blocks were left out, so what was loaded is not the file; the next check treats it as replaced
+                    fingerprints.remove(file);
                 }
             }
 
-            reader.close();
+            // Skips the header
+
+            // header = reader.readLine();
 
-            
+            addRows(dataList, content, 0, content.length);
         }
         catch(IOException e)
         {
@@ -84,31 +564,198 @@ public class CSVManager
         
     }
 
+    /**
+     * Replaces a CSV file with the given lines, durably.
+     *
+     * The lines go to a temp file next to the target, which is forced to disk and then
+     * atomically renamed over the target, so a crash leaves either the old file or the
+     * new one, never a truncated mix.
+     *
+     * Saves are group-committed: while one thread is committing, later requests queue
+     * up, and the next commit writes all of them together. Requests for the same file
+     * are coalesced, so only the newest content is written and forced, and each
+     * directory involved is synced once per group instead of once per file.
+     * @param csvPath The file name, relative to the data (or user) directory.
+     * @param data The lines to write.
+     * @throws IOException If the file could not be written; the old file is left intact.
+     */
     public void writeData(String csvPath, List<String> data) throws IOException
     {
+        write(resolve(csvPath), data);
+    }
 
-        // Appends to a file using a encapsulating class
+    private void write(Path target, List<String> data) throws IOException
+    {
+        if (this.writeBehind != null)
+        {
+            // Go through the writer thread so this write cannot be overtaken by an older queued one
+            this.writeBehind.writeNow(target, data);
+            return;
+        }
+        writeFile(target, data);
+    }
 
-        String filePath = this.userPath != null ? this.userPath.resolve(csvPath).toString() : Path.of(this.absoluteDataPath).resolve(csvPath).toString();
-        
-        FileWriter writer = new FileWriter(filePath,false);
+    // Queues the save with the write-behind service, if one is attached; otherwise writes it now
+    private CompletableFuture<Void> writeLater(Path target, List<String> data)
+    {
+        if (this.writeBehind != null)
+        {
+            return this.writeBehind.submit(target, data);
+        }
+        try
+        {
+            writeFile(target, data);
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (IOException e)
+        {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Routes saves through a background writer; null writes on the calling thread
+    public void setWriteBehind(PersistenceService writeBehind)
+    {
+        this.writeBehind = writeBehind;
+    }
 
-        // Buffered writer for increased performance
+    // The user's directory when logged in, otherwise the shared data directory
+    private Path resolve(String csvPath)
+    {
+        return (this.userPath != null ? this.userPath : Path.of(this.absoluteDataPath)).resolve(csvPath);
+    }
+
+    // Durable, group-committed replace of one resolved file (see writeData)
+    void writeFile(Path target, List<String> data) throws IOException
+    {
+        PendingWrite write;
+        synchronized (pendingWrites)
+        {
+            write = pendingWrites.computeIfAbsent(target, PendingWrite::new);
+            write.lines = List.copyOf(data); // A newer save of the same file supersedes a queued one
+        }
 
-        try(BufferedWriter bufferedWriter = new BufferedWriter(writer))
+        // One thread commits at a time; whoever gets the lock next commits everything queued so far
+        synchronized (commitLock)
         {
-            for(String dataString : data)
+            if (!write.done)
+            {
+                List<PendingWrite> group;
+                synchronized (pendingWrites)
+                {
+                    group = new ArrayList<>(pendingWrites.values());
+                    pendingWrites.clear();
+                }
+                commitGroup(group);
+            }
+            if (write.error != null)
             {
-                bufferedWriter.write(dataString + "\n");
+                throw new IOException("Could not save " + target.getFileName() + ": " + write.error.getMessage(), write.error);
             }
-            bufferedWriter.close();
         }
+    }
+
+    // A queued save: the newest lines for one file, and how its commit went
+    private static final class PendingWrite
+    {
+        final Path target;
+        List<String> lines;
+        boolean done;
+        IOException error;
+
+        PendingWrite(Path target)
+        {
+            this.target = target;
+        }
+    }
 
-        // Outputs errors
+    private void commitGroup(List<PendingWrite> group)
+    {
+        Set<Path> directories = new LinkedHashSet<>();
+        for (PendingWrite write : group)
+        {
+            try
+            {
+                fingerprints.put(write.target, replaceFile(write.target, write.lines));
+                // The plain file now holds the data; a sealed copy would only be stale
+                Files.deleteIfExists(sealedOf(write.target));
+                directories.add(write.target.toAbsolutePath().getParent());
+            }
+            catch (IOException e)
+            {
+                write.error = e;
+            }
+        }
 
+        // Make the renames themselves durable, once per directory
+        for (Path directory : directories)
+        {
+            syncDirectory(directory);
+        }
+
+        for (PendingWrite write : group)
+        {
+            write.done = true;
+        }
+    }
+
+    // Returns the written file's fingerprint, so the app's own saves never look like outside changes
+    private static FileFingerprint replaceFile(Path target, List<String> lines) throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines)
+        {
+            content.append(line).append('\n');
+        }
+        byte[] written = content.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer bytes = ByteBuffer.wrap(written);
+
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+            {
+                while (bytes.hasRemaining())
+                {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+
+            moveIntoPlace(temp, target);
+            BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+            writeChecksums(target, written, attributes);
+            return FileFingerprint.of(written, attributes.lastModifiedTime());
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Not every platform can open a directory for syncing (Windows cannot); the rename is still atomic there
+    private static void syncDirectory(Path directory)
+    {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
         catch (IOException e)
         {
-            e.printStackTrace();
+            // Best effort
         }
     }
 
@@ -0,0 +1,61 @@
+package FundGoodDeeds.model;
+
+/**
+ * Summary of one bulk catalog import: how many rows were read and what became of them.
+ * Returned by NeedsRepository.importCatalog so callers can report the outcome.
+ */
+public class CatalogImportResult {
+    private int rowsRead;
+    private int needsAdded;
+    private int bundlesAdded;
+    private int duplicates;
+    private int rejected;
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void needsAdded(int count) {
+        needsAdded += count;
+    }
+
+    void bundleAdded() {
+        bundlesAdded++;
+    }
+
+    void duplicate() {
+        duplicates++;
+    }
+
+    void reject() {
+        rejected++;
+    }
+
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    public int getNeedsAdded() {
+        return needsAdded;
+    }
+
+    public int getBundlesAdded() {
+        return bundlesAdded;
+    }
+
+    // Rows skipped because the name was already in the catalog or earlier in the import
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    // Rows skipped because they were malformed or referenced something that could not be imported
+    public int getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows read: %d needs and %d bundles added, %d duplicates skipped, %d rows rejected",
+                rowsRead, needsAdded, bundlesAdded, duplicates, rejected);
+    }
+}
@@ -0,0 +1,291 @@
+package FundGoodDeeds.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Type-ahead search over the needs catalog.
+ *
+ * Names are kept in a sorted map, so prefix matches are a range scan. For typos, every
+ * name is also posted under its character trigrams. A query only scores the names that
+ * share at least one trigram with it, then ranks them by edit distance against the
+ * closest prefix of each name.
+ *
+ * The NeedsRepository updates the index as needs and bundles are added, removed or
+ * renamed, so it never has to be rebuilt from scratch.
+ *
+ * An index can sit on top of a CatalogTemplate's index, which it never modifies.
+ * Searches see both; base entries that were removed, renamed or replaced by a
+ * private copy are masked by name.
+ */
+final class CatalogSearchIndex {
+    // Postings at least this long may count as common once the catalog is large
+    private static final int COMMON_POSTINGS_MIN = 64;
+
+    // Lower-cased name -> catalog entry, sorted for prefix range scans
+    private final TreeMap<String, NeedComponent> byName = new TreeMap<>();
+    // Trigram -> lower-cased names containing it
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    // Shared index underneath this one, or null
+    private final CatalogSearchIndex base;
+    // Lower-cased names of base entries this index hides
+    private final Set<String> masked = new HashSet<>();
+
+    CatalogSearchIndex() {
+        this(null);
+    }
+
+    CatalogSearchIndex(CatalogSearchIndex base) {
+        this.base = base;
+    }
+
+    void add(NeedComponent component) {
+        String key = key(component.getName());
+        if (base != null && base.byName.containsKey(key) && !byName.containsKey(key)) {
+            masked.add(key); // A private copy (or a new entry) takes over the base name
+        }
+        if (byName.putIfAbsent(key, component) == null) {
+            for (String trigram : trigrams(key)) {
+                postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    void remove(NeedComponent component, String name) {
+        String key = key(name);
+        if (base != null && base.byName.get(key) == component) {
+            masked.add(key);
+            return;
+        }
+        if (byName.get(key) != component) {
+            return;
+        }
+        byName.remove(key);
+        for (String trigram : trigrams(key)) {
+            Set<String> names = postings.get(trigram);
+            if (names != null) {
+                names.remove(key);
+                if (names.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        byName.clear();
+        postings.clear();
+        masked.clear();
+    }
+
+    // The entry indexed under the lower-cased name, here or (unless masked) in the base
+    private NeedComponent get(String key) {
+        NeedComponent component = byName.get(key);
+        if (component == null && base != null && !masked.contains(key)) {
+            component = base.byName.get(key);
+        }
+        return component;
+    }
+
+    private int size() {
+        return byName.size() + (base == null ? 0 : base.byName.size() - masked.size());
+    }
+
+    // Up to limit entries whose names start with q, alphabetically
+    private List<NeedComponent> prefixMatches(String q, int limit) {
+        String last = q + Character.MAX_VALUE;
+        if (base == null) {
+            List<NeedComponent> matches = new ArrayList<>();
+            for (NeedComponent component : byName.subMap(q, true, last, true).values()) {
+                matches.add(component);
+                if (matches.size() == limit) {
+                    break;
+                }
+            }
+            return matches;
+        }
+        // Both ranges are sorted, so the first limit visible names of each are enough
+        TreeMap<String, NeedComponent> merged = new TreeMap<>();
+        for (Map.Entry<String, NeedComponent> entry : byName.subMap(q, true, last, true).entrySet()) {
+            merged.put(entry.getKey(), entry.getValue());
+            if (merged.size() == limit) {
+                break;
+            }
+        }
+        int fromBase = 0;
+        for (Map.Entry<String, NeedComponent> entry : base.byName.subMap(q, true, last, true).entrySet()) {
+            if (!masked.contains(entry.getKey()) && merged.putIfAbsent(entry.getKey(), entry.getValue()) == null && ++fromBase == limit) {
+                break;
+            }
+        }
+        List<NeedComponent> matches = new ArrayList<>(merged.values());
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    // Names posted under the trigram here or in the base; masked base names are filtered later
+    private Set<String> postingsOf(String trigram) {
+        Set<String> names = postings.get(trigram);
+        Set<String> baseNames = base == null ? null : base.postings.get(trigram);
+        if (baseNames == null) {
+            return names;
+        }
+        if (names == null) {
+            return baseNames;
+        }
+        Set<String> union = new HashSet<>(baseNames);
+        union.addAll(names);
+        return union;
+    }
+
+    /**
+     * Returns up to limit catalog entries for the query: exact prefix matches first
+     * (alphabetically), then names containing the query, then close misspellings.
+     */
+    List<NeedComponent> search(String query, int limit) {
+        String q = key(query.trim());
+        List<NeedComponent> results = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        // 1. Prefix matches straight out of the sorted map
+        results.addAll(prefixMatches(q, limit));
+        if (results.size() == limit) {
+            return results;
+        }
+
+        // 2. Candidates that share a trigram with the query, with how many they share.
+        // Rare trigrams nominate candidates; trigrams common to a large part of the
+        // catalog ("ite", "$it") only add to the counts of names already nominated,
+        // so a query costs about the size of its rarest postings, not the whole catalog.
+        Set<String> queryTrigrams = trigrams(q);
+        List<Set<String>> lists = new ArrayList<>();
+        for (String trigram : queryTrigrams) {
+            Set<String> names = postingsOf(trigram);
+            if (names != null) {
+                lists.add(names);
+            }
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        int commonSize = Math.max(COMMON_POSTINGS_MIN, size() / 8);
+        Map<String, int[]> shared = new HashMap<>();
+        for (int i = 0; i < lists.size(); i++) {
+            Set<String> names = lists.get(i);
+            if (i == 0 || names.size() <= commonSize) {
+                for (String name : names) {
+                    shared.computeIfAbsent(name, k -> new int[1])[0]++;
+                }
+            } else {
+                for (Map.Entry<String, int[]> candidate : shared.entrySet()) {
+                    if (names.contains(candidate.getKey())) {
+                        candidate.getValue()[0]++;
+                    }
+                }
+            }
+        }
+
+        // Each edit can break at most three trigrams (q-gram lemma), and the query's
+        // trailing '$' trigram never matches a longer name, so weaker candidates are skipped
+        int maxDistance = Math.max(1, q.length() / 3);
+        int minShared = Math.max(1, queryTrigrams.size() - 1 - 3 * maxDistance);
+
+        // Keep only the best few in a bounded heap whose head is the worst kept match
+        int wanted = limit - results.size();
+        PriorityQueue<Match> best = new PriorityQueue<>(wanted + 1, RANKING.reversed());
+        for (Map.Entry<String, int[]> candidate : shared.entrySet()) {
+            String name = candidate.getKey();
+            int sharedCount = candidate.getValue()[0];
+            if (sharedCount < minShared || name.startsWith(q)) {
+                continue; // Too different, or already returned as a prefix match
+            }
+            if (base != null && get(name) == null) {
+                continue; // A masked base name
+            }
+            // Once the heap is full, a candidate must beat its worst entry
+            int cutoff = best.size() == wanted ? best.peek().distance() : maxDistance;
+            int distance = name.contains(q) ? 0 : prefixDistance(q, name, cutoff);
+            if (distance > cutoff) {
+                continue;
+            }
+            Match match = new Match(name, distance, sharedCount);
+            if (best.size() < wanted) {
+                best.add(match);
+            } else if (RANKING.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+        for (Match match : matches) {
+            results.add(get(match.name()));
+        }
+        return results;
+    }
+
+    private record Match(String name, int distance, int shared) {}
+
+    // Closest first, then the most shared trigrams, then alphabetical
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::distance)
+            .thenComparing(Comparator.comparingInt(Match::shared).reversed())
+            .thenComparing(Match::name);
+
+    /*
+     * Levenshtein distance from the query to the closest prefix of the name, so a
+     * half-typed, misspelled name ("grocry") still finds "grocery budget".
+     * Gives up early (returning maxDistance + 1) once no prefix can be close enough.
+     */
+    private static int prefixDistance(String query, String name, int maxDistance) {
+        int[] previous = new int[name.length() + 1];
+        int[] current = new int[name.length() + 1];
+        for (int j = 0; j <= name.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowBest = i;
+            for (int j = 1; j <= name.length(); j++) {
+                int cost = query.charAt(i - 1) == name.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowBest = Math.min(rowBest, current[j]);
+            }
+            if (rowBest > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (int distance : previous) {
+            best = Math.min(best, distance);
+        }
+        return best;
+    }
+
+    // Trigrams of the name padded with '$' so short names and word edges still match
+    private static Set<String> trigrams(String key) {
+        String padded = "$" + key + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
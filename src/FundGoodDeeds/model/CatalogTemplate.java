@@ -0,0 +1,87 @@
+package FundGoodDeeds.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A needs catalog loaded once and shared, read-only, by every user's NeedsRepository
+ * (see NeedsRepository.setTemplate). Users whose needs.csv rows match the template's
+ * hold its Need and Bundle objects instead of loading copies of their own.
+ *
+ * Nothing here is ever modified after it is built: a user's edit goes to a private
+ * copy of the entry (and of the bundles above it), so the other users keep seeing
+ * the template. Its bundles keep the structural epoch of the repository that built
+ * them, which nothing bumps afterwards, so their compiled leaf vectors stay valid.
+ */
+public final class CatalogTemplate {
+    // Template ids; user symbol tables extend this one
+    final SymbolTable symbols;
+    // Entries by symbol id
+    final NeedComponent[] byId;
+    // Each entry once, in needs.csv order
+    final List<NeedComponent> order;
+    final CatalogSearchIndex index;
+
+    CatalogTemplate(SymbolTable symbols, NeedComponent[] byId, List<NeedComponent> order, CatalogSearchIndex index) {
+        this.symbols = symbols;
+        this.byId = byId;
+        this.order = Collections.unmodifiableList(order);
+        this.index = index;
+    }
+
+    /**
+     * Builds a template from rows in the needs.csv format, e.g. the shared needs.csv.
+     * @param rows The rows (n,name,total / b,name,comp,count,...).
+     */
+    public static CatalogTemplate of(List<String> rows) {
+        return NeedsRepository.buildTemplate(rows);
+    }
+
+    // Number of entries
+    public int size() {
+        return order.size();
+    }
+
+    // Ids below this are template ids
+    int idLimit() {
+        return byId.length;
+    }
+
+    // true if the component is one of the template's own objects
+    boolean holds(NeedComponent component) {
+        int id = component.getId();
+        return id >= 0 && id < byId.length && byId[id] == component;
+    }
+
+    /**
+     * Checks whether a needs.csv row describes the entry exactly as the template has it:
+     * same kind, same name (including case), same total or the same components and
+     * counts in the same order. Numbers are compared by value, so 400 matches 400.0.
+     * @param fields The row, split on commas.
+     */
+    boolean matches(String[] fields, NeedComponent component) {
+        if (!fields[1].equals(component.getName())) {
+            return false;
+        }
+        try {
+            if (component instanceof Need need) {
+                return fields[0].equals("n") && fields.length == 3 && Double.parseDouble(fields[2]) == need.getTotal();
+            }
+            Bundle bundle = (Bundle) component;
+            if (!fields[0].equals("b")) {
+                return false;
+            }
+            int[] index = {2};
+            boolean[] same = {true};
+            bundle.forEachComponent((part, count) -> {
+                int at = index[0];
+                same[0] = same[0] && at + 1 < fields.length && fields[at].equals(part.getName())
+                        && Double.parseDouble(fields[at + 1]) == count;
+                index[0] = at + 2;
+            });
+            return same[0] && index[0] == fields.length;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package FundGoodDeeds.model;
+
+/**
+ * Insertion-ordered table of a Bundle's direct components and their unit counts.
+ *
+ * Components are stored in parallel arrays (component, primitive count) in the order
+ * they were added, which is the order written back to needs.csv. A small open-addressing
+ * index maps each component's symbol id to its array slot, so lookups are O(1), never
+ * box counts, and are unaffected by renames.
+ *
+ * Removing a component leaves a hole that iteration skips. Holes are compacted away
+ * once they outnumber the live entries.
+ */
+final class ComponentTable {
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private NeedComponent[] components = new NeedComponent[4];
+    private int[] counts = new int[4];
+    private int end;   // One past the last used slot
+    private int live;  // Number of slots that still hold a component
+
+    // Index slot values: EMPTY, DELETED, or (array slot + 1)
+    private int[] index = new int[8];
+    private int indexUsed;
+
+    int size() {
+        return live;
+    }
+
+    /** One past the last slot to visit when iterating; slots holding null are holes. */
+    int end() {
+        return end;
+    }
+
+    NeedComponent componentAt(int slot) {
+        return components[slot];
+    }
+
+    int countAt(int slot) {
+        return counts[slot];
+    }
+
+    void setCount(int slot, int count) {
+        counts[slot] = count;
+    }
+
+    /**
+     * Finds the slot holding the component with the given symbol id.
+     * @return The slot, or -1 if the bundle has no such component.
+     */
+    int find(int id) {
+        if (id == SymbolTable.NONE) {
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            int entry = index[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED && components[entry - 1].getId() == id) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /** Adds units of a component, appending it if the bundle does not have it yet. */
+    void add(NeedComponent component, int quantity) {
+        if (component.getId() == SymbolTable.NONE) {
+            throw new IllegalArgumentException("Component '" + component.getName() + "' must be in the needs catalog before it can join a bundle.");
+        }
+        int slot = find(component.getId());
+        if (slot >= 0) {
+            counts[slot] += quantity;
+            return;
+        }
+
+        if (end == components.length) {
+            growOrCompact();
+        }
+        components[end] = component;
+        counts[end] = quantity;
+        insertIndex(end);
+        end++;
+        live++;
+    }
+
+    /** Puts another instance of the same component (same id) into the slot, keeping its count. */
+    void replace(int slot, NeedComponent component) {
+        components[slot] = component;
+    }
+
+    /** Removes every component. */
+    void clear() {
+        components = new NeedComponent[4];
+        counts = new int[4];
+        end = 0;
+        live = 0;
+        index = new int[8];
+        indexUsed = 0;
+    }
+
+    /** Removes the component in the given slot entirely. */
+    void remove(int slot) {
+        int mask = index.length - 1;
+        for (int i = hash(components[slot].getId()) & mask; ; i = (i + 1) & mask) {
+            if (index[i] == slot + 1) {
+                index[i] = DELETED;
+                break;
+            }
+        }
+
+        components[slot] = null;
+        counts[slot] = 0;
+        live--;
+
+        if (end - live > live && end - live > 8) {
+            compact();
+        }
+    }
+
+    private void insertIndex(int slot) {
+        if ((indexUsed + 1) * 2 > index.length) {
+            rebuildIndex(live + 1);
+        }
+        int mask = index.length - 1;
+        int i = hash(components[slot].getId()) & mask;
+        while (index[i] > EMPTY) {
+            i = (i + 1) & mask;
+        }
+        if (index[i] == EMPTY) {
+            indexUsed++;
+        }
+        index[i] = slot + 1;
+    }
+
+    // Sizes the index to stay at most half full for the expected entries, then re-inserts
+    private void rebuildIndex(int expected) {
+        int capacity = 8;
+        while (capacity < expected * 2 + 2) {
+            capacity <<= 1;
+        }
+        index = new int[capacity];
+        indexUsed = 0;
+
+        int mask = capacity - 1;
+        for (int slot = 0; slot < end; slot++) {
+            if (components[slot] != null) {
+                int i = hash(components[slot].getId()) & mask;
+                while (index[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                index[i] = slot + 1;
+                indexUsed++;
+            }
+        }
+    }
+
+    private void growOrCompact() {
+        if (live < end / 2) {
+            compact();
+            return;
+        }
+        NeedComponent[] newComponents = new NeedComponent[components.length * 2];
+        int[] newCounts = new int[counts.length * 2];
+        System.arraycopy(components, 0, newComponents, 0, end);
+        System.arraycopy(counts, 0, newCounts, 0, end);
+        components = newComponents;
+        counts = newCounts;
+    }
+
+    // Slides live entries down over the holes, keeping their insertion order
+    private void compact() {
+        int target = 0;
+        for (int slot = 0; slot < end; slot++) {
+            if (components[slot] != null) {
+                components[target] = components[slot];
+                counts[target] = counts[slot];
+                target++;
+            }
+        }
+        for (int slot = target; slot < end; slot++) {
+            components[slot] = null;
+            counts[slot] = 0;
+        }
+        end = target;
+        rebuildIndex(live);
+    }
+
+    // Ids are small and dense, so spread them before masking
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
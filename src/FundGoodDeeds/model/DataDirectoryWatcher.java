@@ -0,0 +1,106 @@
+package FundGoodDeeds.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the CSV data directory and every user directory in it, and runs a callback
+ * when a .csv (or sealed .csvz) file is created, changed or deleted.
+ *
+ * A save is several events (temp file, rename), so events are collected until the
+ * directory has been quiet for QUIET_MILLIS and the callback runs once per burst.
+ * The callback only hears that something changed; it asks the StorageEngine what
+ * (see changeSince), which also makes the app's own saves a no-op.
+ */
+public class DataDirectoryWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 300;
+
+    private final WatchService watchService;
+    private final Runnable onChange;
+
+    /**
+     * Starts watching on a background (daemon) thread.
+     * @param dataDirectory The shared data directory; its subdirectories are watched too.
+     * @param onChange Runs on the watcher thread after each burst of changes.
+     */
+    public DataDirectoryWatcher(Path dataDirectory, Runnable onChange) throws IOException {
+        this.watchService = dataDirectory.getFileSystem().newWatchService();
+        this.onChange = onChange;
+        register(dataDirectory);
+        try (DirectoryStream<Path> userDirectories = Files.newDirectoryStream(dataDirectory, Files::isDirectory)) {
+            for (Path userDirectory : userDirectories) {
+                register(userDirectory);
+            }
+        }
+
+        Thread thread = new Thread(this::run, "data-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean relevant = handle(watchService.take());
+                WatchKey next;
+                while ((next = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= handle(next);
+                }
+                if (relevant) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Error: Could not apply data file changes: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed; stop watching
+        }
+    }
+
+    // true if the key's events touch a data file
+    private boolean handle(WatchKey key) {
+        boolean relevant = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true; // Events were lost; let the callback check everything
+                continue;
+            }
+            Path changed = directory.resolve((Path) event.context());
+            String name = changed.getFileName().toString();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                // A new user's directory
+                try {
+                    register(changed);
+                } catch (IOException e) {
+                    System.err.println("Warning: Cannot watch " + changed + ": " + e.getMessage());
+                }
+            } else if (name.endsWith(".csv") || name.endsWith(BlockCompressedFile.EXTENSION)) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,37 @@
+package FundGoodDeeds.model;
+
+/**
+ * The datasets a StorageEngine keeps. Each is a list of rows in the comma-separated
+ * format its repository already reads and writes, for example
+ *   NEEDS:   n,Electric Bill,150.0 / b,Home Utilities,Electric Bill,1.0,Water Bill,1.0
+ *   FUNDING: i,Paycheck,1800.0[,w,2,2025-01-03]
+ *   LEDGER:  2025,11,28,n,Gym Membership,3.0 / 2025,11,28,f,150.0
+ *   USERS:   username,passwordHash,firstName,lastName
+ * The first column is the row's key: its kind for NEEDS and FUNDING, the year
+ * for LEDGER and the username for USERS.
+ *
+ * NEEDS, FUNDING and LEDGER belong to the logged-in user; USERS is shared.
+ */
+public enum Dataset {
+    NEEDS(true),
+    FUNDING(true),
+    LEDGER(true),
+    USERS(false);
+
+    private final boolean perUser;
+
+    Dataset(boolean perUser) {
+        this.perUser = perUser;
+    }
+
+    // true if each user has their own copy of this dataset
+    public boolean isPerUser() {
+        return perUser;
+    }
+
+    // The key of a row: everything before its first comma
+    public static String keyOf(String row) {
+        int comma = row.indexOf(',');
+        return comma < 0 ? row : row.substring(0, comma);
+    }
+}
@@ -0,0 +1,20 @@
+package FundGoodDeeds.model;
+
+import java.util.List;
+
+/**
+ * What happened to a dataset's stored copy since this app last loaded or saved it
+ * (see StorageEngine.changeSince).
+ * @param kind UNCHANGED, APPENDED (only rows were added at the end) or REPLACED (anything else).
+ * @param appendedRows The added rows for APPENDED; empty otherwise.
+ */
+public record DatasetChange(Kind kind, List<String> appendedRows) {
+    public enum Kind { UNCHANGED, APPENDED, REPLACED }
+
+    public static final DatasetChange UNCHANGED = new DatasetChange(Kind.UNCHANGED, List.of());
+    public static final DatasetChange REPLACED = new DatasetChange(Kind.REPLACED, List.of());
+
+    public static DatasetChange appended(List<String> rows) {
+        return new DatasetChange(Kind.APPENDED, List.copyOf(rows));
+    }
+}
@@ -0,0 +1,40 @@
+package FundGoodDeeds.model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers ModelEvents to listeners. A session's three repositories (and its
+ * MasterController, for the selected date) publish on one bus, so a view
+ * subscribes once and sees every change in the order it happened.
+ *
+ * Delivery is synchronous, on the publishing thread, in subscription order.
+ * Listeners may subscribe or unsubscribe while an event is being delivered.
+ */
+public class EventBus {
+
+    /**
+     * Told about every change published on the bus. Most listeners only care
+     * about some events; switch on the type and ignore the rest.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void changed(ModelEvent event);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(ModelEvent event) {
+        for (Listener listener : listeners) {
+            listener.changed(event);
+        }
+    }
+}
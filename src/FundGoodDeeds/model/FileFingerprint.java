@@ -0,0 +1,78 @@
+package FundGoodDeeds.model;
+
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * What CSVManager last read from or wrote to a file: its size, modification time,
+ * a CRC32C of the whole content and the content's last few KiB.
+ *
+ * Size and time decide cheaply that nothing changed. If they differ, the CRC tells
+ * a touched file from an edited one. If the file only grew and the bytes just
+ * before the old end are still the same, the change is taken to be an append, and
+ * only the new bytes need to be read.
+ */
+final class FileFingerprint {
+    private static final int TAIL_BYTES = 4096;
+
+    private final long size;
+    private final FileTime modified;
+    // Running checksum of the content; extended in place when an append is accepted
+    private final CRC32C crc;
+    private final long crcValue;
+    private final byte[] tail;
+
+    private FileFingerprint(long size, FileTime modified, CRC32C crc, byte[] tail) {
+        this.size = size;
+        this.modified = modified;
+        this.crc = crc;
+        this.crcValue = crc.getValue();
+        this.tail = tail;
+    }
+
+    static FileFingerprint of(byte[] content, FileTime modified) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return new FileFingerprint(content.length, modified, crc, Arrays.copyOfRange(content, Math.max(0, content.length - TAIL_BYTES), content.length));
+    }
+
+    long size() {
+        return size;
+    }
+
+    // Same size and modification time: treated as unchanged without reading the file
+    boolean sameStat(long size, FileTime modified) {
+        return this.size == size && this.modified.equals(modified);
+    }
+
+    boolean sameContent(byte[] content) {
+        CRC32C check = new CRC32C();
+        check.update(content);
+        return content.length == size && check.getValue() == crcValue;
+    }
+
+    // How many bytes before the old end readers must compare to accept a growth as an append
+    int tailLength() {
+        return tail.length;
+    }
+
+    /**
+     * @param window The bytes of the grown file just before the old end (tailLength() of them).
+     * @return true if they match, and the old content ended a row.
+     */
+    boolean isPrefixOf(byte[] window) {
+        return Arrays.equals(window, tail) && (size == 0 || tail[tail.length - 1] == '\n');
+    }
+
+    /**
+     * The fingerprint of the file after the given bytes were appended. This one must not
+     * be used afterwards, since they share the running checksum.
+     */
+    FileFingerprint appended(byte[] added, FileTime modified) {
+        crc.update(added);
+        byte[] joined = Arrays.copyOf(tail, tail.length + added.length);
+        System.arraycopy(added, 0, joined, tail.length, added.length);
+        return new FileFingerprint(size + added.length, modified, crc, Arrays.copyOfRange(joined, Math.max(0, joined.length - TAIL_BYTES), joined.length));
+    }
+}
@@ -1,33 +1,83 @@
 package FundGoodDeeds.model;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
 
-@SuppressWarnings("deprecation")
-public class FundingRepository extends Observable {
-    private CSVManager csvManager;
+public class FundingRepository {
+    private StorageEngine storage;
+    private final EventBus events;
     private List<FundingSource> fundingSources;
+    // Funding-source names for this user; INCOME ledger rows hold these ids
+    private final SymbolTable symbols = new SymbolTable();
+    // Sources indexed by symbol id (null if that name is not a current source)
+    private FundingSource[] sourcesById = new FundingSource[16];
+    // Sum of every source's amount, kept up to date by each add, edit and remove
+    private double totalFunds;
+    // Unsaved changes since the last load or save
+    private volatile boolean dirty;
+
+    private final List<AmountListener> amountListeners = new ArrayList<>();
+
+    /**
+     * Told when the amount income is priced at changes for a funding source, so
+     * anything that caches income can re-price just that source.
+     */
+    public interface AmountListener {
+        /**
+         * @param sourceId Symbol id of the source.
+         * @param oldAmount The previous amount (0 if the source did not exist).
+         * @param newAmount The new amount (0 if the source was removed).
+         */
+        void amountChanged(int sourceId, double oldAmount, double newAmount);
+
+        // Every source may have changed (e.g. funding.csv was reloaded)
+        void allAmountsChanged();
+    }
+
+    public void addAmountListener(AmountListener listener) {
+        amountListeners.add(listener);
+    }
 
     // constructor
-    public FundingRepository(CSVManager csvManager) {
-        this.csvManager = csvManager;
+    public FundingRepository(StorageEngine storage) {
+        this(storage, new EventBus());
+    }
+
+    /**
+     * @param events Where changes to the sources are published.
+     */
+    public FundingRepository(StorageEngine storage, EventBus events) {
+        this.storage = storage;
+        this.events = events;
         this.fundingSources = new ArrayList<>();
     }
 
     /**
-     * takes in raw funding source data from CSVManager
+     * takes in raw funding source data from the storage engine
      * splits each line into its components and creates FundingSource objects.
      * i,Student Loan,5000.0 > FundingSource("Student Loan", 5000.0)
+     * Recurring sources carry a rule after the amount:
+     * i,Paycheck,1800.0,w,2,2025-01-03 > paid 1800.0 every other week from 2025-01-03
      */
     public void getSourcesFromCSV() {
 
-        List<String> rawSourcesList = csvManager.readData("funding.csv");
+        List<String> rawSourcesList = storage.load(Dataset.FUNDING);
         for (String rawSource : rawSourcesList) {
             String[] individualSource = rawSource.split(",");
             FundingSource source = new FundingSource(individualSource[1], Double.parseDouble(individualSource[2]));
+            try {
+                source.setRecurrence(RecurrenceRule.fromCSV(individualSource, 3));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Warning: Funding source '" + source.getName() + "' has a malformed recurrence. It will be treated as one-off. " + e.getMessage());
+            }
+            register(source);
             this.fundingSources.add(source);
+            this.totalFunds += source.getAmount();
         }
     }
 
@@ -36,63 +86,134 @@ public class FundingRepository extends Observable {
 
     public void saveFundsCatalog() throws IOException {
         saveSourcesToCSV();
-        setChanged();
-        notifyObservers();
+        dirty = false;
+        events.publish(new ModelEvent.Saved(Dataset.FUNDING, storage.locationOf(Dataset.FUNDING)));
+    }
+
+    /**
+     * Hands funding.csv to the write-behind service (if one is attached) and returns at once.
+     * The lines are built on the calling thread, so later edits cannot leak into this save.
+     * @return Completes when the sources are on disk.
+     */
+    public CompletableFuture<Void> saveFundsCatalogAsync() {
+        List<String> rawSourcesList = toCSVLines();
+        dirty = false;
+        return storage.replaceLater(Dataset.FUNDING, rawSourcesList).whenComplete((done, error) -> {
+            if (error != null) {
+                dirty = true; // Never reached the disk
+            }
+        });
+    }
+
+    /*
+     * Dirty tracking: every edit listeners are told about is also a change that
+     * needs saving, so marking happens here. Loading and saving clear it.
+     */
+    private void changed(ModelEvent event) {
+        dirty = true;
+        events.publish(event);
+    }
+
+    // true if the in-memory data differs from what was last loaded or saved
+    public boolean isDirty() {
+        return dirty;
     }
 
     // Loads funds from CSV
 
     public void loadFunds()
+    {
+        loadFundsQuietly();
+        events.publish(new ModelEvent.Reloaded(Dataset.FUNDING));
+    }
+
+    /**
+     * Loads the funding sources like loadFunds but publishes nothing; the caller publishes
+     * Reloaded later, so a load on a background thread never reaches the views from there.
+     */
+    public void loadFundsQuietly()
     {
         this.fundingSources.clear();
+        Arrays.fill(sourcesById, null);
+        this.totalFunds = 0.0;
         getSourcesFromCSV();
-        setChanged();
-        notifyObservers();
+        for (AmountListener listener : amountListeners) {
+            listener.allAmountsChanged();
+        }
+        dirty = false;
     }
 
 
-    // list current funding sources
+    // list current funding sources (read-only, so the cached total cannot drift)
     public List<FundingSource> getFundingSources() {
-        return this.fundingSources;
+        return Collections.unmodifiableList(this.fundingSources);
     }
 
     // save funding sources to CSV
     public void saveSourcesToCSV() throws IOException {
+        // Failures propagate so the caller can report that the save did not happen
+        storage.replace(Dataset.FUNDING, toCSVLines());
+    }
+
+    private List<String> toCSVLines() {
         List<String> rawSourcesList = new ArrayList<>();
 
         for (FundingSource source : this.fundingSources) {
             String name = source.getName();
             String amount = Double.toString(source.getAmount());
             String rawSource = "i," + name + "," + amount;
+            if (source.getRecurrence() != null) {
+                rawSource += "," + source.getRecurrence().toCSV();
+            }
 
             // String rawSource = String.format("i,%s,%.2f", source.getName(), source.getAmount());
 
             rawSourcesList.add(rawSource);
 
         }
-
-        try {
-            csvManager.writeData("funding.csv", rawSourcesList);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        return rawSourcesList;
     }
 
     // OR
 
     public void addFundingSource(String name, Double amount) {
-        this.fundingSources.add(new FundingSource(name, amount));
-        setChanged();
-        notifyObservers();
+        FundingSource source = new FundingSource(name, amount);
+        boolean isNew = getFundingSourceByName(name) == null;
+        register(source);
+        this.fundingSources.add(source);
+        this.totalFunds += source.getAmount();
+        if (isNew) {
+            // Ledger rows may already reference this name from before it was removed
+            fireAmountChanged(source.getId(), 0.0, source.getAmount());
+        }
+        changed(new ModelEvent.FundingChanged(name, 0.0, source.getAmount()));
     }
 
     public FundingSource getFundingSourceByName(String name) {
-        for (FundingSource source : this.fundingSources) {
-            if (source.getName().equalsIgnoreCase(name)) {
-                return source;
-            }
+        return getFundingSourceById(symbols.idOf(name));
+    }
+
+    public FundingSource getFundingSourceById(int id) {
+        if (id == SymbolTable.NONE || id >= sourcesById.length) {
+            return null;
+        }
+        return sourcesById[id];
+    }
+
+    public SymbolTable getSymbolTable() {
+        return this.symbols;
+    }
+
+    // Interns the source's name; the first source registered under a name wins
+    private void register(FundingSource source) {
+        int id = symbols.intern(source.getName());
+        source.setId(id);
+        if (id >= sourcesById.length) {
+            sourcesById = Arrays.copyOf(sourcesById, Math.max(id + 1, sourcesById.length * 2));
+        }
+        if (sourcesById[id] == null) {
+            sourcesById[id] = source;
         }
-        return null;
     }
 
     // incoming from controller source name and new amount
@@ -101,31 +222,88 @@ public class FundingRepository extends Observable {
         if (source == null) {
             System.out.println("ERROR: FUNDING SOURCE NOT FOUND");
         } else {
+            double oldAmount = source.getAmount();
+            this.totalFunds += newAmount - oldAmount;
             source.setAmount(newAmount);
-            setChanged();
-            notifyObservers();
+            fireAmountChanged(source.getId(), oldAmount, newAmount);
+            changed(new ModelEvent.FundingChanged(source.getName(), oldAmount, newAmount));
         }
 
     }
 
     public void removeFundingSource(String name) {
-        getFundingSourceByName(name);
-        this.fundingSources.removeIf(source -> source.getName().equals(name));
-        setChanged();
-        notifyObservers();
+        FundingSource removed = getFundingSourceByName(name);
+        if (removed != null) {
+            int id = removed.getId();
+            this.fundingSources.removeIf(source -> {
+                if (source.getId() != id) {
+                    return false;
+                }
+                this.totalFunds -= source.getAmount();
+                return true;
+            });
+            sourcesById[id] = null;
+            fireAmountChanged(id, removed.getAmount(), 0.0);
+            changed(new ModelEvent.FundingChanged(removed.getName(), removed.getAmount(), 0.0));
+        }
     }
 
-    public double getTotalFunds() {
+    private void fireAmountChanged(int sourceId, double oldAmount, double newAmount) {
+        if (oldAmount != newAmount) {
+            for (AmountListener listener : amountListeners) {
+                listener.amountChanged(sourceId, oldAmount, newAmount);
+            }
+        }
+    }
+
+    /**
+     * Sets or clears the recurrence of a funding source.
+     * @param sourceName The funding source name.
+     * @param recurrence The payout schedule, or null to stop scheduled payouts.
+     */
+    public void setRecurrence(String sourceName, RecurrenceRule recurrence) {
+        FundingSource source = getFundingSourceByName(sourceName);
+        if (source == null) {
+            System.out.println("ERROR: FUNDING SOURCE NOT FOUND");
+        } else {
+            source.setRecurrence(recurrence);
+            changed(new ModelEvent.FundingChanged(source.getName(), source.getAmount(), source.getAmount()));
+        }
+    }
+
+    /**
+     * Income from every recurring source's scheduled payouts between two dates (inclusive).
+     * Payouts are counted in closed form, never expanded.
+     */
+    public double getScheduledIncome(LocalDate from, LocalDate to) {
         double total = 0.0;
         for (FundingSource source : this.fundingSources) {
-            total += source.getAmount();
+            // Duplicate names share an id; only the source that owns the name counts
+            if (source.getRecurrence() != null && sourcesById[source.getId()] == source) {
+                total += source.getAmount() * source.getRecurrence().countBetween(from, to);
+            }
         }
         return total;
     }
 
+    /**
+     * Income from one source's scheduled payouts between two dates (inclusive).
+     */
+    public double getScheduledIncome(String sourceName, LocalDate from, LocalDate to) {
+        FundingSource source = getFundingSourceByName(sourceName);
+        if (source == null || source.getRecurrence() == null) {
+            return 0.0;
+        }
+        return source.getAmount() * source.getRecurrence().countBetween(from, to);
+    }
+
+    public double getTotalFunds() {
+        return this.totalFunds;
+    }
+
     public void setUser(User user)
     {
-        this.csvManager.setUserPath(user);
+        this.storage.setUser(user);
     }
 
 }
@@ -3,6 +3,9 @@ package FundGoodDeeds.model;
 public class FundingSource {
     private String name;
     private double amount;  
+    private int id = SymbolTable.NONE;
+    // Scheduled payouts of amount each; null for sources only paid through INCOME entries
+    private RecurrenceRule recurrence;
 
     public FundingSource(String name, double amount) {
         this.name = name;
@@ -17,19 +20,38 @@ public class FundingSource {
     public String getName() {
         return name;
     }
+
+    // Symbol id assigned by the FundingRepository
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
     
+    public RecurrenceRule getRecurrence() {
+        return recurrence;
+    }
+
+    // Set through the FundingRepository so listeners hear about the change
+    void setRecurrence(RecurrenceRule recurrence) {
+        this.recurrence = recurrence;
+    }
+
     // setters
     public void setName(String name) {
         this.name = name;
     }
 
-    public void setAmount(double amount) {
+    // Package-private: the FundingRepository keeps a running total of all amounts
+    void setAmount(double amount) {
         this.amount = amount;
     }
     
     @Override
     public String toString(){
-        return getName() + ": " + getAmount();
+        return getName() + ": " + getAmount() + (recurrence == null ? "" : " (" + recurrence + ")");
     }
     
 }
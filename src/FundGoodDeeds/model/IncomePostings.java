@@ -0,0 +1,97 @@
+package FundGoodDeeds.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The INCOME ledger entries for one funding source, kept sorted by date.
+ *
+ * Alongside the entries sits a prefix sum of their units, so the units received
+ * between two dates are two binary searches and a subtraction. The prefix sum is
+ * rebuilt lazily after entries are added or removed. Income is units times the
+ * source's current amount, which the LedgerRepository applies.
+ */
+final class IncomePostings {
+    private final List<LedgerEntity> entries = new ArrayList<>();
+    private double totalUnits;
+    // prefixUnits[i] = units of entries[0..i); null when entries changed since the last build
+    private double[] prefixUnits;
+
+    /** Inserts the entry after any entries on the same date, keeping ledger order within a day. */
+    void add(LedgerEntity entry) {
+        entries.add(firstAfter(entry.getDate()), entry);
+        totalUnits += entry.getCount();
+        prefixUnits = null;
+    }
+
+    /** Removes this exact entry (by identity). */
+    boolean remove(LedgerEntity entry) {
+        for (int i = firstOnOrAfter(entry.getDate()); i < entries.size() && entries.get(i).getDate().equals(entry.getDate()); i++) {
+            if (entries.get(i) == entry) {
+                entries.remove(i);
+                totalUnits -= entry.getCount();
+                prefixUnits = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    double getTotalUnits() {
+        return totalUnits;
+    }
+
+    /** Units received from the first date through the last date, both inclusive. */
+    double getUnitsBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0.0;
+        }
+        if (prefixUnits == null) {
+            prefixUnits = new double[entries.size() + 1];
+            for (int i = 0; i < entries.size(); i++) {
+                prefixUnits[i + 1] = prefixUnits[i] + entries.get(i).getCount();
+            }
+        }
+        return prefixUnits[firstAfter(to)] - prefixUnits[firstOnOrAfter(from)];
+    }
+
+    List<LedgerEntity> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    // Index of the first entry dated on or after the date
+    private int firstOnOrAfter(LocalDate date) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).getDate().isBefore(date)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first entry dated after the date
+    private int firstAfter(LocalDate date) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).getDate().isAfter(date)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,38 @@
+package FundGoodDeeds.model;
+
+import java.time.LocalDate;
+import java.util.OptionalDouble;
+
+/**
+ * Ledger questions a storage engine can answer from its own indexes, so the
+ * LedgerRepository does not have to scan every entry. Answers describe the
+ * ledger as last saved, so the repository only asks while it has no unsaved
+ * changes.
+ *
+ * Kinds are the ledger row letters: n (need), i (income), f (funds), g (goal), t (threshold).
+ * Both methods throw IllegalStateException if the engine could not run the query.
+ *
+ * Income totals (findIncome, getIncomeBetween) are deliberately not here: the
+ * repository already keeps them per day and per funding source, and reading those
+ * takes about 1 us against 150-250 us for the indexed SQL on H2 with a 100,000-entry
+ * ledger (see IncomeAggregateBenchmark).
+ */
+public interface LedgerAggregates {
+
+    /**
+     * The amount in effect on a date for a FUND, GOAL or THRESHOLD kind: the last
+     * entry on that date, otherwise the first entry on the latest earlier date
+     * (the same rule LedgerRepository.getEntryForDate applies in memory).
+     * @param kind 'f', 'g' or 't'.
+     * @param date The date to look at.
+     * @return The amount, or empty if no entry of that kind is on or before the date.
+     */
+    OptionalDouble latestAmount(char kind, LocalDate date);
+
+    /**
+     * @param date The date to look at.
+     * @param kinds The kinds to look for, e.g. "ni".
+     * @return true if the ledger has an entry of one of the kinds on the date.
+     */
+    boolean hasEntries(LocalDate date, String kinds);
+}
@@ -5,9 +5,12 @@ import java.time.LocalDate;
 public class LedgerEntity implements AbstractLedgerEntry {
 	private final LocalDate date;
 	private final EntryType type;
-	private final String needName;
+	private String needName;
 	private final double amount;
 	private final double count;
+	// Once bound by the LedgerRepository, the name is read through the user's symbol table
+	private int nameId = SymbolTable.NONE;
+	private SymbolTable symbols;
 
 	//Constructor for FUND/GOAL entries
 	public LedgerEntity(LocalDate date, EntryType type, double amount) {
@@ -39,7 +42,27 @@ public class LedgerEntity implements AbstractLedgerEntry {
 	}
 
 	public String getNeedName() {
-		return needName;
+		return symbols != null ? symbols.nameOf(nameId) : needName;
+	}
+
+	/**
+	 * Returns the symbol id of the need/bundle (NEED) or funding source (INCOME),
+	 * or SymbolTable.NONE for entries without a name or not yet saved to a ledger.
+	 */
+	public int getNameId() {
+		return nameId;
+	}
+
+	/**
+	 * Swaps the entry's own copy of the name for an id in the given table,
+	 * so later renames in the catalog show up on this row.
+	 */
+	void bindName(SymbolTable symbols) {
+		if (needName != null && this.symbols == null) {
+			this.nameId = symbols.intern(needName);
+			this.symbols = symbols;
+			this.needName = null;
+		}
 	}
 
 	@Override
@@ -68,8 +91,8 @@ public class LedgerEntity implements AbstractLedgerEntry {
      * yyyy,mm,dd,i,name,units
      */
 	public String toCSV() {
-        // Format: yyyy,mm,dd
-        String dateStr = String.format("%d,%d,%d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+        // Format: yyyy,mm,dd, zero-padded like LedgerRepository writes it
+        String dateStr = String.format("%d,%02d,%02d", date.getYear(), date.getMonthValue(), date.getDayOfMonth());
         String typeStr = type.toString().substring(0, 1).toLowerCase(); // f, g, n, i, t
 
         switch (type) {
@@ -82,7 +105,7 @@ public class LedgerEntity implements AbstractLedgerEntry {
             case NEED:
             case INCOME:
                 // 6 fields total: yyyy,mm,dd,type,name,count/units
-                return String.format("%s,%s,%s,%.2f", dateStr, typeStr, needName, count);
+                return String.format("%s,%s,%s,%.2f", dateStr, typeStr, getNeedName(), count);
 
             default:
                 return ""; 
@@ -92,6 +115,6 @@ public class LedgerEntity implements AbstractLedgerEntry {
 	@Override
 	public String toString() {
 		return String.format("[%s] Type: %s, Name: %s, Count: %.2f, Amount: %.2f",
-				date, type, needName, count, amount);
+				date, type, getNeedName(), count, amount);
 	}
 }
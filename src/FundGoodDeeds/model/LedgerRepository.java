@@ -3,57 +3,211 @@ package FundGoodDeeds.model;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Observable;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import FundGoodDeeds.model.AbstractLedgerEntry.EntryType;
 import FundGoodDeeds.model.LedgerEntity;
 
-@SuppressWarnings("deprecation")
-public class LedgerRepository extends Observable {
+public class LedgerRepository {
 	private final List<LedgerEntity> logEntries = new ArrayList<>();
-	public CSVManager manager;
+	public StorageEngine manager;
 	private final NeedsRepository needsRepository; // Dependency for cost lookups
 	private final FundingRepository fundingRepository;
+	private final EventBus events;
+	// INCOME entries grouped by funding-source symbol id, sorted by date
+	private IncomePostings[] incomeBySource = new IncomePostings[16];
+	// Income per day, kept as units per funding source and priced at each source's current amount
+	private final Map<LocalDate, DailyIncome> incomeByDay = new HashMap<>();
+	// Unsaved changes since the last load or save
+	private volatile boolean dirty;
 
 	private static final double DEFAULT_GOAL = 2000.0;
 	private static final double DEFAULT_FUNDS = 150.0;
 	private static final double DEFAULT_THRESHOLD = 2000.0;
 
 	// Updated constructor to accept NeedsRepository
-	public LedgerRepository(CSVManager manager, NeedsRepository needsRepository, FundingRepository fundingRepository)
+	public LedgerRepository(StorageEngine manager, NeedsRepository needsRepository, FundingRepository fundingRepository)
+	{
+		this(manager, needsRepository, fundingRepository, new EventBus());
+	}
+
+	/**
+	 * @param events Where changes to the ledger are published (normally the bus the two catalogs publish on).
+	 */
+	public LedgerRepository(StorageEngine manager, NeedsRepository needsRepository, FundingRepository fundingRepository, EventBus events)
 	{
 		this.manager = manager;
 		this.needsRepository = needsRepository;
 		this.fundingRepository = fundingRepository;
+		this.events = events;
+
+		//Re-price only the days that reference a source whose amount changed
+		fundingRepository.addAmountListener(new FundingRepository.AmountListener() {
+			@Override
+			public void amountChanged(int sourceId, double oldAmount, double newAmount) {
+				repriceSource(sourceId);
+			}
+
+			@Override
+			public void allAmountsChanged() {
+				for (DailyIncome day : incomeByDay.values()) {
+					day.reprice(fundingRepository);
+				}
+			}
+		});
+	}
+
+	/*
+	 * Units received per funding source on one day, plus their total priced at the
+	 * sources' current amounts. A day typically references only a few sources, so
+	 * re-pricing it is cheap.
+	 */
+	private static final class DailyIncome {
+		private final Map<Integer, Double> unitsBySource = new HashMap<>();
+		private double total;
+
+		void addUnits(int sourceId, double units) {
+			unitsBySource.merge(sourceId, units, Double::sum);
+		}
+
+		void reprice(FundingRepository fundingRepository) {
+			double sum = 0.0;
+			for (Map.Entry<Integer, Double> entry : unitsBySource.entrySet()) {
+				FundingSource source = fundingRepository.getFundingSourceById(entry.getKey());
+				if (source != null) {
+					sum += entry.getValue() * source.getAmount();
+				}
+			}
+			total = sum;
+		}
 	}
 
 	public void loadLog()
+	{
+		loadLogQuietly(readLog());
+		events.publish(new ModelEvent.Reloaded(Dataset.LEDGER));
+	}
+
+	/*
+	 * A ledger row with its fields parsed. NEED and INCOME rows are only priced once
+	 * both catalogs are loaded, so reading and parsing can run alongside those loads.
+	 */
+	private record ParsedRow(LocalDate date, String type, String name, double countOrAmount) {}
+
+	/**
+	 * Ledger rows read from storage and parsed, but not yet priced. Made by readLog,
+	 * which touches neither catalog, and installed by loadLogQuietly.
+	 */
+	public static final class ParsedLog {
+		private final List<ParsedRow> rows;
+
+		private ParsedLog(List<ParsedRow> rows) {
+			this.rows = rows;
+		}
+
+		public int size() {
+			return rows.size();
+		}
+	}
+
+	/**
+	 * Reads and parses the stored ledger without looking at either catalog or changing
+	 * this repository, so it may run on another thread while the catalogs load.
+	 */
+	public ParsedLog readLog()
+	{
+		return new ParsedLog(parseRows(getDataFromCSV()));
+	}
+
+	/**
+	 * Replaces the entries with the parsed ledger, pricing NEED and INCOME rows from the
+	 * (loaded) catalogs. Publishes nothing; the caller publishes Reloaded later.
+	 */
+	public void loadLogQuietly(ParsedLog log)
 	{
 		//Clear the existing entries before loading from CSV
         this.logEntries.clear();
+		Arrays.fill(incomeBySource, null);
+		incomeByDay.clear();
 
-		List<String[]> rawData = getDataFromCSV();
-		List<LedgerEntity> entries = new ArrayList<>();
+		List<LedgerEntity> entries = priceEntries(log.rows);
+		for (LedgerEntity entry : entries) {
+			postIncome(bind(entry));
+		}
+		logEntries.addAll(entries);
+		dirty = false;
+	}
+
+	/**
+	 * Adds ledger rows that were appended to the stored ledger by someone else (see
+	 * StorageEngine.changeSince), without re-reading the rows already loaded.
+	 * Publishes one EntriesAppended for all of them. Unsaved changes stay unsaved; the new rows do
+	 * not count as changes, since they are already stored.
+	 * @param rows The appended rows, in file order.
+	 * @return The number of entries added.
+	 */
+	public int applyAppendedRows(List<String> rows)
+	{
+		List<String[]> rawData = new ArrayList<>(rows.size());
+		for (String row : rows) {
+			rawData.add(row.split(","));
+		}
+		List<LedgerEntity> entries = priceEntries(parseRows(rawData));
+		if (entries.isEmpty()) {
+			return 0;
+		}
+		for (LedgerEntity entry : entries) {
+			postIncome(bind(entry));
+		}
+		logEntries.addAll(entries);
+
+		events.publish(new ModelEvent.EntriesAppended(List.copyOf(entries)));
+		return entries.size();
+	}
+
+	// Parses split ledger rows; needs neither catalog
+	private static List<ParsedRow> parseRows(List<String[]> rawData)
+	{
+		List<ParsedRow> rows = new ArrayList<>(rawData.size());
 		for(String[] raw : rawData)
 		{
 			int year = Integer.parseInt(raw[0]);
 			int month = Integer.parseInt(raw[1]);
 			int day = Integer.parseInt(raw[2]);
-			LedgerEntity entity; // Declare entity once
-
 			LocalDate entityDate = LocalDate.of(year,month,day);
-			double countOrUnits = Double.parseDouble(raw[raw.length > 5 ? 5 : 4]);
 			String type = raw[3];
+			//NEED and INCOME rows carry a name and a count; the others only an amount
+			boolean named = type.equals("n") || type.equals("i");
+			double countOrUnits = Double.parseDouble(raw[named && raw.length > 5 ? 5 : 4]);
+			rows.add(new ParsedRow(entityDate, type, named ? raw[4] : null, countOrUnits));
+		}
+		return rows;
+	}
+
+	// Turns parsed ledger rows into entries, pricing NEED and INCOME rows from the catalogs
+	private List<LedgerEntity> priceEntries(List<ParsedRow> rows)
+	{
+		List<LedgerEntity> entries = new ArrayList<>();
+		for(ParsedRow row : rows)
+		{
+			LedgerEntity entity; // Declare entity once
+
+			LocalDate entityDate = row.date();
+			double countOrUnits = row.countOrAmount();
+			String type = row.type();
 
 			switch(type)
 			{
 				
 				case "n":
-					String needName = raw[4];
+					String needName = row.name();
 					NeedComponent need = needsRepository.getNeedByName(needName);
 
 					if (need != null) {
@@ -71,7 +225,7 @@ public class LedgerRepository extends Observable {
 					break;
 
 				case "f":
-					double funds = Double.parseDouble(raw[4]);
+					double funds = row.countOrAmount();
 
 					entity = new LedgerEntity(entityDate, LedgerEntity.EntryType.FUND, funds);
 					entries.add(entity);
@@ -80,21 +234,21 @@ public class LedgerRepository extends Observable {
 				// In case we still need goal
 					
 				case "g":
-					double goal = Double.parseDouble(raw[4]);
+					double goal = row.countOrAmount();
 
 					entity = new LedgerEntity(entityDate, LedgerEntity.EntryType.GOAL, goal);
 					entries.add(entity);
 					break;
 					
 				case "t":
-					double threshold = Double.parseDouble(raw[4]);
+					double threshold = row.countOrAmount();
 
 					entity = new LedgerEntity(entityDate, LedgerEntity.EntryType.THRESHOLD, threshold);
 					entries.add(entity);
 					break;
 
 				case "i":
-					String fundingSourceName = raw[4];
+					String fundingSourceName = row.name();
 					// //DEBUGGING
 					// System.out.println("fundingSourceName = raw[4] ---> " + fundingSourceName);
 					FundingSource source = fundingRepository.getFundingSourceByName(fundingSourceName);
@@ -125,28 +279,131 @@ public class LedgerRepository extends Observable {
 					break;
 				
 				default:
-					System.err.println("Skipping unknown ledger entry type: " + raw[3]);
+					System.err.println("Skipping unknown ledger entry type: " + type);
 					break;
 			}
 		}
 
-		logEntries.addAll(entries);
-		
-		setChanged();
-        notifyObservers();
+		return entries;
+	}
+
+	/*
+	 * Dirty tracking: every edit listeners are told about is also a change that
+	 * needs saving, so marking happens here. Loading and saving clear it.
+	 */
+	private void changed(ModelEvent event) {
+		dirty = true;
+		events.publish(event);
+	}
+
+	// true if the in-memory data differs from what was last loaded or saved
+	public boolean isDirty() {
+		return dirty;
 	}
 
 	public void save(LedgerEntity entry) {
-		logEntries.add(entry);
-		setChanged();
-		notifyObservers();
+		logEntries.add(postIncome(bind(entry)));
+		changed(new ModelEvent.EntryAdded(entry));
+	}
+
+	// Points NEED rows at the catalog's symbol table and INCOME rows at the funding-source table
+	private LedgerEntity bind(LedgerEntity entry) {
+		if (entry.getType() == LedgerEntity.EntryType.NEED) {
+			entry.bindName(needsRepository.getSymbolTable());
+		}
+		else if (entry.getType() == LedgerEntity.EntryType.INCOME) {
+			entry.bindName(fundingRepository.getSymbolTable());
+		}
+		return entry;
+	}
+
+	// Adds a bound INCOME entry to its funding source's postings
+	private LedgerEntity postIncome(LedgerEntity entry) {
+		if (entry.getType() == LedgerEntity.EntryType.INCOME) {
+			int id = entry.getNameId();
+			if (id >= incomeBySource.length) {
+				incomeBySource = Arrays.copyOf(incomeBySource, Math.max(id + 1, incomeBySource.length * 2));
+			}
+			if (incomeBySource[id] == null) {
+				incomeBySource[id] = new IncomePostings();
+			}
+			incomeBySource[id].add(entry);
+			updateDailyIncome(entry, entry.getCount());
+		}
+		return entry;
+	}
+
+	private void updateDailyIncome(LedgerEntity entry, double units) {
+		DailyIncome day = incomeByDay.computeIfAbsent(entry.getDate(), date -> new DailyIncome());
+		day.addUnits(entry.getNameId(), units);
+		day.reprice(fundingRepository);
+	}
+
+	// Walks the source's date-sorted postings and re-prices each distinct day once
+	private void repriceSource(int sourceId) {
+		if (sourceId >= incomeBySource.length || incomeBySource[sourceId] == null) {
+			return;
+		}
+		LocalDate previous = null;
+		for (LedgerEntity entry : incomeBySource[sourceId].getEntries()) {
+			if (!entry.getDate().equals(previous)) {
+				incomeByDay.get(entry.getDate()).reprice(fundingRepository);
+				previous = entry.getDate();
+			}
+		}
+	}
+
+	private IncomePostings postingsFor(String sourceName) {
+		int id = fundingRepository.getSymbolTable().idOf(sourceName);
+		return (id == SymbolTable.NONE || id >= incomeBySource.length) ? null : incomeBySource[id];
+	}
+
+	/**
+	 * Total income received from one funding source up to today, at the source's current amount.
+	 * Includes the scheduled payouts of a recurring source.
+	 * @param sourceName The funding source name (case-insensitive).
+	 * @return The lifetime income, or 0 if the source has no INCOME entries or no longer exists.
+	 */
+	public double getLifetimeIncome(String sourceName) {
+		IncomePostings postings = postingsFor(sourceName);
+		FundingSource source = fundingRepository.getFundingSourceByName(sourceName);
+		if (source == null) {
+			return 0.0;
+		}
+		double recorded = postings == null ? 0.0 : postings.getTotalUnits() * source.getAmount();
+		RecurrenceRule recurrence = source.getRecurrence();
+		return recorded + (recurrence == null ? 0.0 : fundingRepository.getScheduledIncome(sourceName, recurrence.getStart(), LocalDate.now()));
+	}
+
+	/**
+	 * Income received from one funding source between two dates, both inclusive,
+	 * at the source's current amount. Includes the scheduled payouts of a recurring source.
+	 * @param sourceName The funding source name (case-insensitive).
+	 * @param from The first date to include.
+	 * @param to The last date to include.
+	 * @return The income in that range, or 0 if there is none.
+	 */
+	public double getIncomeBetween(String sourceName, LocalDate from, LocalDate to) {
+		IncomePostings postings = postingsFor(sourceName);
+		double recorded = 0.0;
+		FundingSource source = fundingRepository.getFundingSourceByName(sourceName);
+		if (postings != null && source != null) {
+			recorded = postings.getUnitsBetween(from, to) * source.getAmount();
+		}
+		return recorded + fundingRepository.getScheduledIncome(sourceName, from, to);
+	}
+
+	/** Read-only view of one funding source's INCOME entries, oldest first. */
+	public List<LedgerEntity> getIncomeEntries(String sourceName) {
+		IncomePostings postings = postingsFor(sourceName);
+		return postings == null ? List.of() : postings.getEntries();
 	}
 
 	public List<String[]> getDataFromCSV()
 	{
 		List<String[]> rawData = new ArrayList<>();
 
-		List<String> csvData = manager.readData(manager.ledgerCSV);
+		List<String> csvData = manager.load(Dataset.LEDGER);
 		for(String data : csvData)
 		{
 			rawData.add(data.split(","));
@@ -155,6 +412,11 @@ public class LedgerRepository extends Observable {
 		return rawData;
 	}
 
+	// Number of entries, without copying them
+	public int getEntryCount() {
+		return logEntries.size();
+	}
+
 	/** Retrieves a copy of all log entries. */
     public List<LedgerEntity> getAllLogEntries() {
         return List.copyOf(logEntries);
@@ -229,9 +491,11 @@ public class LedgerRepository extends Observable {
 	public void addDonations(double donation1, double donation2) {
 		LocalDate today = LocalDate.now();
 
-		this.logEntries.add(new LedgerEntity(today, LedgerEntity.EntryType.FUND, donation1));
-		this.logEntries.add(new LedgerEntity(today, LedgerEntity.EntryType.FUND, donation2));
-		setChanged();
+		for (double donation : new double[] {donation1, donation2}) {
+			LedgerEntity entry = new LedgerEntity(today, LedgerEntity.EntryType.FUND, donation);
+			this.logEntries.add(entry);
+			changed(new ModelEvent.EntryAdded(entry));
+		}
 	}
 
 	/**
@@ -249,14 +513,13 @@ public class LedgerRepository extends Observable {
 	}
 
 	/**
-	 * Adds a generic LedgerEntity to the log and notifies observers.
+	 * Adds a generic LedgerEntity to the log and publishes EntryAdded.
 	 * This is used for FUND, GOAL, and THRESHOLD entries.
 	 * @param entity The LedgerEntity to add.
 	 */
 	public void addEntry(LedgerEntity entity) {
-		this.logEntries.add(entity);
-		setChanged();
-		notifyObservers();
+		this.logEntries.add(postIncome(bind(entity)));
+		changed(new ModelEvent.EntryAdded(entity));
 	}
 
 	/**
@@ -268,10 +531,11 @@ public class LedgerRepository extends Observable {
 	public boolean deleteLogEntry(int index) {
 		if (index >= 0 && index < logEntries.size()) {
 			LedgerEntity removedEntry = logEntries.remove(index);
-			// Do not notifyObservers here, as the Controller will do it after saving
-			// Note: For a real-time app, you might want to notify here, but for saveAll, it's safer to let the controller handle it.
-			setChanged();
-			notifyObservers();
+			if (removedEntry.getType() == LedgerEntity.EntryType.INCOME) {
+				incomeBySource[removedEntry.getNameId()].remove(removedEntry);
+				updateDailyIncome(removedEntry, -removedEntry.getCount());
+			}
+			changed(new ModelEvent.EntryRemoved(index, removedEntry));
 			return true;
 		}
 		return false;
@@ -284,6 +548,14 @@ public class LedgerRepository extends Observable {
 	 * @return true if there are NEED or INCOME entries, false otherwise.
 	 */
 	public boolean hasNonGoalOrFundEntries(LocalDate date) {
+		LedgerAggregates aggregates = savedAggregates();
+		if (aggregates != null) {
+			try {
+				return aggregates.hasEntries(date, "ni");
+			} catch (IllegalStateException e) {
+				System.err.println("Warning: " + e.getMessage() + " Using the in-memory ledger.");
+			}
+		}
 		return logEntries.stream()
 			.filter(entry -> entry.getDate().equals(date))
 			.anyMatch(entry -> entry.getType() == LedgerEntity.EntryType.NEED 
@@ -409,9 +681,26 @@ public class LedgerRepository extends Observable {
 		List<String> csvLines = logEntries.stream()
                                   .map(this::toCSVLine)
                                   .collect(Collectors.toList());
-        manager.writeData(manager.ledgerCSV, csvLines);
-		setChanged();
-		notifyObservers();
+        manager.replace(Dataset.LEDGER, csvLines);
+		dirty = false;
+		events.publish(new ModelEvent.Saved(Dataset.LEDGER, manager.locationOf(Dataset.LEDGER)));
+	}
+
+	/**
+	 * Hands the ledger to the write-behind service (if one is attached) and returns at once.
+	 * The lines are built on the calling thread, so later entries cannot leak into this save.
+	 * @return Completes when the ledger is on disk.
+	 */
+	public CompletableFuture<Void> saveLogEntriesAsync() {
+		List<String> csvLines = logEntries.stream()
+				.map(this::toCSVLine)
+				.collect(Collectors.toList());
+		dirty = false;
+		return manager.replaceLater(Dataset.LEDGER, csvLines).whenComplete((done, error) -> {
+			if (error != null) {
+				dirty = true; // Never reached the disk
+			}
+		});
 	}
 
 	/**
@@ -448,6 +737,16 @@ public class LedgerRepository extends Observable {
 			
 		}
 
+		// A saved ledger in a database answers with one indexed lookup instead of two scans
+		LedgerAggregates aggregates = savedAggregates();
+		if (aggregates != null) {
+			try {
+				return aggregates.latestAmount(kindOf(entryType), finalDate).orElse(defaultValue);
+			} catch (IllegalStateException e) {
+				System.err.println("Warning: " + e.getMessage() + " Using the in-memory ledger.");
+			}
+		}
+
 		// 1. Find the last entry for the exact date.
 		Optional<LedgerEntity> entryForDate = logEntries.stream()
 			.filter(entry -> entry.getType() == entryType)
@@ -467,40 +766,42 @@ public class LedgerRepository extends Observable {
 			.orElse(defaultValue); // 3. Fallback to default
 	}
 
+	/*
+	 * The storage engine's own ledger queries, if it has any. Only used while nothing
+	 * is unsaved: the engine knows the ledger as last saved, not the entries added since.
+	 */
+	private LedgerAggregates savedAggregates() {
+		return !dirty && manager instanceof LedgerAggregates aggregates ? aggregates : null;
+	}
+
+	// The letter a ledger row uses for the entry type (see toCSVLine)
+	private static char kindOf(LedgerEntity.EntryType entryType) {
+		return switch (entryType) {
+			case NEED -> 'n';
+			case FUND -> 'f';
+			case GOAL -> 'g';
+			case THRESHOLD -> 't';
+			case INCOME -> 'i';
+		};
+	}
+
 	public Day buildDay(LocalDate date) {
 		double goal = getEntryForDate(LedgerEntity.EntryType.GOAL,date);
 		double funds = getEntryForDate(LedgerEntity.EntryType.FUND, date);
 		return new Day(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), goal, funds);
 	}
 
+	/**
+	 * Total income for a day, priced at each funding source's current amount.
+	 * Read from the per-day aggregate, so the cost does not grow with the ledger,
+	 * plus any recurring payouts due that day (counted, never stored in the log).
+	 * Entries for a source that no longer exists count as $0.
+	 */
 	public double findIncome(LocalDate date) {
 		LocalDate targetDate = (date == null) ? LocalDate.now() : date;
-
-		// Filter all INCOME entries for the given date
-		List<LedgerEntity> incomeEntries = logEntries.stream()
-				.filter(entry -> entry.getType() == LedgerEntity.EntryType.INCOME)
-				.filter(entry -> entry.getDate().equals(targetDate))
-				.toList(); // Collect to list for easier debug/logging
-
-		if (incomeEntries.isEmpty()) {
-			return 0.0; // No entries found
-		}
-
-		double totalIncome = 0.0;
-
-		for (LedgerEntity entry : incomeEntries) {
-			String sourceName = entry.getNeedName(); // Funding source name
-			FundingSource source = fundingRepository.getFundingSourceByName(sourceName);
-
-			if (source != null) {
-				double unitAmount = source.getAmount(); // Use helper in FundingSource
-				totalIncome += entry.getCount() * unitAmount;
-			} else {
-				System.err.println("[Warning] Funding source '" + sourceName + "' not found. Counting as $0.");
-			}
-		}
-
-		return totalIncome;
+		DailyIncome day = incomeByDay.get(targetDate);
+		double recorded = day == null ? 0.0 : day.total;
+		return recorded + fundingRepository.getScheduledIncome(targetDate, targetDate);
 	}
 
 	/** Prints all current log entries to the console. */
@@ -514,6 +815,6 @@ public class LedgerRepository extends Observable {
 
 	public void setUser(User user)
 	{
-		this.manager.setUserPath(user);
+		this.manager.setUser(user);
 	}
 }
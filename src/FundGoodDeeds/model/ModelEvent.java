@@ -0,0 +1,94 @@
+package FundGoodDeeds.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A change to a session's data, as published on its EventBus. Each event says
+ * what changed, so a listener can update just that (a table row, a cached total)
+ * instead of rebuilding everything.
+ *
+ * Events are published after the change is made, on the thread that made it.
+ */
+public sealed interface ModelEvent {
+
+    // The dataset the change belongs to (null for DateSelected, which is not stored)
+    Dataset dataset();
+
+    /**
+     * A whole dataset was replaced, e.g. loaded from storage or bulk-imported.
+     * Anything derived from it should be rebuilt.
+     */
+    record Reloaded(Dataset dataset) implements ModelEvent {}
+
+    // A dataset was written to storage; its data did not change
+    record Saved(Dataset dataset, String location) implements ModelEvent {}
+
+    // A Need or Bundle was added to the catalog
+    record NeedAdded(NeedComponent component) implements ModelEvent {
+        public Dataset dataset() { return Dataset.NEEDS; }
+    }
+
+    // A Need or Bundle was removed from the catalog (and from every bundle holding it)
+    record NeedRemoved(String name) implements ModelEvent {
+        public Dataset dataset() { return Dataset.NEEDS; }
+    }
+
+    /**
+     * A basic Need was renamed or repriced. Bundles holding it cost newTotal per unit from now on.
+     * @param name The name before the change.
+     * @param newName The name after it (equal to name if only the total changed).
+     */
+    record NeedChanged(String name, String newName, double oldTotal, double newTotal) implements ModelEvent {
+        public Dataset dataset() { return Dataset.NEEDS; }
+
+        public boolean isRename() { return !name.equals(newName); }
+    }
+
+    /**
+     * A Bundle was renamed or its components changed, which also changes its total.
+     * @param name The name before the change.
+     * @param newName The name after it (equal to name if only the components changed).
+     */
+    record BundleChanged(String name, String newName) implements ModelEvent {
+        public Dataset dataset() { return Dataset.NEEDS; }
+
+        public boolean isRename() { return !name.equals(newName); }
+    }
+
+    /**
+     * A funding source was added, edited, removed or given a new recurrence.
+     * @param oldAmount The previous amount (0 if the source was added).
+     * @param newAmount The new amount (0 if the source was removed).
+     */
+    record FundingChanged(String name, double oldAmount, double newAmount) implements ModelEvent {
+        public Dataset dataset() { return Dataset.FUNDING; }
+    }
+
+    // An entry was appended to the end of the ledger
+    record EntryAdded(LedgerEntity entry) implements ModelEvent {
+        public Dataset dataset() { return Dataset.LEDGER; }
+    }
+
+    /**
+     * Entries were appended to the end of the ledger at once, e.g. rows another
+     * session added to the stored ledger (see LedgerRepository.applyAppendedRows).
+     * @param entries The new entries, in log order.
+     */
+    record EntriesAppended(List<LedgerEntity> entries) implements ModelEvent {
+        public Dataset dataset() { return Dataset.LEDGER; }
+    }
+
+    /**
+     * A ledger entry was deleted; the entries after it moved up one place.
+     * @param index The position the entry had in the log.
+     */
+    record EntryRemoved(int index, LedgerEntity entry) implements ModelEvent {
+        public Dataset dataset() { return Dataset.LEDGER; }
+    }
+
+    // The date the views summarize was changed (see MasterController.setSelectedDate)
+    record DateSelected(LocalDate date) implements ModelEvent {
+        public Dataset dataset() { return null; }
+    }
+}
@@ -3,6 +3,7 @@ package FundGoodDeeds.model;
 public class Need implements NeedComponent {
     private String name;
     private double total;
+    private int id = SymbolTable.NONE;
     
     
     public Need(String name, double total) {
@@ -21,6 +22,16 @@ public class Need implements NeedComponent {
         return total;
     }
 
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    // Set once by the NeedsRepository when the need joins the catalog
+    void setId(int id) {
+        this.id = id;
+    }
+
     
     // To help with CRUD: (Setters)
     public void setName(String name) {
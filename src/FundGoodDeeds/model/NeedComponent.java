@@ -3,4 +3,6 @@ package FundGoodDeeds.model;
 public interface NeedComponent {
     String getName();
     double getTotal();
+    // Symbol id assigned by the NeedsRepository, or SymbolTable.NONE if not in a catalog
+    int getId();
 }
\ No newline at end of file
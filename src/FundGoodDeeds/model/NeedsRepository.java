@@ -1,190 +1,843 @@
 package FundGoodDeeds.model;
 
 import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Observable;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-@SuppressWarnings("deprecation")
-public class NeedsRepository extends Observable {
-	private final List<NeedComponent> needsCatalog = new ArrayList<>();
-	private final CSVManager manager;
-	
+/*
+ * Shared catalog templates: with a CatalogTemplate set, the catalog is the template
+ * plus this user's differences. needs.csv rows that match the template are not
+ * loaded at all; the template's objects stand in for them. Rows that differ become
+ * private entries under the template id, template entries missing from the file are
+ * marked removed, and new names get ids above the template's.
+ *
+ * Template objects are never modified. Every edit first calls own(), which swaps in
+ * a private copy of the entry and, because a bundle holds its components directly,
+ * copies each shared bundle above it as well (path copying). Only the edited path
+ * is copied; the rest of the catalog stays shared.
+ */
+public class NeedsRepository {
+	// Entries this repository added, in order: the whole catalog unless a template is set
+	private final List<NeedComponent> localCatalog = new ArrayList<>();
+	// Template entries (as this user sees them) followed by localCatalog
+	private final List<NeedComponent> needsCatalog = new EffectiveCatalog();
+	private final StorageEngine manager;
+	private final EventBus events;
+	// Need and bundle names for this user; the catalog, bundles and ledger all hold these ids
+	private SymbolTable symbols = new SymbolTable();
+	// Entries owned by this repository, indexed by symbol id (null: not in the catalog, or the template's entry)
+	private NeedComponent[] catalogById = new NeedComponent[16];
+	// Structural epoch of this catalog's bundles (see Bundle); edits elsewhere never touch it
+	private final AtomicInteger bundleEpoch = new AtomicInteger();
+	// Prefix and typo-tolerant lookup for type-ahead prompts
+	private CatalogSearchIndex searchIndex = new CatalogSearchIndex();
 
-	public NeedsRepository(CSVManager manager)
+	// Shared catalog underneath this one, or null
+	private CatalogTemplate template;
+	// Template ids this user's catalog does not have
+	private final BitSet removed = new BitSet();
+
+	// Needs inserted per batch during a bulk import
+	private static final int IMPORT_BATCH_SIZE = 1000;
+	// Import problems printed before the rest are only counted
+	private static final int MAX_REPORTED_IMPORT_PROBLEMS = 20;
+	// Unsaved changes since the last load or save
+	private volatile boolean dirty;
+
+	public NeedsRepository(StorageEngine manager)
+	{
+		this(manager, new EventBus());
+	}
+
+	/**
+	 * @param events Where changes to the catalog are published.
+	 */
+	public NeedsRepository(StorageEngine manager, EventBus events)
 	{
 		this.manager = manager;
+		this.events = events;
+	}
+
+	/**
+	 * Shares a template's entries instead of loading them. Call before the first load;
+	 * needs.csv is then read as differences from the template.
+	 * @param template The shared catalog, or null to load everything privately.
+	 */
+	public void setTemplate(CatalogTemplate template)
+	{
+		this.template = template;
+		this.symbols = template == null ? new SymbolTable() : new SymbolTable(template.symbols);
+		this.searchIndex = template == null ? new CatalogSearchIndex() : new CatalogSearchIndex(template.index);
 	}
 
+	// Builds a shared template from needs.csv rows with a repository that is then thrown away
+	static CatalogTemplate buildTemplate(List<String> rows)
+	{
+		NeedsRepository loader = new NeedsRepository(null);
+		loader.loadRows(rows);
+		NeedComponent[] byId = Arrays.copyOf(loader.catalogById, loader.symbols.size());
+		List<NeedComponent> order = new ArrayList<>();
+		for (NeedComponent component : loader.localCatalog) {
+			//Duplicate rows were loaded but never registered; only the registered entry is shared
+			if (byId[component.getId()] == component) {
+				order.add(component);
+			}
+		}
+		return new CatalogTemplate(loader.symbols, byId, order, loader.searchIndex);
+	}
+
+	/**
+	 * Loads the needs catalog from needs.csv in a single pass over the file.
+	 * Needs are created as they are read. Bundle rows are held until the whole file
+	 * has been read, then resolved in dependency order, so a bundle may reference a
+	 * bundle that is defined further down the file. Reference cycles are reported
+	 * and broken before any bundle is built.
+	 */
 	public void loadNeeds()
 	{
-		this.needsCatalog.clear();
-		
-		List<String[]> rawNeeds = getNeedsFromCSV();
-		List<String[]> rawBundles = getBundlesFromCSV();
-		
-		addNeedsToNeedsArray(convertNeedsToObject(rawNeeds));
-		// String names = needsCatalog.stream()
-		// 	.map(NeedComponent::getName)
-		// 	.collect(Collectors.joining(", "));
-		// System.out.println("Needs catalog after loading needs only: " + names + "\n");
-		
-		convertBundlesToBundlesObject(rawBundles);
-		// String bundles = needsCatalog.stream()
-		// 	.map(NeedComponent::getName)
-		// 	.collect(Collectors.joining(", "));
-		// System.out.println("Needs catalog after loading needs only: " + bundles + "\n");
+		loadNeedsQuietly();
+		events.publish(new ModelEvent.Reloaded(Dataset.NEEDS));
 	}
 
+	/**
+	 * Loads the catalog like loadNeeds but publishes nothing; the caller publishes Reloaded
+	 * later, so a load on a background thread never reaches the views from there.
+	 */
+	public void loadNeedsQuietly()
+	{
+		if (template != null) {
+			loadOverTemplate(manager.load(Dataset.NEEDS));
+		}
+		else {
+			loadRows(manager.load(Dataset.NEEDS));
+		}
+		dirty = false;
+	}
 
-	public List<String[]> getNeedsFromCSV() 
+	private void loadRows(List<String> rows)
 	{
-		//Reads BasicNeeds from CSV
-		List<String[]> needs = new ArrayList<>();
-		List<String> needsAndBundles = manager.readData("needs.csv");
+		this.localCatalog.clear();
+		Arrays.fill(catalogById, null);
+		searchIndex.clear();
+
+		List<NeedComponent> needs = new ArrayList<>();
+		//Keyed by lower-case name so references resolve case-insensitively
+		Map<String, String[]> rawBundles = new LinkedHashMap<>();
 
-		for(String dataString : needsAndBundles)
+		for(String dataString : rows)
 		{
 			String[] splittedString = dataString.split(",");
 
 			if(splittedString[0].equals("n")) {
-				needs.add(splittedString);
+				needs.add(new Need(splittedString[1], Double.parseDouble(splittedString[2])));
+			}
+			else if(splittedString[0].equals("b")) {
+				String key = normalize(splittedString[1]);
+				if (rawBundles.containsKey(key)) {
+					System.out.println("Warning: Bundle '" + splittedString[1] + "' is defined more than once. Only the first definition is kept.");
+					continue;
+				}
+				rawBundles.put(key, splittedString);
 			}
 		}
 
-		return needs;
+		//Register every need and bundle up front so forward references can be resolved
+		for (NeedComponent need : needs) {
+			register(need);
+		}
+		Map<String, Bundle> bundles = new LinkedHashMap<>();
+		for (Map.Entry<String, String[]> entry : rawBundles.entrySet()) {
+			Bundle bundle = new Bundle(entry.getValue()[1]);
+			register(bundle);
+			bundles.put(entry.getKey(), bundle);
+		}
+
+		//Resolve in topological order: every bundle is filled after the bundles it contains
+		Set<String> resolved = new HashSet<>();
+		for (String key : sortBundles(rawBundles)) {
+			resolveBundle(bundles.get(key), rawBundles.get(key), rawBundles, resolved);
+			resolved.add(key);
+		}
 
+		this.localCatalog.addAll(needs);
+		this.localCatalog.addAll(bundles.values());
 	}
 
-	public List<NeedComponent> convertNeedsToObject(List<String[]> rawNeeds) 
+	/*
+	 * Loads needs.csv as differences from the template. A row matching its template
+	 * entry only marks that entry as present. Other rows are loaded as in loadRows,
+	 * under the template id if the name is a template name. Shared bundles holding a
+	 * replaced or removed entry are then copied (own), and last the bundle rows are
+	 * resolved against the result.
+	 */
+	private void loadOverTemplate(List<String> rows)
 	{
-		//Parses data into BasicNeed objects
-
-		List<NeedComponent> needsList = new ArrayList<>();
+		localCatalog.clear();
+		Arrays.fill(catalogById, null);
+		removed.clear();
+		searchIndex.clear();
 
-		for(String[] need : rawNeeds)
+		BitSet present = new BitSet();
+		List<Need> needs = new ArrayList<>();
+		Map<String, String[]> rawBundles = new LinkedHashMap<>();
+		for (String dataString : rows)
 		{
-			NeedComponent needComponent = new Need(need[1], Double.parseDouble(need[2]));
-			needsList.add(needComponent);
+			String[] fields = dataString.split(",");
+			if (!fields[0].equals("n") && !fields[0].equals("b")) {
+				continue;
+			}
+			int id = symbols.idOf(fields[1]);
+			if (id != SymbolTable.NONE && id < template.idLimit() && !present.get(id)
+					&& symbols.nameOf(id).equals(template.symbols.nameOf(id)) && template.matches(fields, template.byId[id])) {
+				present.set(id);
+			}
+			else if (fields[0].equals("n")) {
+				needs.add(new Need(fields[1], Double.parseDouble(fields[2])));
+			}
+			else if (rawBundles.putIfAbsent(normalize(fields[1]), fields) != null) {
+				System.out.println("Warning: Bundle '" + fields[1] + "' is defined more than once. Only the first definition is kept.");
+			}
+		}
+
+		//A name can only be claimed once: by a matching row or by the first differing row
+		for (Need need : needs) {
+			if (claim(need, present)) {
+				if (need.getId() >= template.idLimit()) {
+					localCatalog.add(need);
+				}
+			}
+		}
+		Map<String, Bundle> bundles = new LinkedHashMap<>();
+		for (Map.Entry<String, String[]> entry : rawBundles.entrySet()) {
+			Bundle bundle = new Bundle(entry.getValue()[1]);
+			if (claim(bundle, present)) {
+				bundles.put(entry.getKey(), bundle);
+				if (bundle.getId() >= template.idLimit()) {
+					localCatalog.add(bundle);
+				}
+			}
+		}
+		for (NeedComponent component : template.order) {
+			int id = component.getId();
+			if (!present.get(id) && catalogById(id) == null) {
+				removed.set(id);
+				searchIndex.remove(component, component.getName());
+			}
 		}
 
-		return needsList;
+		//Shared bundles cannot hold a private or removed entry
+		for (NeedComponent component : template.order) {
+			if (component instanceof Bundle bundle && effective(bundle.getId()) == bundle && holdsChanged(bundle)) {
+				own(bundle);
+			}
+		}
 
+		Set<String> resolved = new HashSet<>();
+		for (String key : sortBundles(rawBundles)) {
+			Bundle bundle = bundles.get(key);
+			if (bundle != null) {
+				resolveBundle(bundle, rawBundles.get(key), rawBundles, resolved);
+			}
+			resolved.add(key);
+		}
 	}
 
-	public List<String[]> getBundlesFromCSV() 
+	// Registers an entry loaded over the template unless its name is taken; false if it is a duplicate
+	private boolean claim(NeedComponent component, BitSet present)
 	{
-		List<String[]> bundles = new ArrayList<>();
-
-		// Filters out needs, focusing on the bundles
-		List<String> needsAndBundles = manager.readData("needs.csv");
-		for(String dataString : needsAndBundles)
-		{
-			String[] splittedString = dataString.split(",");
-			if(splittedString[0].equals("b"))
-				bundles.add(splittedString);
+		int id = symbols.intern(component.getName());
+		if (present.get(id) || catalogById(id) != null) {
+			return false;
 		}
+		bind(component, id);
+		setById(id, component);
+		searchIndex.add(component);
+		return true;
+	}
 
-		return bundles;
+	// true if a direct component of the shared bundle is no longer the template's
+	private boolean holdsChanged(Bundle bundle)
+	{
+		boolean[] changed = {false};
+		bundle.forEachComponent((part, count) -> changed[0] |= effective(part.getId()) != part);
+		return changed[0];
+	}
 
-	
+	/*
+	 * Dirty tracking: every edit listeners are told about is also a change that
+	 * needs saving, so marking happens here. Loading and saving clear it.
+	 */
+	private void changed(ModelEvent event) {
+		dirty = true;
+		events.publish(event);
 	}
 
-	public void convertBundlesToBundlesObject(List<String[]> rawBundles) 
+	// true if the in-memory data differs from what was last loaded or saved
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Orders bundles so that each one comes after every bundle it references
+	 * (depth-first topological sort). A reference back to a bundle that is still
+	 * being visited closes a cycle; it is reported here and left unresolved.
+	 */
+	private List<String> sortBundles(Map<String, String[]> rawBundles)
 	{
-		List<NeedComponent> bundles = new ArrayList<>();
+		List<String> order = new ArrayList<>();
+		Map<String, Boolean> finished = new HashMap<>(); // false = visiting, true = done
 
-		for(String[] bundle : rawBundles)
-		{
-			//Set the name, it is always the second index
-			Bundle bundleObject = new Bundle(bundle[1]);
-			needsCatalog.add(bundleObject);
+		for (String key : rawBundles.keySet()) {
+			if (!finished.containsKey(key)) {
+				visitBundle(key, rawBundles, finished, new ArrayDeque<>(), order);
+			}
+		}
+		return order;
+	}
 
-			//Start from index 2, iterate by 2 for needName and count pair
-			//This is more robust than relying on index % 2 and manual index increments.
-			for(int index = 2; index < bundle.length; index += 2)
-			{
-				String needName = bundle[index];
-				double count = 0.0;
-				
-				//Ensure the count index is within bounds (should be index + 1)
-				if(index + 1 < bundle.length) {
-					// DEBUGGING PURPOSE
-					// System.out.println("bundle object -----> " + bundleObject.getName());
-					try {
-						count = Double.parseDouble(bundle[index + 1]);
-					} catch (NumberFormatException e) {
-						System.out.println("Error: Bundle '" + bundleObject.getName() + "' has malformed count for component '" + needName + "'. Assuming 0.");
-						count = 0.0;
+	private void visitBundle(String key, Map<String, String[]> rawBundles, Map<String, Boolean> finished,
+			Deque<String> path, List<String> order)
+	{
+		finished.put(key, false);
+		path.addLast(key);
+
+		String[] bundle = rawBundles.get(key);
+		for (int index = 2; index < bundle.length; index += 2) {
+			String dependency = normalize(bundle[index]);
+			if (!rawBundles.containsKey(dependency)) {
+				continue; // Basic need (or missing component), not part of the bundle graph
+			}
+
+			Boolean state = finished.get(dependency);
+			if (state == null) {
+				visitBundle(dependency, rawBundles, finished, path, order);
+			}
+			else if (!state) {
+				List<String> cycle = new ArrayList<>();
+				boolean inCycle = false;
+				for (String step : path) {
+					inCycle = inCycle || step.equals(dependency);
+					if (inCycle) {
+						cycle.add(rawBundles.get(step)[1]);
 					}
 				}
-				
-				if(count > 0.0) {
-					NeedComponent component = getNeedByName(needName);
-					if (component != null) {
-						// Parse as integer, as per clarified design
-						int intCount = (int) count;
-						if (intCount <= 0) {
-							System.out.println("Warning: Bundle '" + bundleObject.getName() + "' has non-positive integer count for component '" + needName + "'. It will be skipped.");
-							continue;
-						}
-						if (count != intCount) {
-							System.out.println("Warning: Bundle '" + bundleObject.getName() + "' has a fractional count for component '" + needName + "'. The fractional part will be ignored.");
-						}
-						bundleObject.add(component, intCount);
-					} else {
-						System.out.println("Error: Component '" + needName + "' for bundle '" + bundleObject.getName() + "' not found in catalog. It will be skipped.");
+				cycle.add(rawBundles.get(dependency)[1]);
+				System.out.println("Error: Bundle cycle detected (" + String.join(" -> ", cycle) + "). Component '"
+						+ bundle[index] + "' of bundle '" + bundle[1] + "' will be skipped.");
+			}
+		}
+
+		path.removeLast();
+		finished.put(key, true);
+		order.add(key);
+	}
+
+	/**
+	 * Fills a bundle from its raw CSV row: b,name,n1name,n1count,n2name,n2count,...
+	 * Bundle components that have not been resolved yet can only be cycle edges
+	 * (already reported by sortBundles) and are skipped.
+	 */
+	private void resolveBundle(Bundle bundleObject, String[] bundle, Map<String, String[]> rawBundles, Set<String> resolved)
+	{
+		//Start from index 2, iterate by 2 for needName and count pair
+		for(int index = 2; index < bundle.length; index += 2)
+		{
+			String needName = bundle[index];
+			double count = 0.0;
+
+			//Ensure the count index is within bounds (should be index + 1)
+			if(index + 1 < bundle.length) {
+				try {
+					count = Double.parseDouble(bundle[index + 1]);
+				} catch (NumberFormatException e) {
+					System.out.println("Error: Bundle '" + bundleObject.getName() + "' has malformed count for component '" + needName + "'. Assuming 0.");
+					count = 0.0;
+				}
+			}
+
+			if(count > 0.0) {
+				NeedComponent component = getNeedByName(needName);
+				if (component instanceof Bundle && rawBundles.containsKey(normalize(needName)) && !resolved.contains(normalize(needName))) {
+					continue; // Cycle edge
+				}
+				if (component instanceof Bundle inner && inner.containsComponent(bundleObject)) {
+					//Only possible through a template bundle, which sortBundles does not see
+					System.out.println("Error: Bundle cycle detected. Component '" + needName + "' of bundle '" + bundleObject.getName() + "' will be skipped.");
+					continue;
+				}
+				if (component != null) {
+					// Parse as integer, as per clarified design
+					int intCount = (int) count;
+					if (intCount <= 0) {
+						System.out.println("Warning: Bundle '" + bundleObject.getName() + "' has non-positive integer count for component '" + needName + "'. It will be skipped.");
+						continue;
+					}
+					if (count != intCount) {
+						System.out.println("Warning: Bundle '" + bundleObject.getName() + "' has a fractional count for component '" + needName + "'. The fractional part will be ignored.");
 					}
+					bundleObject.add(component, intCount);
+				} else {
+					System.out.println("Error: Component '" + needName + "' for bundle '" + bundleObject.getName() + "' not found in catalog. It will be skipped.");
 				}
 			}
+		}
+	}
 
-			bundles.add(bundleObject);
+	private static String normalize(String name)
+	{
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Interns the component's name and makes it reachable by id.
+	 * The first component registered under a name wins, matching getNeedByName's old first-match behaviour.
+	 */
+	private void register(NeedComponent component)
+	{
+		int id = symbols.intern(component.getName());
+		bind(component, id);
+		if (effective(id) == null) {
+			setById(id, component);
+			searchIndex.add(component);
 		}
-		
+	}
+
+	private void bind(NeedComponent component, int id)
+	{
+		if (component instanceof Need need) {
+			need.setId(id);
+		}
+		else if (component instanceof Bundle bundle) {
+			bundle.bind(id, symbols, bundleEpoch);
+		}
+	}
+
+	private NeedComponent catalogById(int id)
+	{
+		return id < catalogById.length ? catalogById[id] : null;
+	}
+
+	private void setById(int id, NeedComponent component)
+	{
+		if (id >= catalogById.length) {
+			catalogById = Arrays.copyOf(catalogById, Math.max(id + 1, catalogById.length * 2));
+		}
+		catalogById[id] = component;
+	}
+
+	// The catalog entry with this id as this user sees it: private, or the template's unless removed
+	private NeedComponent effective(int id)
+	{
+		NeedComponent component = catalogById(id);
+		if (component == null && template != null && id < template.idLimit() && !removed.get(id)) {
+			component = template.byId[id];
+		}
+		return component;
+	}
+
+	private boolean isShared(NeedComponent component)
+	{
+		return template != null && template.holds(component);
+	}
+
+	/**
+	 * Makes the entry safe to edit: a template entry is replaced by a private copy,
+	 * and every bundle holding it is pointed at the copy. Shared bundles cannot be
+	 * changed, so they are copied too, up to the top of the catalog.
+	 * @return The entry to edit (the component itself if it was already private).
+	 */
+	private NeedComponent own(NeedComponent component)
+	{
+		NeedComponent current = effective(component.getId());
+		if (current == null || !isShared(current)) {
+			return current != null ? current : component;
+		}
+		int id = current.getId();
+		NeedComponent copy;
+		if (current instanceof Need need) {
+			Need needCopy = new Need(need.getName(), need.getTotal());
+			needCopy.setId(id);
+			copy = needCopy;
+		}
+		else {
+			Bundle bundleCopy = new Bundle(current.getName());
+			bundleCopy.bind(id, symbols, bundleEpoch);
+			((Bundle) current).forEachComponent((part, count) -> {
+				NeedComponent part2 = effective(part.getId());
+				if (part2 != null) {
+					bundleCopy.add(part2, count);
+				}
+			});
+			copy = bundleCopy;
+		}
+		setById(id, copy);
+		searchIndex.remove(current, current.getName());
+		searchIndex.add(copy);
+
+		List<Bundle> holders = new ArrayList<>();
+		for (NeedComponent entry : needsCatalog) {
+			if (entry instanceof Bundle bundle && bundle.holds(id)) {
+				holders.add(bundle);
+			}
+		}
+		for (Bundle holder : holders) {
+			if (isShared(holder)) {
+				own(holder);
+			}
+			else {
+				holder.replaceComponent(copy);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Catalog entries that are not the template's (all of them without a template),
+	 * for estimating this repository's memory.
+	 */
+	public int getPrivateEntryCount()
+	{
+		int count = 0;
+		for (NeedComponent component : catalogById) {
+			if (component != null) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	public void addNeedsToNeedsArray(List<NeedComponent> basicNeeds) 
 	{
-		this.needsCatalog.addAll(basicNeeds);
-		setChanged();
-		notifyObservers();
+		for (NeedComponent need : basicNeeds) {
+			register(need);
+		}
+		this.localCatalog.addAll(basicNeeds);
+		for (NeedComponent need : basicNeeds) {
+			changed(new ModelEvent.NeedAdded(need));
+		}
 	}
 
 	public NeedComponent getNeedByName(String name) 
 	{		
-		//Iterate over the needsCatalog which contains both Needs and Bundles
-		for (NeedComponent component : needsCatalog) {
-			//Compare the name (case-insensitive)
-			if (component.getName().equalsIgnoreCase(name)) {
-				//Found the actual existing object instance
-				// DEBUGGING PURPOSE
-				// System.out.println("component --------> " + component.getName());
-				return component;
-			}
+		//Names resolve to ids case-insensitively; the catalog is indexed by id
+		int id = symbols.idOf(name);
+		if (id == SymbolTable.NONE) {
+			return null;
 		}
-
-		return null;
+		return effective(id);
     }
 
+	/**
+	 * Returns a bundle for changing its components. With a shared template this may
+	 * be a private copy of the bundle getNeedByName returned before, so edit only
+	 * the bundle returned here.
+	 * @return The bundle, or null if the name is not a bundle in the catalog.
+	 */
+	public Bundle getBundleForEdit(String name)
+	{
+		NeedComponent component = getNeedByName(name);
+		return component instanceof Bundle ? (Bundle) own(component) : null;
+	}
+
+	/**
+	 * Finds catalog entries for a partial or misspelled name, best match first.
+	 * Prefix matches come first, then names containing the text, then close typos.
+	 * @param query The text typed so far.
+	 * @param limit The maximum number of results.
+	 * @return Up to limit matching Needs/Bundles.
+	 */
+	public List<NeedComponent> searchCatalog(String query, int limit)
+	{
+		return searchIndex.search(query, limit);
+	}
+
+	public SymbolTable getSymbolTable()
+	{
+		return this.symbols;
+	}
+
 	public void appendNeed(NeedComponent need) 
 	{
-		this.needsCatalog.add(need);
-		setChanged();
-		notifyObservers();
+		register(need);
+		this.localCatalog.add(need);
+		changed(new ModelEvent.NeedAdded(need));
+	}
+
+	/**
+	 * Callback for reporting how far a bulk import has got.
+	 */
+	@FunctionalInterface
+	public interface ImportProgress {
+		void rowsProcessed(int rows);
+	}
+
+	/**
+	 * Bulk-imports needs and bundles from rows in the needs.csv format
+	 * (n,name,total / b,name,comp,count,...), e.g. a partner organisation's catalog.
+	 *
+	 * Rows are streamed, so the whole input is never held in memory. Duplicate names
+	 * (already in the catalog, or earlier in the import) are skipped through a hash set.
+	 * Needs are inserted in batches as they are read. Bundle rows are held until the end,
+	 * then validated in one pass in dependency order: a bundle is only imported if every
+	 * component resolves to the catalog or to another imported bundle. Listeners get
+	 * one Reloaded event, after the whole import.
+	 * @param rows The input rows, e.g. Files.lines(path) or a List's stream().
+	 * @param progress Called after each batch with the number of rows read so far; may be null.
+	 * @return Counts of what was added, skipped and rejected.
+	 */
+	public CatalogImportResult importCatalog(Stream<String> rows, ImportProgress progress)
+	{
+		CatalogImportResult result = new CatalogImportResult();
+		Set<String> seen = new HashSet<>();
+		List<NeedComponent> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+		Map<String, String[]> rawBundles = new LinkedHashMap<>();
+
+		Iterator<String> it = rows.iterator();
+		while (it.hasNext())
+		{
+			String row = it.next();
+			result.rowRead();
+			if (row.isBlank()) {
+				continue;
+			}
+
+			String[] fields = row.split(",");
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = fields[i].trim();
+			}
+			String name = fields.length > 1 ? fields[1] : "";
+			if (name.isEmpty() || !(fields[0].equals("n") || fields[0].equals("b"))) {
+				reportImportProblem(result, "Row " + result.getRowsRead() + " is not a need or bundle row. It will be skipped.");
+				continue;
+			}
+			if (!seen.add(normalize(name)) || getNeedByName(name) != null) {
+				result.duplicate();
+				continue;
+			}
+
+			if (fields[0].equals("n")) {
+				double total;
+				try {
+					total = Double.parseDouble(fields[2]);
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					reportImportProblem(result, "Need '" + name + "' has a missing or malformed total. It will be skipped.");
+					continue;
+				}
+				batch.add(new Need(name, total));
+				if (batch.size() == IMPORT_BATCH_SIZE) {
+					insertBatch(batch, result);
+					if (progress != null) {
+						progress.rowsProcessed(result.getRowsRead());
+					}
+				}
+			}
+			else {
+				rawBundles.put(normalize(name), fields);
+			}
+		}
+		insertBatch(batch, result);
+
+		//Dependency order means every bundle a bundle references has already been accepted or rejected
+		for (String key : sortBundles(rawBundles)) {
+			Bundle bundle = buildImportedBundle(rawBundles.get(key), rawBundles, result);
+			if (bundle != null) {
+				register(bundle);
+				localCatalog.add(bundle);
+				result.bundleAdded();
+			}
+		}
+		if (progress != null) {
+			progress.rowsProcessed(result.getRowsRead());
+		}
+
+		changed(new ModelEvent.Reloaded(Dataset.NEEDS));
+		return result;
+	}
+
+	private void insertBatch(List<NeedComponent> batch, CatalogImportResult result)
+	{
+		for (NeedComponent need : batch) {
+			register(need);
+		}
+		localCatalog.addAll(batch);
+		result.needsAdded(batch.size());
+		batch.clear();
 	}
 
-	public List<NeedComponent> getNeedsCatalog() 
+	/*
+	 * Builds an imported bundle, or returns null if any component is missing, has a bad
+	 * count, or is an imported bundle that was itself rejected (including cycle members).
+	 */
+	private Bundle buildImportedBundle(String[] row, Map<String, String[]> rawBundles, CatalogImportResult result)
+	{
+		String name = row[1];
+		if (row.length < 4) {
+			reportImportProblem(result, "Bundle '" + name + "' has no components. It will be skipped.");
+			return null;
+		}
+
+		Bundle bundle = new Bundle(name);
+		for (int index = 2; index < row.length; index += 2) {
+			String componentName = row[index];
+			//Rejected bundles were never registered, so they do not resolve either
+			NeedComponent component = getNeedByName(componentName);
+			if (component == null) {
+				String reason = rawBundles.containsKey(normalize(componentName)) ? "' which could not be imported" : "' which is not in the catalog";
+				reportImportProblem(result, "Bundle '" + name + "' references '" + componentName + reason + ". It will be skipped.");
+				return null;
+			}
+
+			int count;
+			try {
+				count = Integer.parseInt(row[index + 1]);
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				//Counts are written as 1.0 by saveNeedsCatalog; accept whole-number doubles too
+				try {
+					double value = Double.parseDouble(row[index + 1]);
+					count = value == Math.floor(value) ? (int) value : 0;
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException inner) {
+					count = 0;
+				}
+			}
+			if (count <= 0) {
+				reportImportProblem(result, "Bundle '" + name + "' has a missing or invalid count for '" + componentName + "'. It will be skipped.");
+				return null;
+			}
+			bundle.add(component, count);
+		}
+		return bundle;
+	}
+
+	// Prints the first few problems of an import; the rest are only counted
+	private static void reportImportProblem(CatalogImportResult result, String message)
+	{
+		result.reject();
+		if (result.getRejected() <= MAX_REPORTED_IMPORT_PROBLEMS) {
+			System.out.println("Import warning: " + message);
+		}
+		else if (result.getRejected() == MAX_REPORTED_IMPORT_PROBLEMS + 1) {
+			System.out.println("Import warning: further problems will only be counted.");
+		}
+	}
+
+	// Read-only; with a template, its entries come first (as this user sees them), then the user's own
+	public List<NeedComponent> getNeedsCatalog()
 	{
 		return this.needsCatalog;
 	}
 
+	/*
+	 * The effective catalog, resolved on the fly: the template's entries in template
+	 * order, each replaced by this user's copy if there is one and skipped if removed,
+	 * followed by localCatalog. Nothing of the template is copied.
+	 */
+	private final class EffectiveCatalog extends AbstractList<NeedComponent>
+	{
+		@Override
+		public int size()
+		{
+			int shared = template == null ? 0 : template.order.size() - removed.cardinality();
+			return shared + localCatalog.size();
+		}
+
+		@Override
+		public NeedComponent get(int index)
+		{
+			List<NeedComponent> base = template == null ? List.of() : template.order;
+			if (removed.isEmpty()) {
+				return index < base.size() ? effective(base.get(index).getId()) : localCatalog.get(index - base.size());
+			}
+			int position = 0;
+			for (NeedComponent component : this) {
+				if (position++ == index) {
+					return component;
+				}
+			}
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+		}
+
+		@Override
+		public Iterator<NeedComponent> iterator()
+		{
+			List<NeedComponent> base = template == null ? List.of() : template.order;
+			Iterator<NeedComponent> local = localCatalog.iterator();
+			return new Iterator<NeedComponent>() {
+				private int next = skipRemoved(0);
+
+				private int skipRemoved(int from) {
+					while (from < base.size() && removed.get(base.get(from).getId())) {
+						from++;
+					}
+					return from;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < base.size() || local.hasNext();
+				}
+
+				@Override
+				public NeedComponent next() {
+					if (next < base.size()) {
+						NeedComponent component = effective(base.get(next).getId());
+						next = skipRemoved(next + 1);
+						return component;
+					}
+					if (!local.hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return local.next();
+				}
+			};
+		}
+	}
+
 	/**
 	 * Writes the entire needsCatalog back to the CSV format for csv reader.
 	 * Overwrites the existing file with current catalog data.
 	 */
 	public void saveNeedsCatalog() throws IOException
+	{
+		// Write to file (this will append, so clear file first if needed)
+		manager.replace(Dataset.NEEDS, toCSVLines());
+		dirty = false;
+		events.publish(new ModelEvent.Saved(Dataset.NEEDS, manager.locationOf(Dataset.NEEDS)));
+	}
+
+	/**
+	 * Hands needs.csv to the write-behind service (if one is attached) and returns at once.
+	 * The lines are built on the calling thread, so later edits cannot leak into this save.
+	 * @return Completes when the catalog is on disk.
+	 */
+	public CompletableFuture<Void> saveNeedsCatalogAsync()
+	{
+		List<String> csvLines = toCSVLines();
+		dirty = false;
+		return manager.replaceLater(Dataset.NEEDS, csvLines).whenComplete((done, error) -> {
+			if (error != null) {
+				dirty = true; // Never reached the disk
+			}
+		});
+	}
+
+	private List<String> toCSVLines()
 	{
 		List<String> csvLines = new ArrayList<>();
 		
@@ -204,26 +857,13 @@ public class NeedsRepository extends Observable {
 				// Format: b,name,n1name,n1count,n2name,n2count,...
                 StringBuilder line = new StringBuilder("b," + bundle.getName());
 				
-				Map<NeedComponent, Integer> componentCounts = bundle.getComponentsAndCounts();
-				
-				for(Map.Entry<NeedComponent, Integer> entry : componentCounts.entrySet())
-				{
-					String needName = entry.getKey().getName();
-					double count = entry.getValue();
-					line.append(",").append(needName).append(",").append(count);
-					// DEBUGGING PURPOSE
-					// System.out.println("entry ----------> " + entry);
-					// System.out.println("line ----------> " + line);
-				}
+				bundle.forEachComponent((part, count) ->
+					line.append(",").append(part.getName()).append(",").append((double) count));
 				
 				csvLines.add(line.toString());
 			}
 		}
-		
-		// Write to file (this will append, so clear file first if needed)
-		manager.writeData("needs.csv", csvLines);
-		setChanged();
-		notifyObservers("Needs catalog saved to needs.csv");
+		return csvLines;
 	}
 
 	public double getTotalNeedsCost() {
@@ -236,30 +876,30 @@ public class NeedsRepository extends Observable {
 
 	/** Removes a NeedComponent (Need/Bundle) by name from the catalog. */
     public void removeNeedComponent(String name) {
-        //Use removeIf to iterate and delete based on name comparison
-		NeedComponent retrievedNeed = null;
-		for(NeedComponent need : needsCatalog)
-		{
-			if(need.getName().equalsIgnoreCase(name))
-			{
-				retrievedNeed = need;
-			}
-		}
-        needsCatalog.removeIf(nc -> nc.getName().equals(name));
+        //Use removeIf to iterate and delete based on id comparison
+		NeedComponent retrievedNeed = getNeedByName(name);
 
-		// Edit bundles that have the need
+		// Edit bundles that have the need (first, while shared bundles can still be copied with it)
 
 		List<Bundle> bundles = findBundlesContainingNeed(name);
 		if(!bundles.isEmpty() && (retrievedNeed != null))
 		{
 			for(Bundle bundle: bundles)
 			{
-				bundle.remove(retrievedNeed);
+				((Bundle) own(bundle)).remove(retrievedNeed);
 			}
 		}
 
-        setChanged();
-        notifyObservers();
+		if (retrievedNeed != null) {
+			int id = retrievedNeed.getId();
+			localCatalog.removeIf(nc -> nc.getId() == id);
+			setById(id, null);
+			if (template != null && id < template.idLimit()) {
+				removed.set(id);
+			}
+			searchIndex.remove(retrievedNeed, retrievedNeed.getName());
+			changed(new ModelEvent.NeedRemoved(retrievedNeed.getName()));
+		}
     }
 
 	/**
@@ -270,14 +910,9 @@ public class NeedsRepository extends Observable {
     public List<Bundle> findBundlesContainingNeed(String needName) {
         List<Bundle> bundles = new ArrayList<>();
         for (NeedComponent component : needsCatalog) {
-            if (component instanceof Bundle bundle) {
-                // Check if the bundle contains the need by iterating over its keys
-                for (NeedComponent innerComponent : bundle.getComponentsAndCounts().keySet()) {
-                    if (innerComponent.getName().equalsIgnoreCase(needName)) {
-                        bundles.add(bundle);
-                        break; // Move to the next bundle
-                    }
-                }
+            // Bundles index their components by name, so this is a direct lookup
+            if (component instanceof Bundle bundle && bundle.getComponentCount(needName) > 0) {
+                bundles.add(bundle);
             }
         }
         return bundles;
@@ -291,13 +926,9 @@ public class NeedsRepository extends Observable {
      */
     public int getTotalBundleComponentCount(String needName) {
         int totalCount = 0;
-        List<Bundle> bundles = findBundlesContainingNeed(needName);
-        for (Bundle bundle : bundles) {
-            // Iterate over the bundle's components to find the specific component count
-            for (Map.Entry<NeedComponent, Integer> entry : bundle.getComponentsAndCounts().entrySet()) {
-                if (entry.getKey().getName().equalsIgnoreCase(needName)) {
-                    totalCount += entry.getValue();
-                }
+        for (NeedComponent component : needsCatalog) {
+            if (component instanceof Bundle bundle) {
+                totalCount += bundle.getComponentCount(needName);
             }
         }
         return totalCount;
@@ -314,27 +945,26 @@ public class NeedsRepository extends Observable {
 		
 		// Check if it's a basic Need (not a Bundle)
 		if (component instanceof Need) {
-			Need need = (Need) component;
+			Need need = (Need) own(component);
+			double oldTotal = need.getTotal();
 			need.setTotal(newTotal); // Assume setTotal is public in Need.java
-			setChanged();
-			notifyObservers();
+			changed(new ModelEvent.NeedChanged(need.getName(), need.getName(), oldTotal, newTotal));
 			return true;
 		}
 		return false;
 	}
 
 	/**
-	 * Notifies observers that a Bundle's components have been updated. 
+	 * Publishes BundleChanged for a Bundle whose components have been updated. 
 	 * This is effectively an 'update' method for bundles. Implements logic for Program Operation #14 (part 2).
 	 * @param bundle The bundle that was updated.
 	 * @return true if the bundle was found, false otherwise.
 	 */
 	public boolean updateBundle(Bundle bundle) {
 		// The bundle object itself is mutable and already updated. 
-		// We just need to ensure it's in the catalog and then notify.
-		if (needsCatalog.contains(bundle)) {
-			setChanged();
-			notifyObservers();
+		// We just need to ensure it's in the catalog and then publish.
+		if (bundle.getId() != SymbolTable.NONE && effective(bundle.getId()) == bundle) {
+			changed(new ModelEvent.BundleChanged(bundle.getName(), bundle.getName()));
 			return true;
 		}
 		return false;
@@ -348,18 +978,20 @@ public class NeedsRepository extends Observable {
      */
     public void editNeed(String oldName, String newName, double newTotal) {
         NeedComponent component = getNeedByName(oldName);
-        if (component instanceof Need need) {
+        if (component instanceof Need) {
+            Need need = (Need) own(component);
+            String name = need.getName();
+            double oldTotal = need.getTotal();
             // 1. Update Name (only if a new name is provided)
             if (newName != null && !newName.isBlank() && !oldName.equalsIgnoreCase(newName)) {
-                need.setName(newName);
+                rename(need, newName);
             }
             
             // 2. Update Total Cost (only if a valid new total is provided)
             if (newTotal >= 0.0) {
                 need.setTotal(newTotal);
             }
-            setChanged();
-            notifyObservers();
+            changed(new ModelEvent.NeedChanged(name, need.getName(), oldTotal, need.getTotal()));
         } else {
             System.err.println("Error: Cannot edit need '" + oldName + "'. Not found or is a Bundle.");
         }
@@ -373,15 +1005,38 @@ public class NeedsRepository extends Observable {
     public void editBundleName(String oldName, String newName) {
         NeedComponent component = getNeedByName(oldName);
         // We ensure we are only editing a Bundle object
-        if (component instanceof Bundle bundle) { 
-            bundle.setName(newName);
-            setChanged();
-            notifyObservers();
+        if (component instanceof Bundle) { 
+            NeedComponent bundle = own(component);
+            String name = bundle.getName();
+            rename(bundle, newName);
+            changed(new ModelEvent.BundleChanged(name, bundle.getName()));
         } else {
             System.err.println("Error: Cannot rename bundle '" + oldName + "'. Not found or is a simple Need.");
         }
     }
     
+    /*
+     * Renames a catalog entry in place. The symbol table update is O(1) and every
+     * ledger row and bundle that holds the id picks up the new name.
+     */
+    private void rename(NeedComponent component, String newName) {
+        NeedComponent existing = getNeedByName(newName);
+        if (existing != null && existing != component) {
+            System.err.println("Error: Cannot rename '" + component.getName() + "' to '" + newName + "'. That name is already in the catalog.");
+            return;
+        }
+
+        searchIndex.remove(component, component.getName());
+        if (component instanceof Need need) {
+            need.setName(newName);
+        }
+        else if (component instanceof Bundle bundle) {
+            bundle.setName(newName);
+        }
+        symbols.rename(component.getId(), newName);
+        searchIndex.add(component);
+    }
+
     /**
      * Adds a component to an existing Bundle, or increases its quantity.
      * @param bundleName The name of the Bundle.
@@ -389,13 +1044,14 @@ public class NeedsRepository extends Observable {
      * @param quantity The number of units to add (must be > 0).
      */
     public void addBundleComponent(String bundleName, NeedComponent component, int quantity) {
-        NeedComponent targetComponent = getNeedByName(bundleName);
-        if (targetComponent instanceof Bundle bundle) {
-            if (quantity > 0) {
+        Bundle bundle = getBundleForEdit(bundleName);
+        if (bundle != null) {
+            if (component.equals(bundle) || (component instanceof Bundle inner && inner.containsComponent(bundle))) {
+                System.err.println("Error: Adding '" + component.getName() + "' to '" + bundleName + "' would make the bundle contain itself.");
+            } else if (quantity > 0) {
                 // The Bundle class handles checking for positive quantity
                 bundle.add(component, quantity);
-                setChanged();
-                notifyObservers();
+                changed(new ModelEvent.BundleChanged(bundle.getName(), bundle.getName()));
             } else {
                 System.err.println("Error: Quantity must be positive to add a component.");
             }
@@ -412,14 +1068,13 @@ public class NeedsRepository extends Observable {
      * @return The number of units actually removed.
      */
     public int removeBundleComponentQuantity(String bundleName, NeedComponent component, int quantity) {
-        NeedComponent targetComponent = getNeedByName(bundleName);
-        if (targetComponent instanceof Bundle bundle) {
+        Bundle bundle = getBundleForEdit(bundleName);
+        if (bundle != null) {
             if (quantity > 0) {
                 // removeComponentUnits returns the number of units removed (0 if not found/quantity too high)
                 int removedCount = bundle.removeComponentUnits(component.getName(), quantity);
                 if (removedCount > 0) {
-                    setChanged();
-                    notifyObservers();
+                    changed(new ModelEvent.BundleChanged(bundle.getName(), bundle.getName()));
                 }
                 return removedCount;
             } else {
@@ -438,13 +1093,12 @@ public class NeedsRepository extends Observable {
      * @param component The NeedComponent type to remove.
      */
     public void removeBundleComponentType(String bundleName, NeedComponent component) {
-        NeedComponent targetComponent = getNeedByName(bundleName);
-        if (targetComponent instanceof Bundle bundle) {
+        Bundle bundle = getBundleForEdit(bundleName);
+        if (bundle != null) {
             // Check if the component exists in the bundle before removing to avoid unnecessary notification
-            if (bundle.getComponents().contains(component)) {
+            if (bundle.hasComponent(component)) {
                 bundle.remove(component); // Removes the component entirely
-                setChanged();
-                notifyObservers();
+                changed(new ModelEvent.BundleChanged(bundle.getName(), bundle.getName()));
             } else {
                 System.err.println("Warning: Component '" + component.getName() + "' not found in bundle '" + bundleName + "'. No change made.");
             }
@@ -469,13 +1123,24 @@ public class NeedsRepository extends Observable {
         removeNeedComponent(name);
     }
 
+	/**
+	 * Checks whether any Bundle in the catalog still implies units of the given Need,
+	 * either directly or through a nested Bundle.
+	 * @param needName The name of the basic Need.
+	 * @return true if at least one Bundle reaches the Need, false otherwise.
+	 */
 	public boolean isNeedComponentOfAnyBundle(String needName) {
-		// TODO Auto-generated method stub
-		throw new UnsupportedOperationException("Unimplemented method 'isNeedComponentOfAnyBundle'");
+		for (NeedComponent component : needsCatalog) {
+			if (component instanceof Bundle bundle && bundle.getImpliedUnits(needName) > 0) {
+				return true;
+			}
+		}
+		return false;
 	}
 
+
 	public void setUser(User user)
 	{
-		this.manager.setUserPath(user);
+		this.manager.setUser(user);
 	}
 }
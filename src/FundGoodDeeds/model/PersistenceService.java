@@ -0,0 +1,166 @@
+package FundGoodDeeds.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence: repositories hand over the lines of a CSV file and carry on,
+ * and a dedicated thread writes them (durably, through CSVManager) shortly afterwards.
+ *
+ * Saves of the same file that arrive while an earlier one is still waiting are coalesced:
+ * only the newest lines are written, and every caller's future completes with that write.
+ * A file is never left waiting longer than maxDelayMillis after its first queued save.
+ *
+ * Pending saves are flushed when the JVM shuts down (closing the Swing window exits
+ * the JVM), and can be flushed early with flush().
+ */
+public class PersistenceService {
+    private final CSVManager manager;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService writer;
+    private final Thread shutdownHook = new Thread(this::shutdown, "csv-write-behind-flush");
+
+    // Waiting saves by file, guarded by this
+    private final Map<Path, PendingSave> pending = new LinkedHashMap<>();
+    private boolean shutDown;
+
+    private static final class PendingSave {
+        List<String> lines;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+    }
+
+    /**
+     * @param manager Performs the actual (durable) file writes.
+     * @param maxDelayMillis The longest a queued save may wait before it is written.
+     */
+    public PersistenceService(CSVManager manager, long maxDelayMillis) {
+        this.manager = manager;
+        this.maxDelayMillis = maxDelayMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "csv-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues the lines for the file and returns immediately.
+     * @return Completes when these lines (or newer ones for the same file) are on disk,
+     *         or completes exceptionally with the IOException if the write failed.
+     */
+    public synchronized CompletableFuture<Void> submit(Path target, List<String> lines) {
+        if (shutDown) {
+            //Too late to queue; write on the caller's thread instead of losing the save
+            try {
+                manager.writeFile(target, lines);
+                return CompletableFuture.completedFuture(null);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        PendingSave save = pending.get(target);
+        if (save == null) {
+            save = new PendingSave();
+            pending.put(target, save);
+            writer.schedule(() -> write(target), maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        save.lines = List.copyOf(lines);
+        return save.written;
+    }
+
+    /**
+     * Starts writing every queued save now instead of waiting out the delay.
+     * @return Completes when all saves queued before this call are on disk.
+     */
+    public CompletableFuture<Void> flush() {
+        List<Path> targets;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        synchronized (this) {
+            targets = new ArrayList<>(pending.keySet());
+            for (PendingSave save : pending.values()) {
+                futures.add(save.written);
+            }
+            if (!targets.isEmpty()) {
+                writer.execute(() -> targets.forEach(this::write));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Queues the lines, flushes, and waits: a synchronous save that still runs on the
+     * writer thread, so it cannot be overtaken by an older queued save of the same file.
+     */
+    void writeNow(Path target, List<String> lines) throws IOException {
+        CompletableFuture<Void> written = submit(target, lines);
+        flush();
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving " + target.getFileName(), e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes everything still queued, then stops the writer thread. Safe to call more than once.
+     */
+    public void shutdown() {
+        CompletableFuture<Void> remaining;
+        synchronized (this) {
+            if (shutDown) {
+                return;
+            }
+            remaining = flush();
+            shutDown = true;
+        }
+        try {
+            remaining.join();
+        } catch (CompletionException e) {
+            System.err.println("Error: Some data could not be saved on shutdown: " + e.getCause().getMessage());
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // One service per session: don't keep closed ones alive until exit
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is exiting (this may be the hook itself)
+        }
+    }
+
+    // Runs on the writer thread. A file already written by an earlier flush is skipped.
+    private void write(Path target) {
+        PendingSave save;
+        synchronized (this) {
+            save = pending.remove(target);
+        }
+        if (save == null) {
+            return;
+        }
+        try {
+            manager.writeFile(target, save.lines);
+            save.written.complete(null);
+        } catch (IOException e) {
+            save.written.completeExceptionally(e);
+        }
+    }
+}
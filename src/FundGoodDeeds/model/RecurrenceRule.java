@@ -0,0 +1,200 @@
+package FundGoodDeeds.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.Stream;
+
+/**
+ * When a recurring funding source pays out: every N days, weeks, months or years
+ * from a start date, optionally until an end date (inclusive).
+ *
+ * Occurrences are never written to log.csv. They are counted in closed form
+ * (a division for day/week steps, a month difference for month/year steps), so
+ * a query over many years costs the same as a query over one day. When the dates
+ * themselves are needed, occurrences() expands them lazily.
+ *
+ * Monthly rules keep the start's day of month, clamped to shorter months:
+ * a rule starting on Jan 31 pays on Feb 28/29, then Mar 31.
+ */
+public class RecurrenceRule {
+    public enum Frequency {
+        DAILY("d"), WEEKLY("w"), MONTHLY("m"), YEARLY("y");
+
+        private final String code;
+
+        Frequency(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Frequency fromCode(String code) {
+            for (Frequency frequency : values()) {
+                if (frequency.code.equalsIgnoreCase(code)) {
+                    return frequency;
+                }
+            }
+            throw new IllegalArgumentException("Unknown recurrence frequency: " + code);
+        }
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final LocalDate start;
+    private final LocalDate end; // null = open-ended
+
+    public RecurrenceRule(Frequency frequency, int interval, LocalDate start, LocalDate end) {
+        if (frequency == null || start == null) {
+            throw new IllegalArgumentException("A recurrence needs a frequency and a start date.");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Recurrence interval must be positive.");
+        }
+        if (end != null && end.isBefore(start)) {
+            throw new IllegalArgumentException("Recurrence end date cannot be before its start date.");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Counts the occurrences between two dates, both inclusive, without expanding them.
+     * @param from The first date to include.
+     * @param to The last date to include.
+     * @return The number of payouts in the range.
+     */
+    public long countBetween(LocalDate from, LocalDate to) {
+        if (from.isBefore(start)) {
+            from = start;
+        }
+        if (end != null && to.isAfter(end)) {
+            to = end;
+        }
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        long last = lastIndexOnOrBefore(to);
+        long first = firstIndexOnOrAfter(from);
+        return Math.max(0, last - first + 1);
+    }
+
+    /**
+     * Lazily expands the payout dates between two dates, both inclusive.
+     * Nothing is computed until the stream is consumed.
+     */
+    public Stream<LocalDate> occurrences(LocalDate from, LocalDate to) {
+        LocalDate lower = from.isBefore(start) ? start : from;
+        LocalDate upper = (end != null && to.isAfter(end)) ? end : to;
+        if (lower.isAfter(upper)) {
+            return Stream.empty();
+        }
+        long first = firstIndexOnOrAfter(lower);
+        return Stream.iterate(first, index -> index + 1)
+                .map(this::occurrence)
+                .takeWhile(date -> !date.isAfter(upper));
+    }
+
+    // Date of the n-th payout (n = 0 is the start). Computed from the start, so clamping never drifts.
+    private LocalDate occurrence(long n) {
+        return switch (frequency) {
+            case DAILY -> start.plusDays(n * interval);
+            case WEEKLY -> start.plusWeeks(n * interval);
+            case MONTHLY -> start.plusMonths(n * interval);
+            case YEARLY -> start.plusYears(n * interval);
+        };
+    }
+
+    // Smallest n whose payout is on or after the date (date >= start)
+    private long firstIndexOnOrAfter(LocalDate date) {
+        long n = ceilDiv(unitsBetween(date), interval);
+        // Month/year clamping can put the estimate one step early
+        while (occurrence(n).isBefore(date)) {
+            n++;
+        }
+        return n;
+    }
+
+    // Largest n whose payout is on or before the date (date >= start)
+    private long lastIndexOnOrBefore(LocalDate date) {
+        long n = unitsBetween(date) / interval;
+        while (n > 0 && occurrence(n).isAfter(date)) {
+            n--;
+        }
+        while (!occurrence(n + 1).isAfter(date)) {
+            n++;
+        }
+        return n;
+    }
+
+    // Whole days/weeks/months/years from the start to the date, rounded down
+    private long unitsBetween(LocalDate date) {
+        return switch (frequency) {
+            case DAILY -> ChronoUnit.DAYS.between(start, date);
+            case WEEKLY -> ChronoUnit.WEEKS.between(start, date);
+            case MONTHLY -> ChronoUnit.MONTHS.between(start, date);
+            case YEARLY -> ChronoUnit.YEARS.between(start, date);
+        };
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * Serialises the rule as the extra funding.csv columns: freq,interval,start[,end]
+     * Example: w,2,2025-01-03 (every other Friday from Jan 3rd 2025)
+     */
+    public String toCSV() {
+        return frequency.getCode() + "," + interval + "," + start + (end == null ? "" : "," + end);
+    }
+
+    /**
+     * Parses the columns written by toCSV(), starting at the given index.
+     * @return The rule, or null if the row has no recurrence columns.
+     */
+    public static RecurrenceRule fromCSV(String[] fields, int offset) {
+        if (fields.length < offset + 3 || fields[offset].isBlank()) {
+            return null;
+        }
+        try {
+            LocalDate end = fields.length > offset + 3 && !fields[offset + 3].isBlank() ? LocalDate.parse(fields[offset + 3].trim()) : null;
+            return new RecurrenceRule(Frequency.fromCode(fields[offset].trim()), Integer.parseInt(fields[offset + 1].trim()),
+                    LocalDate.parse(fields[offset + 2].trim()), end);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed recurrence: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String unit = switch (frequency) {
+            case DAILY -> "day";
+            case WEEKLY -> "week";
+            case MONTHLY -> "month";
+            case YEARLY -> "year";
+        };
+        String every = interval == 1 ? "every " + unit : "every " + interval + " " + unit + "s";
+        return every + " from " + start + (end == null ? "" : " until " + end);
+    }
+}
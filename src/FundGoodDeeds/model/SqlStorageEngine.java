@@ -0,0 +1,421 @@
+package FundGoodDeeds.model;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.stream.Stream;
+
+/**
+ * A StorageEngine backed by an embedded H2 database in file mode (no server): one
+ * table per dataset, with every user's rows in the same table keyed by user_name.
+ *
+ * Each row is stored as written, next to the columns it is searched by:
+ *   every table: user_name, seq (row order), row_key (first column), name
+ *   ledger only: entry_date, kind, units
+ * Indexes cover (user_name, row_key), (user_name, name) and, for the ledger,
+ * (user_name, entry_date, kind), which LedgerAggregates queries use.
+ *
+ * Selected with -Dfundgooddeeds.storage=h2. The database defaults to
+ * src/FundGoodDeeds/data/fundgooddeeds.mv.db; -Dfundgooddeeds.storage.url overrides it.
+ * When the database is created, the CSV data (shared and every user's) is copied in,
+ * in one transaction that ends by recording the copy in the migrations table. A copy
+ * that fails leaves no rows and no record, so the next open tries again.
+ */
+public class SqlStorageEngine implements StorageEngine, LedgerAggregates {
+    public static final String NAME = "h2";
+    public static final String URL_PROPERTY = "fundgooddeeds.storage.url";
+    private static final String DEFAULT_URL = "jdbc:h2:file:./src/FundGoodDeeds/data/fundgooddeeds";
+
+    // Rows of per-user datasets saved while nobody is logged in (the CSV engine's shared directory)
+    private static final String SHARED = "";
+    // The migrations row written once the CSV data has been copied in
+    private static final String CSV_MIGRATION = "csv";
+
+    private final Connection connection;
+    private final String ledgerTable;
+    private String userName = SHARED;
+
+    /**
+     * Opens (or creates) the database named by fundgooddeeds.storage.url, migrating
+     * the CSV data into it if that has not been done yet.
+     * @param ledgerName The CSV ledger file (e.g. "log.csv"); its base name becomes the ledger table.
+     * @throws IOException If the database could not be opened or the migration failed (it is retried on the next open).
+     */
+    public static SqlStorageEngine open(String ledgerName) throws IOException {
+        SqlStorageEngine engine = new SqlStorageEngine(System.getProperty(URL_PROPERTY, DEFAULT_URL), ledgerName);
+        try {
+            if (engine.createSchema()) {
+                CSVManager csv;
+                try {
+                    csv = new CSVManager(ledgerName);
+                } catch (FileNotFoundException e) {
+                    csv = null; // No CSV data to bring over; start empty
+                }
+                int rows = engine.migrateFrom(csv);
+                System.out.println("Copied " + rows + " rows from the CSV data into the new database.");
+            }
+        } catch (IOException e) {
+            engine.close();
+            throw e;
+        }
+        return engine;
+    }
+
+    public SqlStorageEngine(String jdbcUrl, String ledgerName) throws IOException {
+        try {
+            this.connection = DriverManager.getConnection(jdbcUrl);
+        } catch (SQLException e) {
+            throw new IOException("Could not open database " + jdbcUrl + ": " + e.getMessage(), e);
+        }
+        // log.csv -> log, ledger-previous.csv -> ledger_previous
+        this.ledgerTable = ledgerName.replaceFirst("\\.csv$", "").replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    /**
+     * Creates any missing tables and indexes. H2 commits each CREATE on its own, so this
+     * runs before (not inside) the migration's transaction; every statement is safe to repeat.
+     * @return true if the CSV data still has to be copied in (see migrateFrom).
+     */
+    synchronized boolean createSchema() throws IOException {
+        try (Statement statement = connection.createStatement()) {
+            boolean hadUsers = tableExists("USERS");
+            boolean hadMigrations = tableExists("MIGRATIONS");
+            statement.execute("CREATE TABLE IF NOT EXISTS migrations (name VARCHAR(64) PRIMARY KEY, completed TIMESTAMP NOT NULL)");
+
+            for (Dataset dataset : Dataset.values()) {
+                String table = tableOf(dataset);
+                String ledgerColumns = dataset == Dataset.LEDGER ? "entry_date DATE, kind CHAR(1), units DOUBLE, " : "";
+                statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "user_name VARCHAR(255) NOT NULL, seq INT NOT NULL, row_key VARCHAR(255) NOT NULL, "
+                        + "name VARCHAR(255), " + ledgerColumns + "line VARCHAR(4000) NOT NULL, "
+                        + "PRIMARY KEY (user_name, seq))");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_key ON " + table + " (user_name, row_key)");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_name ON " + table + " (user_name, name)");
+            }
+            statement.execute("CREATE INDEX IF NOT EXISTS " + ledgerTable + "_date_kind ON " + ledgerTable + " (user_name, entry_date, kind)");
+
+            if (hadUsers && !hadMigrations) {
+                // Made by a version without this table, whose copy never ran (H2's own USERS table hid
+                // the missing one); its rows were entered in the app and must not be replaced by the CSV data
+                recordMigration(statement);
+                return false;
+            }
+            try (ResultSet done = statement.executeQuery("SELECT 1 FROM migrations WHERE name = '" + CSV_MIGRATION + "'")) {
+                return !done.next();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not create the database tables: " + e.getMessage(), e);
+        }
+    }
+
+    // Only our own schema: H2 has an INFORMATION_SCHEMA.USERS table too
+    private boolean tableExists(String name) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet tables = meta.getTables(null, connection.getSchema(), name, new String[] {"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private static void recordMigration(Statement statement) throws SQLException {
+        statement.executeUpdate("MERGE INTO migrations (name, completed) KEY (name) VALUES ('" + CSV_MIGRATION + "', CURRENT_TIMESTAMP)");
+    }
+
+    /**
+     * Copies users.csv, the shared CSV datasets and every user's datasets into this database
+     * and records the migration, all in one transaction: if any of it fails, nothing is kept.
+     * @param csv The CSV engine to read from, or null if there is no CSV data (only the record is written).
+     * @return The number of rows copied.
+     * @throws IOException If the copy failed; the database is left as it was.
+     */
+    public synchronized int migrateFrom(CSVManager csv) throws IOException {
+        int rows = 0;
+        try {
+            connection.setAutoCommit(false);
+            if (csv != null) {
+                List<String> users = csv.load(Dataset.USERS);
+                deleteAndInsert(Dataset.USERS, SHARED, users);
+                rows += users.size();
+
+                // The shared directory first: the CSV engine cannot go back to it after setUser
+                rows += copyUserData(csv, SHARED);
+                for (String row : users) {
+                    String[] columns = row.split(",");
+                    if (columns.length >= 4) {
+                        csv.setUser(new User(columns[0], columns[1], columns[2], columns[3]));
+                        rows += copyUserData(csv, columns[0]);
+                    }
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                recordMigration(statement);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not copy the CSV data into the database (it will be tried again on the next start): " + e.getMessage(), e);
+        } finally {
+            autoCommit();
+        }
+        return rows;
+    }
+
+    private int copyUserData(CSVManager csv, String user) throws SQLException {
+        int rows = 0;
+        for (Dataset dataset : Dataset.values()) {
+            if (dataset.isPerUser()) {
+                List<String> data = csv.load(dataset);
+                deleteAndInsert(dataset, user, data);
+                rows += data.size();
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public synchronized List<String> load(Dataset dataset) {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT line FROM " + tableOf(dataset) + " WHERE user_name = ? ORDER BY seq")) {
+            select.setString(1, ownerOf(dataset));
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    rows.add(result.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            // Same as a missing CSV file: report it and carry on with no rows
+            System.err.println("Error: Could not load " + tableOf(dataset) + ": " + e.getMessage());
+        }
+        return rows;
+    }
+
+    @Override
+    public void replace(Dataset dataset, List<String> rows) throws IOException {
+        replaceRows(dataset, ownerOf(dataset), rows);
+    }
+
+    // Deletes and re-inserts the user's rows in one transaction, so a failure keeps the old rows
+    private synchronized void replaceRows(Dataset dataset, String owner, List<String> rows) throws IOException {
+        try {
+            connection.setAutoCommit(false);
+            deleteAndInsert(dataset, owner, rows);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not save " + tableOf(dataset) + ": " + e.getMessage(), e);
+        } finally {
+            autoCommit();
+        }
+    }
+
+    @Override
+    public synchronized void append(Dataset dataset, List<String> rows) throws IOException {
+        String owner = ownerOf(dataset);
+        try {
+            connection.setAutoCommit(false);
+            int next;
+            try (PreparedStatement max = connection.prepareStatement(
+                    "SELECT COALESCE(MAX(seq), -1) + 1 FROM " + tableOf(dataset) + " WHERE user_name = ?")) {
+                max.setString(1, owner);
+                try (ResultSet result = max.executeQuery()) {
+                    result.next();
+                    next = result.getInt(1);
+                }
+            }
+            insertRows(dataset, owner, next, rows);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException("Could not append to " + tableOf(dataset) + ": " + e.getMessage(), e);
+        } finally {
+            autoCommit();
+        }
+    }
+
+    // Part of the caller's transaction
+    private void deleteAndInsert(Dataset dataset, String owner, List<String> rows) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + tableOf(dataset) + " WHERE user_name = ?")) {
+            delete.setString(1, owner);
+            delete.executeUpdate();
+        }
+        insertRows(dataset, owner, 0, rows);
+    }
+
+    private void insertRows(Dataset dataset, String owner, int firstSeq, List<String> rows) throws SQLException {
+        boolean ledger = dataset == Dataset.LEDGER;
+        String sql = "INSERT INTO " + tableOf(dataset) + " (user_name, seq, row_key, name, "
+                + (ledger ? "entry_date, kind, units, " : "") + "line) VALUES (?, ?, ?, ?, " + (ledger ? "?, ?, ?, " : "") + "?)";
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            int seq = firstSeq;
+            for (String row : rows) {
+                if (row.isBlank()) {
+                    continue; // Like a blank line in a CSV file, it is not a row
+                }
+                String[] fields = row.split(",");
+                int column = 1;
+                insert.setString(column++, owner);
+                insert.setInt(column++, seq++);
+                insert.setString(column++, Dataset.keyOf(row));
+                if (ledger) {
+                    LedgerColumns parsed = LedgerColumns.parse(fields);
+                    insert.setString(column++, parsed.name);
+                    if (parsed.date == null) {
+                        insert.setNull(column++, Types.DATE);
+                        insert.setNull(column++, Types.CHAR);
+                        insert.setNull(column++, Types.DOUBLE);
+                    } else {
+                        insert.setObject(column++, parsed.date);
+                        insert.setString(column++, parsed.kind);
+                        insert.setDouble(column++, parsed.units);
+                    }
+                } else {
+                    // users: the username; needs and funding: the need/source name
+                    insert.setString(column++, dataset == Dataset.USERS ? fields[0] : (fields.length > 1 ? fields[1] : null));
+                }
+                insert.setString(column, row);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    // The indexed columns of a ledger row: yyyy,mm,dd,kind,name,units or yyyy,mm,dd,kind,amount
+    private record LedgerColumns(LocalDate date, String kind, String name, Double units) {
+        static LedgerColumns parse(String[] fields) {
+            try {
+                LocalDate date = LocalDate.of(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                boolean named = fields.length > 5;
+                return new LedgerColumns(date, fields[3], named ? fields[4] : null, Double.parseDouble(fields[named ? 5 : 4]));
+            } catch (RuntimeException e) {
+                // Kept as written; LedgerRepository reports it when loading, as it does for CSV
+                return new LedgerColumns(null, null, null, null);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Stream<String> query(Dataset dataset, String key) {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT line FROM " + tableOf(dataset) + " WHERE user_name = ? AND row_key = ? ORDER BY seq")) {
+            select.setString(1, ownerOf(dataset));
+            select.setString(2, key);
+            try (ResultSet result = select.executeQuery()) {
+                while (result.next()) {
+                    rows.add(result.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error: Could not query " + tableOf(dataset) + ": " + e.getMessage());
+        }
+        return rows.stream();
+    }
+
+    @Override
+    public synchronized OptionalDouble latestAmount(char kind, LocalDate date) {
+        // The exact date prefers its last entry, earlier dates their first (see LedgerAggregates)
+        String sql = "SELECT units FROM " + ledgerTable + " WHERE user_name = ? AND kind = ? AND entry_date <= ? "
+                + "ORDER BY entry_date DESC, CASE WHEN entry_date = ? THEN -seq ELSE seq END LIMIT 1";
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            select.setString(1, userName);
+            select.setString(2, String.valueOf(kind));
+            select.setObject(3, date);
+            select.setObject(4, date);
+            try (ResultSet result = select.executeQuery()) {
+                return result.next() ? OptionalDouble.of(result.getDouble(1)) : OptionalDouble.empty();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not query " + ledgerTable + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized boolean hasEntries(LocalDate date, String kinds) {
+        String placeholders = String.join(", ", Collections.nCopies(kinds.length(), "?"));
+        String sql = "SELECT 1 FROM " + ledgerTable + " WHERE user_name = ? AND entry_date = ? AND kind IN (" + placeholders + ") LIMIT 1";
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            select.setString(1, userName);
+            select.setObject(2, date);
+            for (int i = 0; i < kinds.length(); i++) {
+                select.setString(3 + i, String.valueOf(kinds.charAt(i)));
+            }
+            try (ResultSet result = select.executeQuery()) {
+                return result.next();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not query " + ledgerTable + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String locationOf(Dataset dataset) {
+        return tableOf(dataset) + " table";
+    }
+
+    @Override
+    public void setUser(User user) {
+        this.userName = user.getUsername();
+    }
+
+    // A new user's datasets are simply empty; there is nothing to create
+    @Override
+    public void createUser(String userName) {
+    }
+
+    // Each session has its own connection; H2 closes the database with the last one
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Could not close the database: " + e.getMessage(), e);
+        }
+    }
+
+    private String tableOf(Dataset dataset) {
+        return switch (dataset) {
+            case NEEDS -> "needs";
+            case FUNDING -> "funding";
+            case LEDGER -> ledgerTable;
+            case USERS -> "users";
+        };
+    }
+
+    // users is shared, so its rows never belong to the logged-in user
+    private String ownerOf(Dataset dataset) {
+        return dataset.isPerUser() ? userName : SHARED;
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error: Rollback failed: " + e.getMessage());
+        }
+    }
+
+    private void autoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+}
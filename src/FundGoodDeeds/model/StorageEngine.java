@@ -0,0 +1,100 @@
+package FundGoodDeeds.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Where the repositories keep their data. The repositories own the row formats
+ * (see Dataset) and an engine only stores rows, so a new backend never has to
+ * understand needs, bundles or ledger entries.
+ *
+ * CSVManager is the default engine. Others are registered with StorageEngines and
+ * chosen by configuration. Every engine must behave the same way:
+ *   - load returns the rows in the order they were last replaced/appended, without blank rows
+ *   - replace is all-or-nothing: on failure the old rows are kept and an IOException is thrown
+ *   - append adds rows after the existing ones
+ *   - per-user datasets follow the last setUser call; USERS is always shared
+ *
+ * An engine is not shared between users: each UserSession opens its own and calls
+ * setUser once, before the first load.
+ */
+public interface StorageEngine extends Closeable {
+
+    // Short name used in configuration, e.g. "csv"
+    String getName();
+
+    /**
+     * @param dataset The dataset to read.
+     * @return Every row of the dataset; empty if it does not exist yet.
+     */
+    List<String> load(Dataset dataset);
+
+    /**
+     * Replaces every row of the dataset.
+     * @param dataset The dataset to overwrite.
+     * @param rows The new rows.
+     * @throws IOException If the rows could not be stored; the old rows are left intact.
+     */
+    void replace(Dataset dataset, List<String> rows) throws IOException;
+
+    /**
+     * Like replace, but an engine may finish the write in the background.
+     * @return Completes when the rows (or newer ones for the same dataset) are stored.
+     */
+    default CompletableFuture<Void> replaceLater(Dataset dataset, List<String> rows) {
+        try {
+            replace(dataset, rows);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Adds rows after the existing rows of the dataset.
+     * @param dataset The dataset to extend.
+     * @param rows The rows to add.
+     * @throws IOException If the rows could not be stored.
+     */
+    void append(Dataset dataset, List<String> rows) throws IOException;
+
+    /**
+     * Rows whose key (first column) equals the given key, e.g. every "b" row of NEEDS
+     * or one user's row of USERS. Engines that can index the key should override this.
+     * @param dataset The dataset to search.
+     * @param key The first column to match exactly.
+     * @return The matching rows, in load order.
+     */
+    default Stream<String> query(Dataset dataset, String key) {
+        return load(dataset).stream().filter(row -> Dataset.keyOf(row).equals(key));
+    }
+
+    /**
+     * What changed in the stored dataset since this engine last loaded or stored it,
+     * for example because another program appended to it. Engines that cannot tell
+     * report REPLACED, which makes callers load the dataset again.
+     */
+    default DatasetChange changeSince(Dataset dataset) {
+        return DatasetChange.REPLACED;
+    }
+
+    // Where the dataset lives, for messages and save reports (e.g. "needs.csv")
+    String locationOf(Dataset dataset);
+
+    // Points the per-user datasets at this user's data
+    void setUser(User user);
+
+    /**
+     * Creates empty per-user datasets for a new user.
+     * @throws IOException If the user's storage could not be created.
+     */
+    void createUser(String userName) throws IOException;
+
+    // Releases the engine's resources (connections, ...) when its session ends
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,62 @@
+package FundGoodDeeds.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The storage engines the app can run on, by name. The engine is picked with
+ * the fundgooddeeds.storage system property, e.g. -Dfundgooddeeds.storage=h2,
+ * and defaults to CSV files.
+ */
+public final class StorageEngines {
+    public static final String PROPERTY = "fundgooddeeds.storage";
+    public static final String DEFAULT_ENGINE = "csv";
+
+    // Builds an engine; the ledger name is the ledger file/table to use (e.g. "log.csv")
+    @FunctionalInterface
+    public interface Factory {
+        StorageEngine create(String ledgerName) throws IOException;
+    }
+
+    private static final Map<String, Factory> factories = new LinkedHashMap<>();
+
+    static {
+        register(DEFAULT_ENGINE, CSVManager::new);
+        register(SqlStorageEngine.NAME, SqlStorageEngine::open);
+    }
+
+    private StorageEngines() {
+    }
+
+    public static synchronized void register(String name, Factory factory) {
+        factories.put(name.toLowerCase(), factory);
+    }
+
+    // Every registered engine name, in registration order
+    public static synchronized List<String> names() {
+        return new ArrayList<>(factories.keySet());
+    }
+
+    /**
+     * @param name A registered engine name (case-insensitive).
+     * @param ledgerName The ledger file/table to use.
+     * @return A new engine.
+     * @throws IllegalArgumentException If no engine has that name.
+     * @throws IOException If the engine could not open its storage.
+     */
+    public static synchronized StorageEngine create(String name, String ledgerName) throws IOException {
+        Factory factory = factories.get(name.toLowerCase());
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown storage engine '" + name + "'. Available: " + String.join(", ", factories.keySet()));
+        }
+        return factory.create(ledgerName);
+    }
+
+    // The engine named by the fundgooddeeds.storage property, or CSV if it is not set
+    public static StorageEngine fromConfig(String ledgerName) throws IOException {
+        return create(System.getProperty(PROPERTY, DEFAULT_ENGINE), ledgerName);
+    }
+}
@@ -0,0 +1,204 @@
+package FundGoodDeeds.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns each distinct name (case-insensitive) a small int id.
+ *
+ * The catalog, the bundles and the ledger all hold the id instead of their own copy
+ * of the name, so joins between them are integer comparisons and a rename only has
+ * to update the table. Ids are never reused: a ledger row for a deleted need keeps
+ * resolving to the name it was recorded under.
+ *
+ * Each repository owns one table per user, so need names and funding-source names
+ * live in separate namespaces and renaming one can never relabel the other.
+ *
+ * A table can extend a shared base table (a CatalogTemplate's). Ids below the base's
+ * size are the base's ids, so shared catalog entries keep their ids; renames of those
+ * ids are recorded here and the base is never modified.
+ */
+public class SymbolTable {
+    public static final int NONE = -1;
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    // Shared table this one extends (never modified), or null; ids below baseSize are its ids
+    private final SymbolTable base;
+    private final int baseSize;
+    // Base ids renamed in this table; their base names no longer resolve to them
+    private final Map<Integer, String> renamedBase = new HashMap<>();
+    // Base ids whose base name has been taken over by another id
+    private final Set<Integer> hiddenBase = new HashSet<>();
+
+    // Names of the ids this table added, at id - baseSize
+    private String[] names = new String[16];
+    private int size;
+
+    // Open-addressing index over names. Slot values: EMPTY, DELETED, or (id + 1)
+    private int[] index = new int[32];
+    private int indexUsed;
+
+    public SymbolTable() {
+        this(null);
+    }
+
+    /**
+     * @param base A table that must not change any more (a CatalogTemplate's), or null.
+     */
+    SymbolTable(SymbolTable base) {
+        this.base = base;
+        this.baseSize = base == null ? 0 : base.size();
+    }
+
+    /**
+     * Returns the id for a name, assigning a new one if the name has not been seen.
+     * @param name The display name to intern.
+     * @return The id for that name.
+     */
+    public int intern(String name) {
+        int id = idOf(name);
+        if (id != NONE) {
+            return id;
+        }
+
+        if (size == names.length) {
+            String[] grown = new String[size * 2];
+            System.arraycopy(names, 0, grown, 0, size);
+            names = grown;
+        }
+        names[size] = name;
+        id = baseSize + size++;
+        insertKey(id);
+        return id;
+    }
+
+    /**
+     * Looks up the id for a name (case-insensitive) without allocating.
+     * @param name The name to find.
+     * @return The id, or NONE if the name has never been interned.
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        int mask = index.length - 1;
+        for (int i = hash(name) & mask; ; i = (i + 1) & mask) {
+            int entry = index[i];
+            if (entry == EMPTY) {
+                break;
+            }
+            if (entry != DELETED && nameOf(entry - 1).equalsIgnoreCase(name)) {
+                return entry - 1;
+            }
+        }
+        if (base != null) {
+            int id = base.idOf(name);
+            if (id != NONE && !renamedBase.containsKey(id) && !hiddenBase.contains(id)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the current display name for an id.
+     */
+    public String nameOf(int id) {
+        if (id < baseSize) {
+            String renamed = renamedBase.get(id);
+            return renamed != null ? renamed : base.nameOf(id);
+        }
+        return names[id - baseSize];
+    }
+
+    /**
+     * Renames an id in O(1). Everything that references the id sees the new name.
+     * If another id was already registered under the new name (for example a deleted
+     * need that still has ledger rows), lookups by that name now resolve to this id
+     * while the old rows keep their display name.
+     * @param id The id to rename.
+     * @param newName The new display name.
+     */
+    public void rename(int id, String newName) {
+        removeKey(id);
+        int other = idOf(newName);
+        if (other != NONE && other != id) {
+            removeKey(other);
+            if (other < baseSize) {
+                hiddenBase.add(other);
+            }
+        }
+        if (id < baseSize) {
+            renamedBase.put(id, newName);
+        } else {
+            names[id - baseSize] = newName;
+        }
+        insertKey(id);
+    }
+
+    // Number of ids handed out so far, including the base table's
+    public int size() {
+        return baseSize + size;
+    }
+
+    private void insertKey(int id) {
+        if ((indexUsed + 1) * 2 > index.length) {
+            rebuildIndex();
+        }
+        int mask = index.length - 1;
+        int i = hash(nameOf(id)) & mask;
+        while (index[i] > EMPTY) {
+            i = (i + 1) & mask;
+        }
+        if (index[i] == EMPTY) {
+            indexUsed++;
+        }
+        index[i] = id + 1;
+    }
+
+    private void removeKey(int id) {
+        int mask = index.length - 1;
+        for (int i = hash(nameOf(id)) & mask; index[i] != EMPTY; i = (i + 1) & mask) {
+            if (index[i] == id + 1) {
+                index[i] = DELETED;
+                return;
+            }
+        }
+    }
+
+    // Re-inserts every id that still owns its name, dropping DELETED markers
+    private void rebuildIndex() {
+        int[] old = index;
+        int capacity = index.length;
+        while (capacity < (size + renamedBase.size() + 1) * 4) {
+            capacity <<= 1;
+        }
+        index = new int[capacity];
+        indexUsed = 0;
+
+        int mask = capacity - 1;
+        for (int entry : old) {
+            if (entry > EMPTY) {
+                int i = hash(nameOf(entry - 1)) & mask;
+                while (index[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                index[i] = entry;
+                indexUsed++;
+            }
+        }
+    }
+
+    // Case-insensitive hash that agrees with String.equalsIgnoreCase
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,31 +1,25 @@
 package FundGoodDeeds.model;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import com.password4j.Password;
 
+// Shared by every UserSession of the process, so the user list is accessed under its lock
 public class UserStore {
     private List<User> users = new ArrayList<>();
-    private CSVManager manager;
-    private final String[] fileNames = {
-        "funding.csv",
-        "log.csv",
-        "needs.csv"
-    };
-
-    public UserStore(CSVManager manager)
+    private StorageEngine manager;
+
+    public UserStore(StorageEngine manager)
     {
         this.manager = manager;
         this.loadUsers();
     }
 
 
-    public void loadUsers()
+    public synchronized void loadUsers()
     {
-        List<String> rawUsers = manager.readData("users.csv");
+        List<String> rawUsers = manager.load(Dataset.USERS);
         if(!rawUsers.isEmpty())
             this.users = new ArrayList<>(rawUsers.stream().map(user -> createUserObject(user)).toList());
     }
@@ -65,7 +59,7 @@ public class UserStore {
      * @param lastName
      * @return String that describes what happened, if the user already exists, etc
      */
-    public void addUser(String userName, String password, String firstName, String lastName)
+    public synchronized void addUser(String userName, String password, String firstName, String lastName)
     {
 
         if(getUser(userName) == null)
@@ -77,10 +71,10 @@ public class UserStore {
             User newUser = new User(userName, hashedPassword, firstName, lastName);
             users.add(newUser);
 
-            List<String> usersStrings = new ArrayList<>(users.stream().map(user -> user.toCSVString()).toList());
             createUserDirectory(userName);
             try {
-                manager.writeData("users.csv",usersStrings);
+                // Only the new row is written; existing users are left untouched
+                manager.append(Dataset.USERS, List.of(newUser.toCSVString()));
             } catch (IOException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
@@ -91,12 +85,7 @@ public class UserStore {
     private void createUserDirectory(String userName) {
        try
        {
-
-        Path userDir = Files.createDirectory(manager.getDataPath().resolve(userName));
-
-        for(String file : fileNames){
-            Files.createFile(userDir.resolve(file));
-        }
+        manager.createUser(userName);
        }
        catch(IOException e)
        {
@@ -113,7 +102,7 @@ public class UserStore {
      * @return The User object if a match is found
      */
 
-    public User getUser(String userName)
+    public synchronized User getUser(String userName)
     {
         for(User user : users)
         {
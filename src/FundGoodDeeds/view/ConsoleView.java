@@ -3,7 +3,9 @@ package FundGoodDeeds.view;
 import FundGoodDeeds.controller.MasterController;
 import FundGoodDeeds.model.Bundle;
 import FundGoodDeeds.model.Day;
+import FundGoodDeeds.model.EventBus;
 import FundGoodDeeds.model.FundingSource;
+import FundGoodDeeds.model.ModelEvent;
 import FundGoodDeeds.model.NeedComponent;
 
 import java.time.LocalDate;
@@ -16,7 +18,7 @@ import java.util.*;
  * - Supports Needs/Bundles, Funding Sources, Ledger, Thresholds, and Date selection
  * - Keeps all persistence and business logic in controllers/repositories
  */
-public class ConsoleView implements Observer {
+public class ConsoleView implements EventBus.Listener {
 
     private final MasterController master;
     private final Scanner in = new Scanner(System.in);
@@ -24,7 +26,7 @@ public class ConsoleView implements Observer {
 
     public ConsoleView(MasterController master) {
         this.master = master;
-        master.registerObservers(this);
+        master.addListener(this);
     }
 
     /** Entry point for the CLI. Assumes data is already loaded by the App. */
@@ -67,6 +69,7 @@ public class ConsoleView implements Observer {
             System.out.println("\nSystem");
             System.out.println("19) Reload CSVs");
             System.out.println("20) Save CSVs");
+            System.out.println("21) Import Needs Catalog");
 
             System.out.println("\n 0) Exit");
             System.out.print("\nSelect: ");
@@ -94,8 +97,9 @@ public class ConsoleView implements Observer {
                 case "17" -> changeDate();
                 case "18" -> printSummaryHeader();
 
-                case "19" -> master.loadAll();
+                case "19" -> master.reloadChanged(true);
                 case "20" -> master.saveAll();
+                case "21" -> importCatalog();
                 case "0"  -> run = false;
                 default   -> System.out.println("Invalid option.");
             }
@@ -109,11 +113,14 @@ public class ConsoleView implements Observer {
     }
 
     // ===========================================================
-    // OBSERVER
+    // MODEL EVENTS
     // ===========================================================
     @Override
-    public void update(java.util.Observable o, Object arg) {
-        System.out.println("[UPDATE] Data changed in model: " + o.getClass().getSimpleName());
+    public void changed(ModelEvent event) {
+        if (event instanceof ModelEvent.DateSelected) {
+            return; // The menu prints the active date itself
+        }
+        System.out.println("[UPDATE] " + event);
     }
 
     // ===========================================================
@@ -212,6 +219,17 @@ public class ConsoleView implements Observer {
         }
     }
 
+    private void importCatalog() {
+        String path = ask("Catalog file (needs.csv format): ");
+        try {
+            var result = master.getNeedsController().importCatalogFile(path,
+                    rows -> System.out.println("  ... " + rows + " rows read"));
+            System.out.println("Import finished: " + result + ".");
+        } catch (RuntimeException e) {
+            System.out.println("[ERROR] " + e.getMessage());
+        }
+    }
+
     private void editNeed() {
         listNeeds();
         String name = askForExistingNeed("Editing Need (not Bundle) name: ");
@@ -329,7 +347,7 @@ public class ConsoleView implements Observer {
                 case "2" -> {
                     String componentName = ask("Component to remove quantity from: ");
                     NeedComponent component = master.getNeedsController().getNeedByName(componentName);
-                    if (component == null || !bundle.getComponents().contains(component)) {
+                    if (component == null || !bundle.hasComponent(component)) {
                         System.out.println("Component not in bundle or does not exist.");
                         break;
                     }
@@ -344,7 +362,7 @@ public class ConsoleView implements Observer {
                 case "3" -> {
                     String componentName = ask("Component type to remove completely: ");
                     NeedComponent component = master.getNeedsController().getNeedByName(componentName);
-                    if (component == null || !bundle.getComponents().contains(component)) {
+                    if (component == null || !bundle.hasComponent(component)) {
                         System.out.println("Component not in bundle or does not exist.");
                         break;
                     }
@@ -394,6 +412,39 @@ public class ConsoleView implements Observer {
         double amt = askDouble("Amount per unit: ");
         master.getFundingController().addFundingSource(name, amt);
         System.out.println("Added.");
+        if (askYesNo("Does it pay out on a schedule? (y/n): ")) {
+            askRecurrence(name);
+        }
+    }
+
+    // Asks for a payout schedule; occurrences are counted into income, never logged
+    private void askRecurrence(String name) {
+        String code = ask("Repeat every (d)ay, (w)eek, (m)onth or (y)ear? ");
+        int interval = askInt("Every how many? ");
+        LocalDate start = askAnyDate("First payout (yyyy-MM-dd) [blank=today]: ");
+        System.out.print("Last payout (yyyy-MM-dd) [blank=no end]: ");
+        String endText = in.nextLine().trim();
+        try {
+            LocalDate end = endText.isBlank() ? null : LocalDate.parse(endText, YMD);
+            master.getFundingController().setRecurrence(name, code, interval, start, end);
+            System.out.println("Schedule set.");
+        } catch (RuntimeException e) {
+            System.out.println("[ERROR] " + e.getMessage());
+        }
+    }
+
+    // Like askDate, but schedules may start in the past or the future
+    private LocalDate askAnyDate(String p) {
+        while (true) {
+            System.out.print(p);
+            String s = in.nextLine().trim();
+            if (s.isBlank()) return LocalDate.now();
+            try {
+                return LocalDate.parse(s, YMD);
+            } catch (Exception e) {
+                System.out.println("Invalid date format. Use YYYY-MM-DD.");
+            }
+        }
     }
 
     private void editFundingSource() {
@@ -402,6 +453,14 @@ public class ConsoleView implements Observer {
         double amt = askDouble("New $/unit: ");
         master.getFundingController().updateFundingSource(name, amt);
         System.out.println("Updated.");
+        if (askYesNo("Change its payout schedule? (y/n): ")) {
+            if (askYesNo("Remove the schedule? (y/n): ")) {
+                master.getFundingController().clearRecurrence(name);
+                System.out.println("Schedule removed.");
+            } else {
+                askRecurrence(name);
+            }
+        }
     }
 
     private void deleteFundingSource() {
@@ -559,10 +618,7 @@ public class ConsoleView implements Observer {
                 }
                 
                 //Get the current component count in the selected bundle
-                int bundleComponentCount = selectedBundle.getComponentsAndCounts().entrySet().stream()
-                    .filter(e -> e.getKey().getName().equalsIgnoreCase(name))
-                    .mapToInt(Map.Entry::getValue)
-                    .sum();
+                int bundleComponentCount = selectedBundle.getComponentCount(name);
 
                 if (bundleComponentCount == 0) {
                     System.out.println("Selected bundle no longer contains units of '" + name + "'. Please select another.");
@@ -734,10 +790,7 @@ public class ConsoleView implements Observer {
             for (int i = 0; i < bundles.size(); i++) {
                 Bundle b = bundles.get(i);
                 // Get the current component count in the bundle
-                int count = b.getComponentsAndCounts().entrySet().stream()
-                    .filter(e -> e.getKey().getName().equalsIgnoreCase(needName))
-                    .mapToInt(Map.Entry::getValue)
-                    .sum();
+                int count = b.getComponentCount(needName);
                 System.out.printf("  %d) %s (Contains %d units of %s)\n", i + 1, b.getName(), count, needName);
             }
             System.out.println("  0) Cancel Fulfillment");
@@ -799,7 +852,26 @@ public class ConsoleView implements Observer {
             if (master.getNeedsController().getNeedByName(name) != null) {
                 return name;
             }
-            System.out.println("[ERROR] Need or Bundle not found: " + name);
+
+            // Type-ahead: offer the closest catalog names for partial or misspelled input
+            List<NeedComponent> matches = master.getNeedsController().searchNeeds(name, 5);
+            if (matches.isEmpty()) {
+                System.out.println("[ERROR] Need or Bundle not found: " + name);
+                continue;
+            }
+            System.out.println("No exact match for '" + name + "'. Did you mean:");
+            for (int i = 0; i < matches.size(); i++) {
+                System.out.printf("  %d) %s%n", i + 1, matches.get(i).getName());
+            }
+            String pick = ask("Select a number (blank to search again): ");
+            try {
+                int choice = Integer.parseInt(pick);
+                if (choice > 0 && choice <= matches.size()) {
+                    return matches.get(choice - 1).getName();
+                }
+            } catch (NumberFormatException e) {
+                // Fall through and prompt again
+            }
         }
     }
 
@@ -6,8 +6,6 @@ import FundGoodDeeds.controller.MasterController;
 import FundGoodDeeds.model.*;
 import javax.swing.*;
 import java.awt.*;
-import java.util.Observable;
-import java.util.Observer;
 import FundGoodDeeds.view.panels.*;
 
 /**
@@ -15,23 +13,23 @@ import FundGoodDeeds.view.panels.*;
  * Main GUI Window
  * - Dark Mode enabled
  * - Uses tabbed interface
- * - Auto-refreshes whenever repos update (Observer pattern)
+ * - Auto-refreshes from the session's model events (see EventBus)
+ * - Tabs are built on first selection; hidden tabs are marked stale and refresh once when shown
  * - Completely driven by MasterController
  * - Implements all ConsoleView features.
  */
-@SuppressWarnings("deprecation")
-public class SwingUIView extends JFrame implements Observer {
+public class SwingUIView extends JFrame {
 
     private static final long serialVersionUID = 1L;
 
     private final MasterController master;
 
-    // Create all the different panels up front.
+    // Each tab builds its panel the first time it is shown, and only refreshes while it is on screen.
     // This keeps the GUI modular — you can modify one panel without breaking the others.
-    private SummaryPanel summaryPanel;
-    private NeedsPanel needsPanel;
-    private FundingPanel fundingPanel;
-    private LedgerPanel ledgerPanel;
+    private LazyTab<SummaryPanel> summaryTab;
+    private LazyTab<NeedsPanel> needsTab;
+    private LazyTab<FundingPanel> fundingTab;
+    private LazyTab<LedgerPanel> ledgerTab;
     private DatePanel datePanel; // Now a panel at the top
 
     private boolean isDarkModeEnabled = true;   //Start in dark mode by default
@@ -49,20 +47,17 @@ public class SwingUIView extends JFrame implements Observer {
         super("FundGoodDeeds (Swing UI V2)");
         this.master = master;
 
-        // Create all the different panels up front.
-        // This keeps the GUI modular — you can modify one panel without breaking the others.
+        // Tabs are placeholders until first selected; only the date panel (always visible) is built up front.
+        // A hidden tab does not apply model events, just marks itself stale and is refreshed when shown again.
+        // The tabs and the date panel each listen for the events they need; the frame itself does not.
 
 
-        summaryPanel = new SummaryPanel(master);
-        needsPanel = new NeedsPanel(master);
-        fundingPanel = new FundingPanel(master);
-        ledgerPanel = new LedgerPanel(master);
+        summaryTab = new LazyTab<>(master, () -> new SummaryPanel(master));
+        needsTab = new LazyTab<>(master, () -> new NeedsPanel(master));
+        fundingTab = new LazyTab<>(master, () -> new FundingPanel(master));
+        ledgerTab = new LazyTab<>(master, () -> new LedgerPanel(master));
         datePanel = new DatePanel(master); // New/Updated panel for date and theme toggle
 
-        // Registering this view as an Observer lets it react when the repositories change.
-        // Swing handles its own repainting, so we just trigger updates inside the panels.
-        master.registerObservers(this);
-
         // 3. Set up main container and layout
         Container contentPane = getContentPane();
         contentPane.setLayout(new BorderLayout());
@@ -72,10 +67,10 @@ public class SwingUIView extends JFrame implements Observer {
 
         // Tabs make the UI feel more organized — each feature gets its own space.
         JTabbedPane tabbedPane = new JTabbedPane();
-        tabbedPane.addTab("Summary & System", summaryPanel);
-        tabbedPane.addTab("Needs Catalog", needsPanel);
-        tabbedPane.addTab("Funding Sources", fundingPanel);
-        tabbedPane.addTab("Ledger Log", ledgerPanel);
+        tabbedPane.addTab("Summary & System", summaryTab);
+        tabbedPane.addTab("Needs Catalog", needsTab);
+        tabbedPane.addTab("Funding Sources", fundingTab);
+        tabbedPane.addTab("Ledger Log", ledgerTab);
 
         contentPane.add(tabbedPane, BorderLayout.CENTER);
 
@@ -97,17 +92,6 @@ public class SwingUIView extends JFrame implements Observer {
         // Since master.loadAll() is called in FundGoodDeedsApp.main, 
         // we just need to make the GUI visible.
         SwingUtilities.invokeLater(() -> setVisible(true));
-        
-        // Initial update to populate all panels
-        update(null, null);
-    }
-    
-    // Observer pattern implementation
-    @Override
-    public void update(Observable o, Object arg) {
-
-        // Needed for functionality to make sure the datePanel is updated
-        datePanel.update(o, arg);
     }
     
     private void applyTheme(boolean isDark) {
@@ -1,8 +1,5 @@
 package FundGoodDeeds.view;
 
-import java.util.Observable;
-import java.util.Observer;
-
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -15,7 +12,7 @@ import java.awt.Container;
 import FundGoodDeeds.controller.MasterController;
 import FundGoodDeeds.view.panels.LoginPanel;
 
-public class UserFrame extends JFrame implements Observer{
+public class UserFrame extends JFrame {
 
     private final MasterController master;
 
@@ -36,19 +33,11 @@ public class UserFrame extends JFrame implements Observer{
         setLocationRelativeTo(null); // Center the window
     }
 
-
-    @Override
-    public void update(Observable o, Object arg) {
-    }
-
     // New start method for Swing UI (equivalent to startup in ConsoleView)
     public void start() {
         // Since master.loadAll() is called in FundGoodDeedsApp.main, 
         // we just need to make the GUI visible.
         SwingUtilities.invokeLater(() -> setVisible(true));
-        
-        // Initial update to populate all panels
-        update(null, null);
     }
     
     
@@ -4,14 +4,14 @@
 package FundGoodDeeds.view.panels;
 
 import FundGoodDeeds.controller.MasterController;
+import FundGoodDeeds.model.EventBus;
 import FundGoodDeeds.model.LedgerEntity;
+import FundGoodDeeds.model.ModelEvent;
 
 import javax.swing.*;
 import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Observable;
-import java.util.Observer;
 
 /**
  * DatePanel (V2)
@@ -19,8 +19,7 @@ import java.util.Observer;
  * - Small utility panel used by both CLI and Swing flows
  * - Mirrors CLI "Change Active Date" (option 12)
  */
-@SuppressWarnings("deprecation")
-public class DatePanel extends JPanel implements Observer {
+public class DatePanel extends JPanel implements EventBus.Listener {
 
     private final MasterController master;
     private final JLabel activeDateLabel;
@@ -37,7 +36,7 @@ public class DatePanel extends JPanel implements Observer {
         
         // Registering here allows this tiny panel to update independently
         // whenever the selected date changes in the controller.
-        master.registerObservers(this);
+        master.addListener(this);
         
         // Use a FlowLayout for a simple, horizontal arrangement
         setLayout(new FlowLayout(FlowLayout.LEFT, 10, 5));
@@ -129,9 +128,10 @@ public class DatePanel extends JPanel implements Observer {
      * Whenever the active date changes, update the displayed label.
      */
     @Override
-    public void update(Observable o, Object arg) {
-        // Update the displayed date when the model changes (or the date is explicitly set)
-        LocalDate date = master.getSelectedDate();
-        activeDateLabel.setText("Active Date: " + date.format(YMD));
+    public void changed(ModelEvent event) {
+        // Data changes don't move the date; only an explicit DateSelected does
+        if (event instanceof ModelEvent.DateSelected selected) {
+            activeDateLabel.setText("Active Date: " + selected.date().format(YMD));
+        }
     }
 }
\ No newline at end of file
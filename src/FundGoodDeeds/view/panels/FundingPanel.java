@@ -4,14 +4,14 @@
 package FundGoodDeeds.view.panels;
 
 import FundGoodDeeds.controller.MasterController;
+import FundGoodDeeds.model.Dataset;
 import FundGoodDeeds.model.FundingSource;
+import FundGoodDeeds.model.ModelEvent;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 import java.text.NumberFormat;
 import java.util.Locale;
 
@@ -25,8 +25,7 @@ import java.util.Locale;
  *   -Delete Source
  *   -Refresh
  */
-@SuppressWarnings("deprecation")
-public class FundingPanel extends JPanel implements Observer {
+public class FundingPanel extends JPanel implements LazyTab.Content {
 
     private final MasterController master;
     private JTable fundingTable;
@@ -36,7 +35,7 @@ public class FundingPanel extends JPanel implements Observer {
     // Constructor 
     public FundingPanel(MasterController master) {
         this.master = master;
-        master.registerObservers(this);
+        // The enclosing LazyTab subscribes for this panel
 
         setLayout(new BorderLayout(5, 5));
         
@@ -157,7 +156,7 @@ public class FundingPanel extends JPanel implements Observer {
         }
     }
 
-    // Rebuild the funding table — Observer callback + manual refresh.
+    // Rebuild the funding table — on funding changes + manual refresh.
     private void updateTable() {
         tableModel.setRowCount(0);
 
@@ -170,9 +169,19 @@ public class FundingPanel extends JPanel implements Observer {
         }
     }
 
-    // Every time model updates → refresh view automatically.
+    // Every time a funding source changes → refresh view automatically.
     @Override
-    public void update(Observable o, Object arg) {
+    public boolean follows(ModelEvent event) {
+        return event.dataset() == Dataset.FUNDING && !(event instanceof ModelEvent.Saved);
+    }
+
+    @Override
+    public void changed(ModelEvent event) {
+        updateTable();
+    }
+
+    @Override
+    public void refresh() {
         updateTable();
     }
 }
\ No newline at end of file
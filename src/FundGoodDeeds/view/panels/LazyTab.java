@@ -0,0 +1,91 @@
+package FundGoodDeeds.view.panels;
+
+import FundGoodDeeds.controller.MasterController;
+import FundGoodDeeds.model.EventBus;
+import FundGoodDeeds.model.ModelEvent;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.util.function.Supplier;
+
+/**
+ * LazyTab
+ * - Placeholder for a tab of the main window; builds the real panel the first time the tab is shown
+ * - Is the only listener for its panel: an event the panel follows is applied only if it is on screen,
+ *   otherwise the tab is marked stale and the panel refreshes once when it is shown again
+ * - The panel itself must not call master.addListener (this does, once)
+ */
+public class LazyTab<P extends JPanel & LazyTab.Content> extends JPanel implements EventBus.Listener {
+
+    /**
+     * What a panel held by a LazyTab implements.
+     */
+    public interface Content {
+        // true if the event changes something the panel shows
+        boolean follows(ModelEvent event);
+
+        // Applies a followed event while the panel is on screen
+        void changed(ModelEvent event);
+
+        // Rebuilds the panel from the model, after events it missed while hidden
+        void refresh();
+    }
+
+    private final Supplier<P> factory;
+    // Touched on the event dispatch thread only
+    private P panel;
+    private boolean stale;
+
+    /**
+     * @param master The controller whose changes the panel follows.
+     * @param factory Builds the panel (already filled with the current data).
+     */
+    public LazyTab(MasterController master, Supplier<P> factory) {
+        super(new BorderLayout());
+        this.factory = factory;
+        master.addListener(this);
+
+        // Selecting the tab (or opening the window on it) makes it showing
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) {
+                shown();
+            }
+        });
+    }
+
+    // The panel, or null if the tab was never shown
+    public P getPanel() {
+        return panel;
+    }
+
+    private void shown() {
+        if (panel == null) {
+            panel = factory.get();
+            stale = false;
+            add(panel, BorderLayout.CENTER);
+            revalidate();
+            repaint();
+        } else if (stale) {
+            stale = false;
+            panel.refresh();
+        }
+    }
+
+    @Override
+    public void changed(ModelEvent event) {
+        // Models publish from loader, writer and watcher threads; decide on the event thread
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> changed(event));
+            return;
+        }
+        if (panel == null || !panel.follows(event)) {
+            return; // Unbuilt panels are built from the current data when first shown
+        }
+        if (isShowing()) {
+            panel.changed(event);
+        } else {
+            stale = true;
+        }
+    }
+}
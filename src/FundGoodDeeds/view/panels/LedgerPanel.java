@@ -4,7 +4,9 @@
 package FundGoodDeeds.view.panels;
 
 import FundGoodDeeds.controller.MasterController;
+import FundGoodDeeds.model.Dataset;
 import FundGoodDeeds.model.LedgerEntity;
+import FundGoodDeeds.model.ModelEvent;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -12,8 +14,6 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 import java.text.NumberFormat;
 import java.util.Locale;
 
@@ -28,8 +28,7 @@ import java.util.Locale;
  * Deeper per-entry views can be added later if needed.
  */
 
-@SuppressWarnings("deprecation")
-public class LedgerPanel extends JPanel implements Observer {
+public class LedgerPanel extends JPanel implements LazyTab.Content {
 
     private final MasterController master;
     private JTable ledgerTable;
@@ -41,7 +40,7 @@ public class LedgerPanel extends JPanel implements Observer {
 
     public LedgerPanel(MasterController master) {
         this.master = master;
-        master.registerObservers(this); //subscribe to panel so it updates with changes
+        // subscribed by its LazyTab, so changes made while another tab is open don't rebuild this table
 
         // Basic layout: table in the center, action buttons at the bottom.
         setLayout(new BorderLayout(5, 5));
@@ -233,7 +232,7 @@ public class LedgerPanel extends JPanel implements Observer {
 
     /**
      * Rebuilds the table rows from the current ledger log.
-     * This is called on construction and whenever the model notifies observers.
+     * This is called on construction and whenever a change can't be applied row by row.
      */    
     private void updateTable() {
         // Clear existing rows
@@ -241,33 +240,93 @@ public class LedgerPanel extends JPanel implements Observer {
 
         List<LedgerEntity> log = master.getLedgerController().getLog();
         for (int i = 0; i < log.size(); i++) {
-            LedgerEntity entry = log.get(i);
-            // For NEED-type entries, name is the need/bundle name.
-            // For FUND-type entries, name is the funding source.
-            String nameOrSource = (entry.getNeedName() != null) ? entry.getNeedName() : "";
-            
-            // Always show the dollar amount in currency format.
-            String amountOrTotal = currencyFormatter.format(entry.getAmount());
-            
-            // For FUND/GOAL/THRESHOLD, the "count/units" doesn’t make sense,
-            // so we leave it blank. For NEED fulfilments, show the count.
-            String countOrUnits = (entry.getType() == LedgerEntity.EntryType.FUND || entry.getType() == LedgerEntity.EntryType.GOAL || entry.getType() == LedgerEntity.EntryType.THRESHOLD)
-                                  ? "" : String.format("%.2f", entry.getCount());
-            
-            tableModel.addRow(new Object[]{
-                i, // Index for deletion
-                entry.getDate().format(YMD), // date as yyyy-mm-dd
-                entry.getType().toString(), //enum to string 
-                nameOrSource, // need or funding name
-                countOrUnits, //units or blank
-                amountOrTotal //formatted currency
-            });
+            tableModel.addRow(rowFor(i, log.get(i)));
+        }
+    }
+
+    // Adds the row of an entry appended to the log, unless the table has missed a change
+    private void appendRow(LedgerEntity entry) {
+        List<LedgerEntity> log = master.getLedgerController().getLog();
+        int index = tableModel.getRowCount();
+        if (index == log.size() - 1 && log.get(index) == entry) {
+            tableModel.addRow(rowFor(index, entry));
+        } else {
+            updateTable();
+        }
+    }
+
+    // Adds the rows of entries appended to the log together, unless the table has missed a change
+    private void appendRows(List<LedgerEntity> entries) {
+        List<LedgerEntity> log = master.getLedgerController().getLog();
+        int first = tableModel.getRowCount();
+        if (first + entries.size() != log.size() || log.get(first) != entries.get(0)) {
+            updateTable();
+            return;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            tableModel.addRow(rowFor(first + i, entries.get(i)));
+        }
+    }
+
+    // Drops the row of a deleted entry and renumbers the rows after it
+    private void removeRow(int index) {
+        int size = master.getLedgerController().getLog().size();
+        if (tableModel.getRowCount() != size + 1 || index >= tableModel.getRowCount()) {
+            updateTable();
+            return;
+        }
+        tableModel.removeRow(index);
+        for (int i = index; i < size; i++) {
+            tableModel.setValueAt(i, i, 0);
+        }
+    }
+
+    private Object[] rowFor(int i, LedgerEntity entry) {
+        // For NEED-type entries, name is the need/bundle name.
+        // For FUND-type entries, name is the funding source.
+        String nameOrSource = (entry.getNeedName() != null) ? entry.getNeedName() : "";
+        
+        // Always show the dollar amount in currency format.
+        String amountOrTotal = currencyFormatter.format(entry.getAmount());
+        
+        // For FUND/GOAL/THRESHOLD, the "count/units" doesn’t make sense,
+        // so we leave it blank. For NEED fulfilments, show the count.
+        String countOrUnits = (entry.getType() == LedgerEntity.EntryType.FUND || entry.getType() == LedgerEntity.EntryType.GOAL || entry.getType() == LedgerEntity.EntryType.THRESHOLD)
+                              ? "" : String.format("%.2f", entry.getCount());
+        
+        return new Object[]{
+            i, // Index for deletion
+            entry.getDate().format(YMD), // date as yyyy-mm-dd
+            entry.getType().toString(), //enum to string 
+            nameOrSource, // need or funding name
+            countOrUnits, //units or blank
+            amountOrTotal //formatted currency
+        };
+    }
+
+    // Ledger changes, plus renames (rows show need/bundle names); amounts are fixed when an entry is made
+    @Override
+    public boolean follows(ModelEvent event) {
+        return switch (event) {
+            case ModelEvent.Saved saved -> false;
+            case ModelEvent.NeedChanged changed -> changed.isRename();
+            case ModelEvent.BundleChanged changed -> changed.isRename();
+            default -> event.dataset() == Dataset.LEDGER;
+        };
+    }
+
+    @Override
+    public void changed(ModelEvent event) {
+        switch (event) {
+            case ModelEvent.EntryAdded added -> appendRow(added.entry());
+            case ModelEvent.EntriesAppended appended -> appendRows(appended.entries());
+            case ModelEvent.EntryRemoved removed -> removeRow(removed.index());
+            default -> updateTable();
         }
     }
 
     @Override
-    public void update(Observable o, Object arg) {
-        // Update the table when any relevant model changes
+    public void refresh() {
         updateTable();
     }
 }
\ No newline at end of file
@@ -5,17 +5,20 @@ package FundGoodDeeds.view.panels;
 
 import FundGoodDeeds.controller.MasterController;
 import FundGoodDeeds.model.Bundle;
+import FundGoodDeeds.model.Dataset;
+import FundGoodDeeds.model.ModelEvent;
 import FundGoodDeeds.model.Need;
 import FundGoodDeeds.model.NeedComponent;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.StringJoiner;
 import java.util.stream.Collectors;
 
 /**
@@ -32,8 +35,7 @@ import java.util.stream.Collectors;
  *  3) Add Bundle
  */
 
-@SuppressWarnings("deprecation")
-public class NeedsPanel extends JPanel implements Observer {
+public class NeedsPanel extends JPanel implements LazyTab.Content {
 
     // We talk to the MasterController instead of the repositories directly.
     // That keeps all domain logic out of the Swing layer.
@@ -42,13 +44,17 @@ public class NeedsPanel extends JPanel implements Observer {
     // Core UI widgets for this panel.
     private JTable needsTable; // show bundles and needs
     private DefaultTableModel tableModel; // backing model for the table
+    private JTextField searchField; // type-ahead filter over the catalog
+
+    // How many matches the type-ahead filter shows at most
+    private static final int SEARCH_LIMIT = 50;
  
     public NeedsPanel(MasterController master) {
         // Save controller reference so we can delegate actions.
         // The panel itself should not be doing business logic.
     
         this.master = master;
-        master.registerObservers(this);
+        // Updates arrive through the enclosing LazyTab, only while this tab is on screen
         
         // BorderLayout works nicely here: table in CENTER, buttons at SOUTH.
         setLayout(new BorderLayout(5, 5));
@@ -66,6 +72,18 @@ public class NeedsPanel extends JPanel implements Observer {
         JScrollPane scrollPane = new JScrollPane(needsTable);
         add(scrollPane, BorderLayout.CENTER);
 
+        // Search box: narrows the table as the user types (prefix first, then typos)
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchField = new JTextField();
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { updateTable(); }
+            @Override public void removeUpdate(DocumentEvent e) { updateTable(); }
+            @Override public void changedUpdate(DocumentEvent e) { updateTable(); }
+        });
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        add(searchPanel, BorderLayout.NORTH);
+
         // Button Panel Setup
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         buttonPanel.setBorder(BorderFactory.createTitledBorder("Catalog Actions (List Needs)"));
@@ -316,7 +334,7 @@ public class NeedsPanel extends JPanel implements Observer {
 
             NeedComponent component = master.getNeedsController().getNeedByName(componentName);
             if (component == null) {
-                throw new IllegalArgumentException("Component Need or Bundle not found in catalog: " + componentName);
+                throw new IllegalArgumentException("Component Need or Bundle not found in catalog: " + componentName + suggestionsFor(componentName));
             }
             
             parts.put(component, quantity);
@@ -324,24 +342,40 @@ public class NeedsPanel extends JPanel implements Observer {
         return parts;
     }
 
+    /**
+     * Builds a " Did you mean: ..." hint from the catalog search index,
+     * or an empty string if nothing is close.
+     */
+    private String suggestionsFor(String componentName) {
+        List<NeedComponent> matches = master.getNeedsController().searchNeeds(componentName, 3);
+        if (matches.isEmpty()) {
+            return "";
+        }
+        return " Did you mean: " + matches.stream().map(NeedComponent::getName).collect(Collectors.joining(", ")) + "?";
+    }
+
     /**
      * Rebuilds the table from the current state of Needs and Bundles.
-     * This gets called on startup and whenever the model notifies us.
+     * This gets called on startup and whenever the catalog changes.
+     * When the search box has text, only the best matches are shown.
      */
     private void updateTable() {
         // Clear existing rows
         tableModel.setRowCount(0);
 
-        List<NeedComponent> catalog = master.getNeedsController().getNeedsCatalog();
+        String query = searchField.getText().trim();
+        List<NeedComponent> catalog = query.isEmpty()
+            ? master.getNeedsController().getNeedsCatalog()
+            : master.getNeedsController().searchNeeds(query, SEARCH_LIMIT);
         for (NeedComponent component : catalog) {
             String type = (component instanceof Bundle) ? "Bundle" : "Need";
             String componentsDesc = "";
 
             // For Bundles, we show each component with its quantity.
             if (component instanceof Bundle bundle) {
-                componentsDesc = bundle.getComponents().stream()
-                    .map(c -> c.getName() + " (" + bundle.getComponentCount(c.getName()) + ")")
-                    .collect(Collectors.joining(", "));
+                StringJoiner joiner = new StringJoiner(", ");
+                bundle.forEachComponent((c, count) -> joiner.add(c.getName() + " (" + count + ")"));
+                componentsDesc = joiner.toString();
             }
             
             tableModel.addRow(new Object[]{
@@ -353,8 +387,19 @@ public class NeedsPanel extends JPanel implements Observer {
         }
     }
 
+    // Catalog changes only; a change can move rows in and out of the search results, so rebuild
+    @Override
+    public boolean follows(ModelEvent event) {
+        return event.dataset() == Dataset.NEEDS && !(event instanceof ModelEvent.Saved);
+    }
+
+    @Override
+    public void changed(ModelEvent event) {
+        updateTable();
+    }
+
     @Override
-    public void update(Observable o, Object arg) {
+    public void refresh() {
         updateTable();
     }
 }
\ No newline at end of file
@@ -4,7 +4,9 @@
 package FundGoodDeeds.view.panels;
 
 import FundGoodDeeds.controller.MasterController;
+import FundGoodDeeds.controller.SaveReport;
 import FundGoodDeeds.model.Day;
+import FundGoodDeeds.model.ModelEvent;
 
 import javax.swing.*;
 
@@ -13,8 +15,6 @@ import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
-import java.util.Observable;
-import java.util.Observer;
 
 /**
  * SummaryPanel (V2)
@@ -23,8 +23,7 @@ import java.util.Observer;
  * - Pulls all summary data through MasterController.getDaySummary()
  */
 
-@SuppressWarnings("deprecation")
-public class SummaryPanel extends JPanel implements Observer {
+public class SummaryPanel extends JPanel implements LazyTab.Content {
     
     // Central entry point for all data this panel needs.
     private final MasterController master;
@@ -43,14 +42,17 @@ public class SummaryPanel extends JPanel implements Observer {
     // These mirror the CLI "load" and "save" options but in UI form.
     private final JButton reloadButton;
     private final JButton saveButton;
+    // What the last save wrote and how long it took
+    private final JLabel saveStatusLabel;
 
     // Keep money and dates formatting consistent across the app.
     private final NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(Locale.US);
     private final DateTimeFormatter YMD = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private final DateTimeFormatter HMS = DateTimeFormatter.ofPattern("HH:mm:ss");
 
     public SummaryPanel(MasterController master) {
         this.master = master;
-        master.registerObservers(this); // subscribe to panel so it updates with changes 
+        // No addListener here: the LazyTab holding this panel subscribes and forwards events (see SwingUIView)
 
         // BorderLayout:
         // - CENTER = grid of summary values
@@ -82,6 +84,9 @@ public class SummaryPanel extends JPanel implements Observer {
 
         // --- System Controls Panel ---
         JPanel systemPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+
+        saveStatusLabel = new JLabel("Not saved yet this session.");
+        systemPanel.add(saveStatusLabel);
         
         reloadButton = new JButton("Reload CSVs");
         reloadButton.addActionListener(e -> reloadData());
@@ -97,17 +102,18 @@ public class SummaryPanel extends JPanel implements Observer {
         add(systemPanel, BorderLayout.SOUTH);
 
         // Initial update
-        update(null, null);
+        refresh();
     }
     
     /**
-     * Reloads all CSV-based data through the MasterController.
+     * Reloads CSV-based data through the MasterController.
      * This gives the user an easy way to "reset" from disk without restarting the app.
+     * Only files that changed (or hold unsaved edits) are re-read.
      */
     private void reloadData() {
         try {
-            master.loadAll();
-            JOptionPane.showMessageDialog(this, "Data successfully reloaded from CSVs.", "Reload Success", JOptionPane.INFORMATION_MESSAGE);
+            String summary = master.reloadChanged(true);
+            JOptionPane.showMessageDialog(this, "Data successfully reloaded from CSVs:\n" + summary, "Reload Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Error reloading data: " + ex.getMessage(), "Reload Failed", JOptionPane.ERROR_MESSAGE);
         }
@@ -118,21 +124,48 @@ public class SummaryPanel extends JPanel implements Observer {
      * Basically the GUI version of a "Save" command in the CLI.
      */
     private void saveData() {
-        try {
-            master.saveAll();
-            JOptionPane.showMessageDialog(this, "Data successfully saved to CSVs.", "Save Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Error saving data: " + ex.getMessage(), "Save Failed", JOptionPane.ERROR_MESSAGE);
+        // The files are written on the background writer; the EDT only queues them
+        saveButton.setEnabled(false);
+        saveStatusLabel.setText("Saving...");
+        master.saveAllAsync().whenComplete((report, error) -> SwingUtilities.invokeLater(() -> {
+            saveButton.setEnabled(true);
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                saveStatusLabel.setText("Last save failed.");
+                JOptionPane.showMessageDialog(this, "Error saving data: " + cause.getMessage(), "Save Failed", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            showSaveStatus(report);
+            String message = report.anyWritten()
+                    ? "Data successfully saved to CSVs in " + report.getTotalMillis() + " ms:\n" + report
+                    : "Nothing to save; all CSVs are up to date.";
+            JOptionPane.showMessageDialog(this, message, "Save Success", JOptionPane.INFORMATION_MESSAGE);
+        }));
+    }
+
+    private void showSaveStatus(SaveReport report) {
+        if (report != null) {
+            saveStatusLabel.setText("Last save " + report.getSavedAt().format(HMS) + ": " + report);
         }
     }
 
+    // Every total here depends on the catalog, the ledger or the date, and saves change the status line
+    @Override
+    public boolean follows(ModelEvent event) {
+        return true;
+    }
+
+    @Override
+    public void changed(ModelEvent event) {
+        refresh();
+    }
+
      /**
-     * Observer callback.
-     * Anytime the model notifies observers (date change, ledger update, etc.),
+     * Anytime the model changes (date change, ledger update, etc.),
      * we rebuild the summary view from the MasterController.
      */
     @Override
-    public void update(Observable o, Object arg) {
+    public void refresh() {
         // Pull the "Day" snapshot for the currently selected date.
         
         LocalDate selectedDate = master.getSelectedDate();
@@ -167,5 +200,8 @@ public class SummaryPanel extends JPanel implements Observer {
         String exceededText = master.isDailyThresholdExceeded() ? "YES (Net Day Cost > Threshold)" : "NO";
         exceededLabel.setText(exceededText);
         exceededLabel.setForeground(master.isDailyThresholdExceeded() ? Color.RED : Color.GREEN);
+
+        // Saves can also come from elsewhere (e.g. restart), so refresh the status too
+        showSaveStatus(master.getLastSaveReport());
     }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Date ranges over sealed ledgers, with dates padded as the app writes them and
+ * unpadded as in a hand-edited file (where string order is not date order).
+ */
+class BlockCompressedFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sortKeyPadsALeadingMonthAndDay() {
+        assertEquals("2025,03,07,n,Food,1.0", BlockCompressedFile.sortKey("2025,3,7,n,Food,1.0"));
+        assertEquals("2025,10,01,f,150.0", BlockCompressedFile.sortKey("2025,10,1,f,150.0"));
+        assertEquals("2025,03", BlockCompressedFile.sortKey("2025,3"));
+        assertEquals("2025,03,07,n,Food,1.0", BlockCompressedFile.sortKey("2025,03,07,n,Food,1.0"));
+        assertEquals("n,Food,5.0", BlockCompressedFile.sortKey("n,Food,5.0"));
+    }
+
+    @Test
+    void aMonthRangeReturnsExactlyThatMonth() throws IOException {
+        for (boolean padded : new boolean[] {true, false}) {
+            List<String> rows = ledger(padded);
+            Path file = directory.resolve((padded ? "padded" : "unpadded") + ".csvz");
+            BlockCompressedFile.write(file, rows);
+
+            Map<Integer, byte[]> damaged = new HashMap<>();
+            // September 2024, asked for both ways; in string order "2024,10,1" sorts before "2024,9,30"
+            for (String[] range : new String[][] {{"2024,09", "2024,10"}, {"2024,9", "2024,10"}}) {
+                List<String> month = BlockCompressedFile.readRange(file, range[0], range[1], damaged);
+                assertEquals(30 * 20, month.size(), (padded ? "padded" : "unpadded") + " " + range[0]);
+                for (String row : month) {
+                    String[] fields = row.split(",");
+                    assertEquals("2024", fields[0]);
+                    assertEquals(9, Integer.parseInt(fields[1]));
+                }
+            }
+            assertEquals(rows, BlockCompressedFile.readAll(file, damaged));
+            assertTrue(damaged.isEmpty());
+        }
+    }
+
+    @Test
+    void anotherVersionOrHeaderIsRejected() throws IOException {
+        Path file = directory.resolve("ledger.csvz");
+        BlockCompressedFile.write(file, ledger(true));
+        byte[] written = Files.readAllBytes(file);
+
+        byte[] newer = written.clone();
+        newer[4]++;
+        Files.write(file, newer);
+        assertThrows(IOException.class, () -> BlockCompressedFile.readAll(file, new HashMap<>()));
+
+        byte[] garbage = written.clone();
+        garbage[0] = 'X';
+        Files.write(file, garbage);
+        assertThrows(IOException.class, () -> BlockCompressedFile.readAll(file, new HashMap<>()));
+    }
+
+    // Two years at 20 rows a day, in several blocks
+    private static List<String> ledger(boolean padded) {
+        List<String> rows = new ArrayList<>();
+        for (LocalDate day = LocalDate.of(2024, 1, 1); day.getYear() < 2026; day = day.plusDays(1)) {
+            String date = padded
+                    ? String.format("%d,%02d,%02d", day.getYear(), day.getMonthValue(), day.getDayOfMonth())
+                    : day.getYear() + "," + day.getMonthValue() + "," + day.getDayOfMonth();
+            for (int i = 0; i < 20; i++) {
+                rows.add(date + ",n,Need number " + i + "," + (i % 4 + 1) + ".0");
+            }
+        }
+        return rows;
+    }
+}
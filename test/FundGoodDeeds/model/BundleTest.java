@@ -0,0 +1,88 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compiled leaf vectors after catalog edits: an edit to an inner bundle recompiles
+ * every bundle holding it, and leaves other catalogs over the same template alone.
+ */
+class BundleTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void useTempDirectory() {
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+    }
+
+    @AfterEach
+    void clearProperty() {
+        System.clearProperty(CSVManager.DIRECTORY_PROPERTY);
+    }
+
+    private NeedsRepository load(List<String> rows) throws IOException {
+        Files.write(directory.resolve("needs.csv"), rows);
+        NeedsRepository needs = new NeedsRepository(new CSVManager("log.csv"));
+        needs.loadNeeds();
+        return needs;
+    }
+
+    private Bundle bundle(NeedsRepository needs, String name) {
+        return (Bundle) needs.getNeedByName(name);
+    }
+
+    @Test
+    void editingAnInnerBundleRecompilesTheBundlesHoldingIt() throws IOException {
+        NeedsRepository needs = load(List.of(
+                "n,Food,5.0",
+                "n,Water,1.0",
+                "b,Inner,Food,2",
+                "b,Outer,Inner,3"));
+        Bundle outer = bundle(needs, "Outer");
+        assertEquals(30.0, outer.getTotal());
+        assertEquals(1, outer.getLeafCount());
+
+        needs.addBundleComponent("Inner", needs.getNeedByName("Water"), 4);
+        assertEquals(42.0, outer.getTotal());
+        assertEquals(12, outer.getImpliedUnits("Water"));
+        assertEquals(2, outer.getLeafCount());
+
+        needs.removeBundleComponentType("Inner", needs.getNeedByName("Food"));
+        assertEquals(12.0, outer.getTotal());
+        assertEquals(0, outer.getImpliedUnits("Food"));
+
+        // A price change is not structural; the compiled vector reads the live Need
+        needs.editNeedTotal("Water", 2.0);
+        assertEquals(24.0, outer.getTotal());
+    }
+
+    @Test
+    void anEditInOneCatalogLeavesAnotherOverTheSameTemplateAlone() throws IOException {
+        List<String> rows = List.of("n,Food,5.0", "n,Water,1.0", "b,Inner,Food,2", "b,Outer,Inner,3");
+        Files.write(directory.resolve("needs.csv"), rows);
+        CatalogTemplate template = CatalogTemplate.of(rows);
+        NeedsRepository alice = new NeedsRepository(new CSVManager("log.csv"));
+        NeedsRepository bob = new NeedsRepository(new CSVManager("log.csv"));
+        alice.setTemplate(template);
+        bob.setTemplate(template);
+        alice.loadNeeds();
+        bob.loadNeeds();
+        assertEquals(30.0, bundle(bob, "Outer").getTotal());
+
+        alice.addBundleComponent("Inner", alice.getNeedByName("Water"), 4);
+        assertEquals(42.0, bundle(alice, "Outer").getTotal());
+        assertEquals(30.0, bundle(bob, "Outer").getTotal());
+        assertEquals(0, bundle(bob, "Outer").getImpliedUnits("Water"));
+    }
+}
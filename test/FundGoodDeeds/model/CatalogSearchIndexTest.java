@@ -0,0 +1,84 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Type-ahead search: prefix matches in alphabetical order, then names containing
+ * the query, then close misspellings.
+ */
+class CatalogSearchIndexTest {
+
+    private static CatalogSearchIndex index(String... names) {
+        CatalogSearchIndex index = new CatalogSearchIndex();
+        for (String name : names) {
+            index.add(new Need(name, 1.0));
+        }
+        return index;
+    }
+
+    private static List<String> names(List<NeedComponent> results) {
+        List<String> names = new ArrayList<>();
+        for (NeedComponent component : results) {
+            names.add(component.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void prefixMatchesComeFirstAlphabeticallyAndIgnoreCase() {
+        CatalogSearchIndex index = index("Bus Pass", "Bread", "Monthly Rent", "bottled Water", "Broccoli");
+        assertEquals(List.of("Bread", "Broccoli"), names(index.search("br", 2)));
+        assertEquals(List.of("bottled Water", "Bread", "Broccoli", "Bus Pass"), names(index.search("B", 4)));
+        assertEquals(List.of("Monthly Rent"), names(index.search("  MONTH ", 5)));
+    }
+
+    @Test
+    void namesContainingTheQueryFollowThePrefixMatches() {
+        CatalogSearchIndex index = index("Bus Pass", "Passport Fee", "Grocery Budget");
+        assertEquals(List.of("Passport Fee", "Bus Pass"), names(index.search("pass", 5)));
+    }
+
+    @Test
+    void closeMisspellingsAreFound() {
+        CatalogSearchIndex index = index("Grocery Budget", "Monthly Rent", "Electric Bill", "Water Bill", "Bus Pass");
+        assertEquals(List.of("Grocery Budget"), names(index.search("grocry", 1)));
+        assertEquals(List.of("Electric Bill"), names(index.search("electirc", 1)));
+        assertEquals(List.of("Monthly Rent"), names(index.search("montly", 1)));
+        assertTrue(index.search("zzzzzz", 5).isEmpty());
+    }
+
+    @Test
+    void removedAndRenamedEntriesAreNoLongerFound() {
+        Need rent = new Need("Monthly Rent", 800.0);
+        CatalogSearchIndex index = index("Bus Pass");
+        index.add(rent);
+        index.remove(rent, "Monthly Rent");
+        assertTrue(index.search("month", 5).isEmpty());
+
+        rent.setName("Rent");
+        index.add(rent);
+        assertEquals(List.of("Rent"), names(index.search("ren", 5)));
+        assertTrue(index.search("monthly", 5).isEmpty());
+    }
+
+    @Test
+    void anIndexOverABaseMasksWhatItRemoved() {
+        Need food = new Need("Food", 5.0);
+        CatalogSearchIndex base = index("Water");
+        base.add(food);
+        CatalogSearchIndex user = new CatalogSearchIndex(base);
+        user.add(new Need("Fuel", 3.0));
+
+        assertEquals(List.of("Food", "Fuel"), names(user.search("f", 5)));
+        user.remove(food, "Food");
+        assertEquals(List.of("Fuel"), names(user.search("f", 5)));
+        // The base itself is never changed
+        assertEquals(List.of("Food"), names(base.search("f", 5)));
+    }
+}
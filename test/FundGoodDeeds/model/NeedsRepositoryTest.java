@@ -0,0 +1,90 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Loading bundles in dependency order: forward references, and cycles, which are
+ * reported and broken at the edge that closes them.
+ */
+class NeedsRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void useTempDirectory() {
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+    }
+
+    @AfterEach
+    void clearProperty() {
+        System.clearProperty(CSVManager.DIRECTORY_PROPERTY);
+    }
+
+    private NeedsRepository load(List<String> rows) throws IOException {
+        Files.write(directory.resolve("needs.csv"), rows);
+        NeedsRepository needs = new NeedsRepository(new CSVManager("log.csv"));
+        needs.loadNeeds();
+        return needs;
+    }
+
+    private Bundle bundle(NeedsRepository needs, String name) {
+        return (Bundle) needs.getNeedByName(name);
+    }
+
+    @Test
+    void bundlesMayReferToBundlesDefinedFurtherDown() throws IOException {
+        NeedsRepository needs = load(List.of(
+                "b,Outer,Middle,2,Rent,1",
+                "b,Middle,Inner,3,Food,1",
+                "b,Inner,Food,2",
+                "n,Food,5.0",
+                "n,Rent,800.0"));
+
+        assertEquals(10.0, bundle(needs, "Inner").getTotal());
+        assertEquals(35.0, bundle(needs, "Middle").getTotal());
+        assertEquals(870.0, bundle(needs, "Outer").getTotal());
+        // 2 x (3 x 2 + 1) through the nesting
+        assertEquals(14, bundle(needs, "Outer").getImpliedUnits("Food"));
+        assertEquals(1, bundle(needs, "Outer").getImpliedUnits("rent"));
+    }
+
+    @Test
+    void aCycleIsReportedAndOnlyItsClosingEdgeIsSkipped() throws IOException {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        NeedsRepository needs;
+        try {
+            needs = load(List.of(
+                    "b,A,B,1,Food,1",
+                    "b,B,A,1,Food,2",
+                    "n,Food,5.0"));
+        } finally {
+            System.setOut(out);
+        }
+
+        String messages = printed.toString(StandardCharsets.UTF_8);
+        assertTrue(messages.contains("Bundle cycle detected (A -> B -> A)"), messages);
+        assertTrue(messages.contains("Component 'A' of bundle 'B' will be skipped"), messages);
+        // B loses its edge back to A; A keeps B, so both still load
+        assertEquals(10.0, bundle(needs, "B").getTotal());
+        assertEquals(0, bundle(needs, "B").getComponentCount("A"));
+        assertEquals(15.0, bundle(needs, "A").getTotal());
+        assertEquals(1, bundle(needs, "A").getComponentCount("B"));
+    }
+}
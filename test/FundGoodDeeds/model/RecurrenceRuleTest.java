@@ -0,0 +1,66 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import FundGoodDeeds.model.RecurrenceRule.Frequency;
+
+/**
+ * The closed-form countBetween, including month and year steps clamped to the
+ * end of shorter months, checked against the payout dates it stands for.
+ */
+class RecurrenceRuleTest {
+
+    @Test
+    void monthlyFromTheThirtyFirstClampsToShorterMonths() {
+        RecurrenceRule rule = new RecurrenceRule(Frequency.MONTHLY, 1, LocalDate.of(2024, 1, 31), null);
+        assertEquals(List.of(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 30)),
+                rule.occurrences(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 5, 30)).toList());
+
+        assertEquals(1, rule.countBetween(LocalDate.of(2024, 2, 29), LocalDate.of(2024, 2, 29)));
+        assertEquals(0, rule.countBetween(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 28)));
+        assertEquals(1, rule.countBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 29)));
+        assertEquals(12, rule.countBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    void yearlyFromALeapDayPaysOnTheTwentyEighthInOtherYears() {
+        RecurrenceRule rule = new RecurrenceRule(Frequency.YEARLY, 1, LocalDate.of(2024, 2, 29), null);
+        assertEquals(1, rule.countBetween(LocalDate.of(2025, 2, 28), LocalDate.of(2025, 2, 28)));
+        assertEquals(0, rule.countBetween(LocalDate.of(2025, 3, 1), LocalDate.of(2026, 2, 27)));
+        assertEquals(5, rule.countBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2028, 12, 31)));
+    }
+
+    @Test
+    void countsStayWithinTheStartAndEnd() {
+        RecurrenceRule rule = new RecurrenceRule(Frequency.WEEKLY, 2, LocalDate.of(2025, 1, 3), LocalDate.of(2025, 3, 28));
+        assertEquals(0, rule.countBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 2)));
+        assertEquals(7, rule.countBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2030, 1, 1)));
+        assertEquals(0, rule.countBetween(LocalDate.of(2025, 3, 29), LocalDate.of(2030, 1, 1)));
+    }
+
+    @Test
+    void countBetweenMatchesTheExpandedDates() {
+        LocalDate[] starts = {LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29), LocalDate.of(2023, 8, 30), LocalDate.of(2025, 6, 15)};
+        for (Frequency frequency : Frequency.values()) {
+            for (int interval = 1; interval <= 3; interval++) {
+                for (LocalDate start : starts) {
+                    RecurrenceRule rule = new RecurrenceRule(frequency, interval, start, start.plusYears(6));
+                    List<LocalDate> all = rule.occurrences(start, start.plusYears(6)).toList();
+                    for (LocalDate from = start.minusDays(40); from.isBefore(start.plusYears(7)); from = from.plusDays(53)) {
+                        for (int days : new int[] {0, 1, 27, 30, 366, 1500}) {
+                            LocalDate first = from;
+                            LocalDate last = from.plusDays(days);
+                            long expected = all.stream().filter(date -> !date.isBefore(first) && !date.isAfter(last)).count();
+                            assertEquals(expected, rule.countBetween(first, last), rule + " from " + first + " to " + last);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The H2 engine's copy of the CSV data when the database is created: done once,
+ * all or nothing, and tried again after a failure.
+ */
+class SqlStorageEngineTest {
+    private static final String LEDGER = "log.csv";
+
+    @TempDir
+    Path directory;
+
+    private String url;
+
+    @BeforeEach
+    void writeCsvData() throws IOException {
+        url = "jdbc:h2:file:" + directory.resolve("fundgooddeeds").toAbsolutePath();
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+        System.setProperty(SqlStorageEngine.URL_PROPERTY, url);
+
+        Files.write(directory.resolve("users.csv"), List.of("alice,hash,Alice,A", "bob,hash,Bob,B"));
+        Files.createDirectories(directory.resolve("alice"));
+        Files.write(directory.resolve("alice").resolve("needs.csv"), List.of("n,Apples,1.5", "n,Milk,2.25"));
+        Files.write(directory.resolve("alice").resolve(LEDGER), List.of("2025,03,07,n,Apples,2.0"));
+        Files.createDirectories(directory.resolve("bob"));
+        Files.write(directory.resolve("bob").resolve("funding.csv"), List.of("f,Salary,100.0"));
+    }
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(CSVManager.DIRECTORY_PROPERTY);
+        System.clearProperty(SqlStorageEngine.URL_PROPERTY);
+    }
+
+    @Test
+    void copiesTheCsvDataOnce() throws IOException {
+        try (SqlStorageEngine engine = SqlStorageEngine.open(LEDGER)) {
+            assertEquals(List.of("alice,hash,Alice,A", "bob,hash,Bob,B"), engine.load(Dataset.USERS));
+            engine.setUser(new User("alice", "", "", ""));
+            assertEquals(List.of("n,Apples,1.5", "n,Milk,2.25"), engine.load(Dataset.NEEDS));
+            assertEquals(List.of("2025,03,07,n,Apples,2.0"), engine.load(Dataset.LEDGER));
+            engine.setUser(new User("bob", "", "", ""));
+            assertEquals(List.of("f,Salary,100.0"), engine.load(Dataset.FUNDING));
+        }
+
+        // From now on the database is the data; later CSV changes are not copied again
+        Files.write(directory.resolve("alice").resolve("needs.csv"), List.of("n,Bread,4.0"));
+        try (SqlStorageEngine engine = SqlStorageEngine.open(LEDGER)) {
+            engine.setUser(new User("alice", "", "", ""));
+            assertEquals(List.of("n,Apples,1.5", "n,Milk,2.25"), engine.load(Dataset.NEEDS));
+        }
+    }
+
+    @Test
+    void aFailedCopyLeavesNothingAndIsTriedAgain() throws Exception {
+        // Longer than the line column, so the copy fails after the users rows went in
+        Path needs = directory.resolve("alice").resolve("needs.csv");
+        Files.write(needs, List.of("n,Apples,1.5", "n," + "x".repeat(5000) + ",1.0"));
+
+        assertThrows(IOException.class, () -> SqlStorageEngine.open(LEDGER));
+        assertEquals(0, count("SELECT COUNT(*) FROM users"));
+        assertEquals(0, count("SELECT COUNT(*) FROM funding"));
+        assertEquals(0, count("SELECT COUNT(*) FROM migrations"));
+
+        Files.write(needs, List.of("n,Apples,1.5"));
+        try (SqlStorageEngine engine = SqlStorageEngine.open(LEDGER)) {
+            assertEquals(2, engine.load(Dataset.USERS).size());
+            engine.setUser(new User("alice", "", "", ""));
+            assertEquals(List.of("n,Apples,1.5"), engine.load(Dataset.NEEDS));
+        }
+        assertEquals(1, count("SELECT COUNT(*) FROM migrations"));
+    }
+
+    @Test
+    void withoutCsvDataTheDatabaseStartsEmpty() throws IOException {
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.resolve("missing").toString());
+        try (SqlStorageEngine engine = SqlStorageEngine.open(LEDGER)) {
+            assertEquals(List.of(), engine.load(Dataset.USERS));
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+}
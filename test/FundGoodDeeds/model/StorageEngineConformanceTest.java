@@ -0,0 +1,198 @@
+package FundGoodDeeds.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * The contract in StorageEngine's doc comment, checked against every engine
+ * registered with StorageEngines. A new engine only has to be registered to be
+ * covered here.
+ *
+ * Each test gets an empty temp directory: the CSV engine's data directory and
+ * the H2 database both go there, so the real data is never touched.
+ */
+class StorageEngineConformanceTest {
+    private static final String LEDGER = "log.csv";
+
+    @TempDir
+    Path directory;
+
+    private final List<StorageEngine> opened = new ArrayList<>();
+
+    static List<String> engines() {
+        return StorageEngines.names();
+    }
+
+    @BeforeEach
+    void pointEnginesAtTempDirectory() {
+        System.setProperty(CSVManager.DIRECTORY_PROPERTY, directory.toString());
+        System.setProperty(SqlStorageEngine.URL_PROPERTY, "jdbc:h2:file:" + directory.resolve("fundgooddeeds").toAbsolutePath());
+    }
+
+    @AfterEach
+    void closeEngines() throws IOException {
+        for (StorageEngine engine : opened) {
+            engine.close();
+        }
+        System.clearProperty(CSVManager.DIRECTORY_PROPERTY);
+        System.clearProperty(SqlStorageEngine.URL_PROPERTY);
+    }
+
+    // A new engine logged in as a new user
+    private StorageEngine open(String engineName, String userName) throws IOException {
+        StorageEngine engine = StorageEngines.create(engineName, LEDGER);
+        opened.add(engine);
+        engine.createUser(userName);
+        engine.setUser(new User(userName, "", "", ""));
+        return engine;
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void loadReturnsRowsInTheOrderTheyWereStored(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        List<String> rows = List.of("n,Zinc,3.0", "n,Apples,1.5", "b,Kit,Zinc,2.0,Apples,1.0", "n,Milk,2.25");
+        engine.replace(Dataset.NEEDS, rows);
+        assertEquals(rows, engine.load(Dataset.NEEDS));
+
+        // Still in order for another engine on the same storage (the next session)
+        StorageEngine reopened = StorageEngines.create(engineName, LEDGER);
+        opened.add(reopened);
+        reopened.setUser(new User("alice", "", "", ""));
+        assertEquals(rows, reopened.load(Dataset.NEEDS));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void loadSkipsBlankRows(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        engine.replace(Dataset.FUNDING, List.of("f,Salary,100.0", "", "f,Gift,5.0"));
+        assertEquals(List.of("f,Salary,100.0", "f,Gift,5.0"), engine.load(Dataset.FUNDING));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void replaceOverwritesEveryRow(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        engine.replace(Dataset.NEEDS, List.of("n,Apples,1.5", "n,Milk,2.25", "n,Zinc,3.0"));
+        engine.replace(Dataset.NEEDS, List.of("n,Bread,4.0"));
+        assertEquals(List.of("n,Bread,4.0"), engine.load(Dataset.NEEDS));
+
+        engine.replace(Dataset.NEEDS, List.of());
+        assertEquals(List.of(), engine.load(Dataset.NEEDS));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void replaceIsNeverSeenHalfDone(String engineName) throws Exception {
+        StorageEngine writer = open(engineName, "alice");
+        StorageEngine reader = StorageEngines.create(engineName, LEDGER);
+        opened.add(reader);
+        reader.setUser(new User("alice", "", "", ""));
+
+        List<String> small = List.of("n,Apples,1.5");
+        List<String> large = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            large.add("n,Need " + i + "," + i + ".0");
+        }
+        writer.replace(Dataset.NEEDS, small);
+
+        // Another session reading while this one saves sees the old rows or the new ones, nothing in between
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<List<String>> torn = new AtomicReference<>();
+        Thread reading = new Thread(() -> {
+            while (!done.get()) {
+                List<String> rows = reader.load(Dataset.NEEDS);
+                if (!rows.equals(small) && !rows.equals(large)) {
+                    torn.compareAndSet(null, rows);
+                }
+            }
+        });
+        reading.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                writer.replace(Dataset.NEEDS, i % 2 == 0 ? large : small);
+            }
+        } finally {
+            done.set(true);
+            reading.join();
+        }
+        assertNull(torn.get(), () -> "a reader saw " + torn.get().size() + " rows during a replace");
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void appendAddsAfterTheExistingRows(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        engine.replace(Dataset.LEDGER, List.of("2025,03,07,n,Apples,2.0"));
+        engine.append(Dataset.LEDGER, List.of("2025,03,08,f,Salary,1.0", "2025,03,08,i,100.0"));
+        engine.append(Dataset.LEDGER, List.of("2025,03,09,n,Apples,1.0"));
+        assertEquals(List.of("2025,03,07,n,Apples,2.0", "2025,03,08,f,Salary,1.0", "2025,03,08,i,100.0", "2025,03,09,n,Apples,1.0"),
+                engine.load(Dataset.LEDGER));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void appendToAnEmptyDatasetStartsIt(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        engine.append(Dataset.FUNDING, List.of("f,Salary,100.0"));
+        assertEquals(List.of("f,Salary,100.0"), engine.load(Dataset.FUNDING));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void missingDatasetLoadsEmpty(String engineName) throws IOException {
+        StorageEngine engine = StorageEngines.create(engineName, LEDGER);
+        opened.add(engine);
+        // A user whose storage was never created, and a new user with nothing saved yet
+        engine.setUser(new User("nobody", "", "", ""));
+        for (Dataset dataset : Dataset.values()) {
+            assertEquals(List.of(), engine.load(dataset), dataset + " of a user that does not exist");
+        }
+        engine.createUser("bob");
+        engine.setUser(new User("bob", "", "", ""));
+        for (Dataset dataset : Dataset.values()) {
+            assertEquals(List.of(), engine.load(dataset), dataset + " of a new user");
+            assertEquals(0, engine.query(dataset, "n").count());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void usersIsSharedAndPerUserDatasetsAreNot(String engineName) throws IOException {
+        StorageEngine engine = open(engineName, "alice");
+        engine.createUser("bob");
+        List<String> users = List.of("alice,hash,Alice,A", "bob,hash,Bob,B");
+        engine.replace(Dataset.USERS, users);
+        engine.replace(Dataset.NEEDS, List.of("n,Apples,1.5"));
+
+        engine.setUser(new User("bob", "", "", ""));
+        assertEquals(users, engine.load(Dataset.USERS));
+        assertEquals(List.of(), engine.load(Dataset.NEEDS));
+        engine.append(Dataset.USERS, List.of("carol,hash,Carol,C"));
+        engine.replace(Dataset.NEEDS, List.of("n,Milk,2.25"));
+
+        // Another session sees the same users, whoever it is logged in as
+        StorageEngine other = open(engineName, "carol");
+        assertEquals(List.of("alice,hash,Alice,A", "bob,hash,Bob,B", "carol,hash,Carol,C"), other.load(Dataset.USERS));
+        assertTrue(other.query(Dataset.USERS, "bob").findAny().isPresent());
+
+        engine.setUser(new User("alice", "", "", ""));
+        assertEquals(List.of("n,Apples,1.5"), engine.load(Dataset.NEEDS));
+        assertEquals(3, engine.load(Dataset.USERS).size());
+    }
+}